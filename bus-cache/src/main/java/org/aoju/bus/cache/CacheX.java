@@ -24,6 +24,8 @@
  ********************************************************************************/
 package org.aoju.bus.cache;
 
+import org.aoju.bus.cache.support.Histogram;
+
 import java.util.Collection;
 import java.util.Map;
 
@@ -84,4 +86,22 @@ public interface CacheX {
      */
     void clear();
 
+    /**
+     * 因容量或过期被淘汰的条目数量
+     *
+     * @return 淘汰数量, 不支持统计的实现返回0
+     */
+    default long evictionCount() {
+        return 0L;
+    }
+
+    /**
+     * 写入值序列化后的字节数分布
+     *
+     * @return 字节数分布, 不经过序列化的实现返回null
+     */
+    default Histogram valueSize() {
+        return null;
+    }
+
 }
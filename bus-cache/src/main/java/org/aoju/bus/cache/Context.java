@@ -45,12 +45,16 @@ public class Context {
     // 是否开启缓存防击穿
     private Switch prevent;
 
+    // 单次调用日志的采样比例(0~1), 默认0不输出
+    private double sampling;
+
     public static Context newConfig(Map<String, CacheX> caches) {
         Context config = new Context();
         config.caches = caches;
         config.cache = Switch.ON;
         config.prevent = Switch.OFF;
         config.hitting = null;
+        config.sampling = 0.0;
         return config;
     }
 
@@ -90,6 +94,14 @@ public class Context {
         this.prevent = prevent;
     }
 
+    public double getSampling() {
+        return sampling;
+    }
+
+    public void setSampling(double sampling) {
+        this.sampling = sampling;
+    }
+
     public enum Switch {
         ON,
         OFF
@@ -34,6 +34,7 @@ import org.aoju.bus.logger.Logger;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * @author Kimi Liu
@@ -48,27 +49,40 @@ public class Manage {
 
     private Map<String, CachePair<String, CacheX>> cachePool = new ConcurrentHashMap<>();
 
+    private Map<String, Metrics> metricsPool = new ConcurrentHashMap<>();
+
+    @Inject
+    private Context config;
+
     @Inject
     public void setCachePool(Map<String, CacheX> caches) {
         // default cache impl
         Map.Entry<String, CacheX> entry = caches.entrySet().iterator().next();
         this.defaultCache = CachePair.of(entry.getKey(), entry.getValue());
 
-        caches.forEach((name, cache) -> this.cachePool.put(name, CachePair.of(name, cache)));
+        caches.forEach((name, cache) -> {
+            this.cachePool.put(name, CachePair.of(name, cache));
+            this.metricsPool.put(name, new Metrics(name, cache));
+        });
     }
 
     public Object readSingle(String cache, String key) {
+        Metrics metrics = null;
         try {
             CachePair<String, CacheX> cacheImpl = getCacheImpl(cache);
+            metrics = metricsPool.get(cacheImpl.getLeft());
 
-            long start = System.currentTimeMillis();
+            long start = System.nanoTime();
             Object result = cacheImpl.getRight().read(key);
-            Logger.info("cache [{}] read single cost: [{}] ms",
-                    cacheImpl.getLeft(),
-                    (System.currentTimeMillis() - start));
+            long cost = System.nanoTime() - start;
+            metrics.recordReadSingle(cost, result != null);
+            if (isSampled()) {
+                Logger.info("cache [{}] read single cost: [{}] us", cacheImpl.getLeft(), cost / 1000);
+            }
 
             return result;
         } catch (Throwable e) {
+            recordError(metrics);
             Logger.error("read single cache failed, key: {} ", key, e);
             return null;
         }
@@ -76,16 +90,21 @@ public class Manage {
 
     public void writeSingle(String cache, String key, Object value, int expire) {
         if (value != null) {
+            Metrics metrics = null;
             try {
                 CachePair<String, CacheX> cacheImpl = getCacheImpl(cache);
+                metrics = metricsPool.get(cacheImpl.getLeft());
 
-                long start = System.currentTimeMillis();
+                long start = System.nanoTime();
                 cacheImpl.getRight().write(key, value, expire);
-                Logger.info("cache [{}] write single cost: [{}] ms",
-                        cacheImpl.getLeft(),
-                        (System.currentTimeMillis() - start));
+                long cost = System.nanoTime() - start;
+                metrics.recordWriteSingle(cost);
+                if (isSampled()) {
+                    Logger.info("cache [{}] write single cost: [{}] us", cacheImpl.getLeft(), cost / 1000);
+                }
 
             } catch (Throwable e) {
+                recordError(metrics);
                 Logger.error("write single cache failed, key: {} ", key, e);
             }
         }
@@ -96,14 +115,17 @@ public class Manage {
         if (keys.isEmpty()) {
             cacheKeys = new CacheKeys();
         } else {
+            Metrics metrics = null;
             try {
                 CachePair<String, CacheX> cacheImpl = getCacheImpl(cache);
+                metrics = metricsPool.get(cacheImpl.getLeft());
 
-                long start = System.currentTimeMillis();
+                long start = System.nanoTime();
                 Map<String, Object> cacheMap = cacheImpl.getRight().read(keys);
-                Logger.info("cache [{}] read batch cost: [{}] ms",
-                        cacheImpl.getLeft(),
-                        (System.currentTimeMillis() - start));
+                long cost = System.nanoTime() - start;
+                if (isSampled()) {
+                    Logger.info("cache [{}] read batch cost: [{}] us", cacheImpl.getLeft(), cost / 1000);
+                }
 
                 // collect not nit keys, keep order when full shooting
                 Map<String, Object> hitValueMap = new LinkedHashMap<>();
@@ -117,9 +139,11 @@ public class Manage {
                         hitValueMap.put(key, value);
                     }
                 }
+                metrics.recordReadBatch(cost, hitValueMap.size(), notHitKeys.size());
 
                 cacheKeys = new CacheKeys(hitValueMap, notHitKeys);
             } catch (Throwable e) {
+                recordError(metrics);
                 Logger.error("read multi cache failed, keys: {}", keys, e);
                 cacheKeys = new CacheKeys();
             }
@@ -129,37 +153,82 @@ public class Manage {
     }
 
     public void writeBatch(String cache, Map<String, Object> keyValueMap, int expire) {
+        Metrics metrics = null;
         try {
             CachePair<String, CacheX> cacheImpl = getCacheImpl(cache);
+            metrics = metricsPool.get(cacheImpl.getLeft());
 
-            long start = System.currentTimeMillis();
+            long start = System.nanoTime();
             cacheImpl.getRight().write(keyValueMap, expire);
-            Logger.info("cache [{}] write batch cost: [{}] ms",
-                    cacheImpl.getLeft(),
-                    (System.currentTimeMillis() - start));
+            long cost = System.nanoTime() - start;
+            metrics.recordWriteBatch(cost, keyValueMap.size());
+            if (isSampled()) {
+                Logger.info("cache [{}] write batch cost: [{}] us", cacheImpl.getLeft(), cost / 1000);
+            }
 
         } catch (Exception e) {
+            recordError(metrics);
             Logger.error("write map multi cache failed, keys: {}", keyValueMap.keySet(), e);
         }
     }
 
     public void remove(String cache, String... keys) {
         if (keys != null && keys.length != 0) {
+            Metrics metrics = null;
             try {
                 CachePair<String, CacheX> cacheImpl = getCacheImpl(cache);
+                metrics = metricsPool.get(cacheImpl.getLeft());
 
-                long start = System.currentTimeMillis();
+                long start = System.nanoTime();
                 cacheImpl.getRight().remove(keys);
-                Logger.info("cache [{}] remove cost: [{}] ms",
-                        cacheImpl.getLeft(),
-                        (System.currentTimeMillis() - start));
+                long cost = System.nanoTime() - start;
+                metrics.recordRemove(cost);
+                if (isSampled()) {
+                    Logger.info("cache [{}] remove cost: [{}] us", cacheImpl.getLeft(), cost / 1000);
+                }
 
             } catch (Throwable e) {
+                recordError(metrics);
                 Logger.error("remove cache failed, keys: {}: ", keys, e);
             }
         }
     }
 
+    /**
+     * 获取缓存实现的运行指标
+     *
+     * @param cache 缓存实现名称, 为空时取默认缓存
+     * @return 运行指标
+     */
+    public Metrics getMetrics(String cache) {
+        return metricsPool.get(getCacheImpl(cache).getLeft());
+    }
+
+    /**
+     * 获取全部缓存实现的运行指标
+     *
+     * @return 缓存实现名称与运行指标
+     */
+    public Map<String, Metrics> getMetrics() {
+        return Collections.unmodifiableMap(metricsPool);
+    }
+
+    /**
+     * 按{@link Context#getSampling()}的比例决定本次调用是否输出耗时日志
+     *
+     * @return true: 输出
+     */
+    public boolean isSampled() {
+        double sampling = config == null ? 0.0 : config.getSampling();
+        return sampling > 0.0 && (sampling >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampling);
+    }
+
+    private void recordError(Metrics metrics) {
+        if (metrics != null) {
+            metrics.recordError();
+        }
+    }
+
     private CachePair<String, CacheX> getCacheImpl(String cacheName) {
         if (StringKit.isEmpty(cacheName)) {
             return defaultCache;
@@ -0,0 +1,221 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.cache;
+
+import org.aoju.bus.cache.support.Histogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个缓存实现的运行指标: 各操作的纳秒级耗时分布、命中/未命中/回源/淘汰计数、批量操作的key数量分布
+ * 及写入值序列化后的字节数分布
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+public class Metrics {
+
+    private final String name;
+
+    private final CacheX cache;
+
+    private final Histogram readSingle = new Histogram();
+
+    private final Histogram readBatch = new Histogram();
+
+    private final Histogram writeSingle = new Histogram();
+
+    private final Histogram writeBatch = new Histogram();
+
+    private final Histogram remove = new Histogram();
+
+    private final Histogram load = new Histogram();
+
+    // 批量操作涉及的key数量
+    private final Histogram batchSize = new Histogram();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder loadFailures = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    public Metrics(String name, CacheX cache) {
+        this.name = name;
+        this.cache = cache;
+    }
+
+    public void recordReadSingle(long nanos, boolean hit) {
+        readSingle.record(nanos);
+        (hit ? hits : misses).increment();
+    }
+
+    public void recordReadBatch(long nanos, int hitCount, int missCount) {
+        readBatch.record(nanos);
+        batchSize.record(hitCount + missCount);
+        hits.add(hitCount);
+        misses.add(missCount);
+    }
+
+    public void recordWriteSingle(long nanos) {
+        writeSingle.record(nanos);
+    }
+
+    public void recordWriteBatch(long nanos, int size) {
+        writeBatch.record(nanos);
+        batchSize.record(size);
+    }
+
+    public void recordRemove(long nanos) {
+        remove.record(nanos);
+    }
+
+    public void recordLoad(long nanos, boolean success) {
+        load.record(nanos);
+        if (!success) {
+            loadFailures.increment();
+        }
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Histogram getReadSingle() {
+        return readSingle;
+    }
+
+    public Histogram getReadBatch() {
+        return readBatch;
+    }
+
+    public Histogram getWriteSingle() {
+        return writeSingle;
+    }
+
+    public Histogram getWriteBatch() {
+        return writeBatch;
+    }
+
+    public Histogram getRemove() {
+        return remove;
+    }
+
+    public Histogram getLoad() {
+        return load;
+    }
+
+    public Histogram getBatchSize() {
+        return batchSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long hit = hits.sum();
+        long required = hit + misses.sum();
+        return required == 0 ? 0.0 : (double) hit / required;
+    }
+
+    public long getLoadCount() {
+        return load.getCount();
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailures.sum();
+    }
+
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    /**
+     * 淘汰数量由缓存实现提供
+     *
+     * @return 淘汰数量, 实现不支持统计时为0
+     * @see CacheX#evictionCount()
+     */
+    public long getEvictionCount() {
+        return cache.evictionCount();
+    }
+
+    /**
+     * 写入值大小由缓存实现在序列化时记录
+     *
+     * @return 字节数分布, 实现不经过序列化时为null
+     * @see CacheX#valueSize()
+     */
+    public Histogram getValueSize() {
+        return cache.valueSize();
+    }
+
+    public void reset() {
+        readSingle.reset();
+        readBatch.reset();
+        writeSingle.reset();
+        writeBatch.reset();
+        remove.reset();
+        load.reset();
+        batchSize.reset();
+        hits.reset();
+        misses.reset();
+        loadFailures.reset();
+        errors.reset();
+        Histogram valueSize = cache.valueSize();
+        if (valueSize != null) {
+            valueSize.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        Histogram valueSize = cache.valueSize();
+        return "cache [" + name + "] hit: " + getHitCount() + ", miss: " + getMissCount()
+                + ", load: " + getLoadCount() + ", loadFailure: " + getLoadFailureCount()
+                + ", eviction: " + getEvictionCount() + ", error: " + getErrorCount()
+                + "\n  readSingle(ns): " + readSingle
+                + "\n  readBatch(ns): " + readBatch
+                + "\n  writeSingle(ns): " + writeSingle
+                + "\n  writeBatch(ns): " + writeBatch
+                + "\n  remove(ns): " + remove
+                + "\n  load(ns): " + load
+                + "\n  batchSize: " + batchSize
+                + (valueSize == null ? "" : "\n  valueSize(bytes): " + valueSize);
+    }
+
+}
@@ -63,4 +63,22 @@ public @interface Cached {
      */
     int expire() default CacheExpire.FOREVER;
 
+    /**
+     * @return whether concurrent loads of the same key are coalesced,
+     * when {@code true}, only one invocation fills the cache and the other callers wait on its result
+     */
+    boolean coalesce() default false;
+
+    /**
+     * @return refresh-ahead window, percent of {@code expire},
+     * a hit within the last {@code refresh}% of the expire time triggers an asynchronous reload
+     */
+    int refresh() default 0;
+
+    /**
+     * @return stale-while-revalidate window, time unit same as {@code expire},
+     * a value expired no longer than {@code stale} is still returned while it is reloaded asynchronously
+     */
+    int stale() default 0;
+
 }
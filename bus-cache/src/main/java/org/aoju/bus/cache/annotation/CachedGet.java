@@ -58,4 +58,10 @@ public @interface CachedGet {
      */
     String condition() default Normal.EMPTY;
 
+    /**
+     * @return whether concurrent loads of the same key are coalesced,
+     * when true, only one invocation is made and the other callers wait on its result
+     */
+    boolean coalesce() default false;
+
 }
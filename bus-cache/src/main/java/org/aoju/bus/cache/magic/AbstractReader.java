@@ -24,9 +24,13 @@
  ********************************************************************************/
 package org.aoju.bus.cache.magic;
 
+import org.aoju.bus.cache.Metrics;
+import org.aoju.bus.core.annotation.Inject;
 import org.aoju.bus.logger.Logger;
 import org.aoju.bus.proxy.invoker.ProxyChain;
 
+import java.util.Collection;
+
 /**
  * @author Kimi Liu
  * @version 5.9.8
@@ -34,15 +38,67 @@ import org.aoju.bus.proxy.invoker.ProxyChain;
  */
 public abstract class AbstractReader {
 
+    @Inject
+    private Refresher refresher;
+
     public abstract Object read(AnnoHolder annoHolder, MethodHolder methodHolder, ProxyChain baseInvoker, boolean needWrite) throws Throwable;
 
     Object doLogInvoke(ThrowableSupplier<Object> throwableSupplier) throws Throwable {
-        long start = System.currentTimeMillis();
+        return doLogInvoke(null, throwableSupplier);
+    }
+
+    /**
+     * 调用原方法回源, 并将耗时记录为缓存的load指标
+     *
+     * @param metrics           缓存运行指标, 为null时不记录
+     * @param throwableSupplier 原方法调用
+     * @return 原方法返回值
+     * @throws Throwable 原方法抛出的异常
+     */
+    Object doLogInvoke(Metrics metrics, ThrowableSupplier<Object> throwableSupplier) throws Throwable {
+        long start = System.nanoTime();
+        boolean success = false;
         try {
-            return throwableSupplier.get();
+            Object result = throwableSupplier.get();
+            success = true;
+            return result;
         } finally {
-            Logger.debug("method invoke total cost [{}] ms", (System.currentTimeMillis() - start));
+            long cost = System.nanoTime() - start;
+            if (metrics != null) {
+                metrics.recordLoad(cost, success);
+            }
+            Logger.debug("method invoke total cost [{}] us", cost / 1000);
+        }
+    }
+
+    /**
+     * 读取开启了refresh/stale的缓存内容: 超出stale窗口视为未命中,
+     * 进入刷新窗口(或处于stale窗口内)时提交异步刷新并返回当前值
+     *
+     * @param value     缓存中读取的内容
+     * @param needWrite 是否允许回写缓存
+     * @param keys      内容对应的keys
+     * @param refresh   刷新逻辑
+     * @return 缓存内容, 未命中时为null
+     */
+    Object revalidate(Object value, boolean needWrite, Collection<String> keys, Refresher.RefreshTask refresh) {
+        if (!(value instanceof RefreshEntry)) {
+            return value;
+        }
+
+        RefreshEntry entry = (RefreshEntry) value;
+        long now = System.currentTimeMillis();
+        if (entry.isDead(now)) {
+            return null;
         }
+        if (needWrite && entry.isRefreshDue(now)) {
+            refresh(keys, refresh);
+        }
+        return entry.getValue();
+    }
+
+    void refresh(Collection<String> keys, Refresher.RefreshTask refresh) {
+        refresher.refresh(keys, refresh);
     }
 
     @FunctionalInterface
@@ -42,6 +42,9 @@ public class AnnoHolder {
     private String cache;
     private String prefix;
     private int expire;
+    private boolean coalesce;
+    private int refresh;
+    private int stale;
 
     // @CacheKey
     private Map<Integer, CacheKey> cacheKeyMap;
@@ -51,12 +54,15 @@ public class AnnoHolder {
     private String id;
 
     private AnnoHolder(Method method,
-                       String cache, String prefix, int expire,
+                       String cache, String prefix, int expire, boolean coalesce, int refresh, int stale,
                        Map<Integer, CacheKey> cacheKeyMap, int multiIndex, String id) {
         this.method = method;
         this.cache = cache;
         this.prefix = prefix;
         this.expire = expire;
+        this.coalesce = coalesce;
+        this.refresh = refresh;
+        this.stale = stale;
         this.cacheKeyMap = cacheKeyMap;
         this.multiIndex = multiIndex;
         this.id = id;
@@ -78,6 +84,22 @@ public class AnnoHolder {
         return expire;
     }
 
+    public boolean isCoalesce() {
+        return coalesce;
+    }
+
+    public int getRefresh() {
+        return refresh;
+    }
+
+    public int getStale() {
+        return stale;
+    }
+
+    public boolean isRefreshable() {
+        return expire > 0 && (refresh > 0 || stale > 0);
+    }
+
     public Map<Integer, CacheKey> getCacheKeyMap() {
         return cacheKeyMap;
     }
@@ -104,6 +126,12 @@ public class AnnoHolder {
 
         private int expire;
 
+        private boolean coalesce;
+
+        private int refresh;
+
+        private int stale;
+
         private Map<Integer, CacheKey> cacheKeyMap;
 
         private int multiIndex = -1;
@@ -133,6 +161,21 @@ public class AnnoHolder {
             return this;
         }
 
+        public Builder setCoalesce(boolean coalesce) {
+            this.coalesce = coalesce;
+            return this;
+        }
+
+        public Builder setRefresh(int refresh) {
+            this.refresh = refresh;
+            return this;
+        }
+
+        public Builder setStale(int stale) {
+            this.stale = stale;
+            return this;
+        }
+
         public Builder setMultiIndex(int multiIndex) {
             this.multiIndex = multiIndex;
             return this;
@@ -149,7 +192,7 @@ public class AnnoHolder {
         }
 
         public AnnoHolder build() {
-            return new AnnoHolder(method, cache, prefix, expire, cacheKeyMap, multiIndex, id);
+            return new AnnoHolder(method, cache, prefix, expire, coalesce, refresh, stale, cacheKeyMap, multiIndex, id);
         }
     }
 
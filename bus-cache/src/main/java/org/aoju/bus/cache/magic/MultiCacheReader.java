@@ -53,6 +53,8 @@ public class MultiCacheReader extends AbstractReader {
     @Inject(optional = true)
     private Hitting baseHitting;
 
+    private final SingleFlight flights = new SingleFlight();
+
     private static Map mergeMap(Class<?> resultMapType,
                                 Map proceedEntryValueMap,
                                 Map<String, Object> key2MultiEntry,
@@ -125,7 +127,8 @@ public class MultiCacheReader extends AbstractReader {
 
         // request cache
         Set<String> keys = key2MultiEntry.keySet();
-        CacheKeys cacheKeys = cacheManager.readBatch(annoHolder.getCache(), keys);
+        CacheKeys cacheKeys = revalidate(cacheManager.readBatch(annoHolder.getCache(), keys),
+                annoHolder, baseInvoker, pair, needWrite);
         doRecord(cacheKeys, annoHolder);
 
         Object result;
@@ -142,6 +145,59 @@ public class MultiCacheReader extends AbstractReader {
         return result;
     }
 
+    // 处理开启了refresh/stale的缓存内容: 超出stale窗口的keys转为未命中, 进入刷新窗口的keys合并为一次异步刷新
+    private CacheKeys revalidate(CacheKeys cacheKeys, AnnoHolder annoHolder, ProxyChain baseInvoker,
+                                 Map[] pair, boolean needWrite) {
+        if (cacheKeys.getHitKeyMap().values().stream().noneMatch(RefreshEntry.class::isInstance)) {
+            return cacheKeys;
+        }
+
+        Map<String, Object> hitKeyValueMap = new LinkedHashMap<>(cacheKeys.getHitKeyMap().size());
+        Set<String> missKeys = new LinkedHashSet<>(cacheKeys.getMissKeySet());
+        Set<String> refreshKeys = new LinkedHashSet<>();
+
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Object> entry : cacheKeys.getHitKeyMap().entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof RefreshEntry) {
+                RefreshEntry refreshEntry = (RefreshEntry) value;
+                if (refreshEntry.isDead(now)) {
+                    missKeys.add(entry.getKey());
+                    continue;
+                }
+                if (refreshEntry.isRefreshDue(now)) {
+                    refreshKeys.add(entry.getKey());
+                }
+                value = refreshEntry.getValue();
+            }
+            hitKeyValueMap.put(entry.getKey(), value);
+        }
+
+        if (needWrite && !refreshKeys.isEmpty()) {
+            Map<Object, String> multiEntry2Key = pair[0];
+            Map<String, Object> key2MultiEntry = pair[1];
+            Object[] args = baseInvoker.getArguments().clone();
+            refresh(refreshKeys, claimed -> {
+                Object[] refreshArgs = toMissArgs(claimed, key2MultiEntry, args, annoHolder.getMultiIndex());
+                Object proceed = doLogInvoke(cacheManager.getMetrics(annoHolder.getCache()), () -> baseInvoker.proceed(refreshArgs));
+                if (proceed == null) {
+                    return;
+                }
+
+                Map<String, Object> keyValueMap;
+                if (proceed instanceof Map) {
+                    keyValueMap = KeyValue.mapToKeyValue((Map) proceed, new HashSet<>(claimed), multiEntry2Key, config.getPrevent());
+                } else {
+                    Collection proceedCollection = asCollection(proceed, proceed.getClass());
+                    keyValueMap = KeyValue.collectionToKeyValue(proceedCollection, annoHolder.getId(), new HashSet<>(claimed), multiEntry2Key, config.getPrevent());
+                }
+                cacheManager.writeBatch(annoHolder.getCache(), RefreshEntry.wrap(annoHolder, keyValueMap), RefreshEntry.expireOf(annoHolder));
+            });
+        }
+
+        return new CacheKeys(hitKeyValueMap, missKeys);
+    }
+
     private Object handlePartHit(ProxyChain baseInvoker, CacheKeys cacheKeys,
                                  AnnoHolder annoHolder, MethodHolder methodHolder,
                                  Map[] pair, boolean needWrite) throws Throwable {
@@ -152,9 +208,36 @@ public class MultiCacheReader extends AbstractReader {
         Set<String> missKeys = cacheKeys.getMissKeySet();
         Map<String, Object> hitKeyValueMap = cacheKeys.getHitKeyMap();
 
+        // 合并加载: 只加载没有其他调用方正在加载的keys, 其余keys等待其结果
+        SingleFlight.Claim claim = null;
+        if (annoHolder.isCoalesce()) {
+            claim = flights.claim(missKeys);
+            missKeys = claim.getOwnedKeys();
+            if (missKeys.isEmpty()) {
+                return handleFullHit(baseInvoker, claim.await(hitKeyValueMap), methodHolder, key2MultiEntry);
+            }
+        }
+
+        try {
+            return doHandlePartHit(baseInvoker, missKeys, hitKeyValueMap, annoHolder, methodHolder, pair, needWrite, claim);
+        } catch (Throwable e) {
+            if (claim != null) {
+                claim.fail(e);
+            }
+            throw e;
+        }
+    }
+
+    private Object doHandlePartHit(ProxyChain baseInvoker, Set<String> missKeys, Map<String, Object> hitKeyValueMap,
+                                   AnnoHolder annoHolder, MethodHolder methodHolder,
+                                   Map[] pair, boolean needWrite, SingleFlight.Claim claim) throws Throwable {
+
+        Map<Object, String> multiEntry2Key = pair[0];
+        Map<String, Object> key2MultiEntry = pair[1];
+
         // 用未命中的keys调用方法
         Object[] missArgs = toMissArgs(missKeys, key2MultiEntry, baseInvoker.getArguments(), annoHolder.getMultiIndex());
-        Object proceed = doLogInvoke(() -> baseInvoker.proceed(missArgs));
+        Object proceed = doLogInvoke(cacheManager.getMetrics(annoHolder.getCache()), () -> baseInvoker.proceed(missArgs));
 
         Object result;
         if (proceed != null) {
@@ -164,10 +247,10 @@ public class MultiCacheReader extends AbstractReader {
                 Map proceedEntryValueMap = (Map) proceed;
 
                 // 为了兼容@CachedGet注解, 客户端缓存
-                if (needWrite) {
+                if (needWrite || claim != null) {
                     // 将方法调用返回的map转换成key_value_map写入Cache
                     Map<String, Object> keyValueMap = KeyValue.mapToKeyValue(proceedEntryValueMap, missKeys, multiEntry2Key, config.getPrevent());
-                    cacheManager.writeBatch(annoHolder.getCache(), keyValueMap, annoHolder.getExpire());
+                    hitKeyValueMap = writeAndShare(annoHolder, keyValueMap, hitKeyValueMap, needWrite, claim);
                 }
                 // 将方法调用返回的map与从Cache中读取的key_value_map合并返回
                 result = mergeMap(returnType, proceedEntryValueMap, key2MultiEntry, hitKeyValueMap);
@@ -175,16 +258,19 @@ public class MultiCacheReader extends AbstractReader {
                 Collection proceedCollection = asCollection(proceed, returnType);
 
                 // 为了兼容@CachedGet注解, 客户端缓存
-                if (needWrite) {
+                if (needWrite || claim != null) {
                     // 将方法调用返回的collection转换成key_value_map写入Cache
                     Map<String, Object> keyValueMap = KeyValue.collectionToKeyValue(proceedCollection, annoHolder.getId(), missKeys, multiEntry2Key, config.getPrevent());
-                    cacheManager.writeBatch(annoHolder.getCache(), keyValueMap, annoHolder.getExpire());
+                    hitKeyValueMap = writeAndShare(annoHolder, keyValueMap, hitKeyValueMap, needWrite, claim);
                 }
                 // 将方法调用返回的collection与从Cache中读取的key_value_map合并返回
                 Collection resultCollection = mergeCollection(returnType, proceedCollection, hitKeyValueMap);
                 result = asType(resultCollection, returnType);
             }
         } else {
+            if (claim != null) {
+                hitKeyValueMap = writeAndShare(annoHolder, Collections.emptyMap(), hitKeyValueMap, false, claim);
+            }
             // read as full shooting
             result = handleFullHit(baseInvoker, hitKeyValueMap, methodHolder, key2MultiEntry);
         }
@@ -192,6 +278,21 @@ public class MultiCacheReader extends AbstractReader {
         return result;
     }
 
+    // 写入Cache, 并把加载结果共享给等待这些keys的调用方, 返回合并了其他调用方加载结果的key_value_map
+    private Map<String, Object> writeAndShare(AnnoHolder annoHolder, Map<String, Object> keyValueMap,
+                                              Map<String, Object> hitKeyValueMap,
+                                              boolean needWrite, SingleFlight.Claim claim) throws Throwable {
+        if (needWrite) {
+            cacheManager.writeBatch(annoHolder.getCache(), RefreshEntry.wrap(annoHolder, keyValueMap), RefreshEntry.expireOf(annoHolder));
+        }
+        if (claim == null) {
+            return hitKeyValueMap;
+        }
+
+        claim.complete(keyValueMap);
+        return claim.await(hitKeyValueMap);
+    }
+
     private Object asType(Collection collection, Class<?> returnType) {
         if (Collection.class.isAssignableFrom(returnType)) {
             return collection;
@@ -255,8 +356,10 @@ public class MultiCacheReader extends AbstractReader {
         // 计数
         int hitCount = cacheKeys.getHitKeyMap().size();
         int totalCount = hitCount + missKeys.size();
-        Logger.info("multi cache hit rate: {}/{}, missed keys: {}",
-                hitCount, totalCount, missKeys);
+        if (cacheManager.isSampled()) {
+            Logger.info("multi cache hit rate: {}/{}, missed keys: {}",
+                    hitCount, totalCount, missKeys);
+        }
 
         if (this.baseHitting != null) {
             // 分组模板
@@ -0,0 +1,136 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.cache.magic;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 开启refresh/stale的缓存在写入时附带的时间信息,
+ * 读取时据此判断是否需要提前刷新或是否仍可作为旧值返回
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+public class RefreshEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Object value;
+
+    // 进入刷新窗口的时间
+    private long refreshAt;
+
+    // 逻辑过期时间
+    private long expireAt;
+
+    // stale窗口结束时间
+    private long staleAt;
+
+    public RefreshEntry() {
+    }
+
+    private RefreshEntry(Object value, long now, AnnoHolder annoHolder) {
+        int expire = annoHolder.getExpire();
+        this.value = value;
+        this.expireAt = now + expire;
+        this.refreshAt = expireAt - (long) expire * annoHolder.getRefresh() / 100;
+        this.staleAt = expireAt + annoHolder.getStale();
+    }
+
+    public static Object wrap(AnnoHolder annoHolder, Object value) {
+        if (!annoHolder.isRefreshable()) {
+            return value;
+        }
+        return new RefreshEntry(value, System.currentTimeMillis(), annoHolder);
+    }
+
+    public static Map<String, Object> wrap(AnnoHolder annoHolder, Map<String, Object> keyValueMap) {
+        if (!annoHolder.isRefreshable()) {
+            return keyValueMap;
+        }
+
+        long now = System.currentTimeMillis();
+        Map<String, Object> entryMap = new HashMap<>(keyValueMap.size());
+        keyValueMap.forEach((key, value) -> entryMap.put(key, new RefreshEntry(value, now, annoHolder)));
+        return entryMap;
+    }
+
+    /**
+     * 写入缓存时使用的失效时长, 开启stale时需要将stale窗口一并保留
+     *
+     * @param annoHolder 注解信息
+     * @return 失效时长, 单位毫秒
+     */
+    public static int expireOf(AnnoHolder annoHolder) {
+        if (!annoHolder.isRefreshable()) {
+            return annoHolder.getExpire();
+        }
+        return annoHolder.getExpire() + annoHolder.getStale();
+    }
+
+    public boolean isRefreshDue(long now) {
+        return now >= refreshAt;
+    }
+
+    public boolean isDead(long now) {
+        return now >= staleAt;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public void setValue(Object value) {
+        this.value = value;
+    }
+
+    public long getRefreshAt() {
+        return refreshAt;
+    }
+
+    public void setRefreshAt(long refreshAt) {
+        this.refreshAt = refreshAt;
+    }
+
+    public long getExpireAt() {
+        return expireAt;
+    }
+
+    public void setExpireAt(long expireAt) {
+        this.expireAt = expireAt;
+    }
+
+    public long getStaleAt() {
+        return staleAt;
+    }
+
+    public void setStaleAt(long staleAt) {
+        this.staleAt = staleAt;
+    }
+
+}
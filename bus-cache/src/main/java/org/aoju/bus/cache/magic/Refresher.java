@@ -0,0 +1,106 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.cache.magic;
+
+import org.aoju.bus.core.annotation.Singleton;
+import org.aoju.bus.logger.Logger;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 缓存异步刷新,
+ * 同一key同时只有一个刷新任务, 线程与队列均有上限, 队列已满时放弃本次刷新, 由下一次命中再次触发
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+@Singleton
+public class Refresher {
+
+    private static final int QUEUE_SIZE = 1024;
+
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final ThreadPoolExecutor executor;
+
+    public Refresher() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger number = new AtomicInteger(1);
+        this.executor = new ThreadPoolExecutor(threads, threads,
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(QUEUE_SIZE),
+                r -> {
+                    Thread thread = new Thread(r);
+                    thread.setName("cache:refresher-" + number.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 提交刷新任务, 已在刷新中的keys会被忽略
+     *
+     * @param keys    需要刷新的keys
+     * @param refresh 刷新逻辑, 参数为当前任务负责的keys
+     */
+    void refresh(Collection<String> keys, RefreshTask refresh) {
+        Set<String> claimed = new LinkedHashSet<>(keys.size());
+        for (String key : keys) {
+            if (refreshing.add(key)) {
+                claimed.add(key);
+            }
+        }
+        if (claimed.isEmpty()) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    refresh.run(claimed);
+                } catch (Throwable e) {
+                    Logger.error("refresh cache failed, keys: {}", claimed, e);
+                } finally {
+                    refreshing.removeAll(claimed);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.removeAll(claimed);
+            Logger.warn("refresh queue is full, skip keys: {}", claimed);
+        }
+    }
+
+    @FunctionalInterface
+    interface RefreshTask {
+        void run(Set<String> keys) throws Throwable;
+    }
+
+}
@@ -35,6 +35,8 @@ import org.aoju.bus.core.annotation.Singleton;
 import org.aoju.bus.logger.Logger;
 import org.aoju.bus.proxy.invoker.ProxyChain;
 
+import java.util.Collections;
+
 /**
  * @author Kimi Liu
  * @version 5.9.8
@@ -52,10 +54,14 @@ public class SingleCacheReader extends AbstractReader {
     @Inject(optional = true)
     private Hitting baseHitting;
 
+    private final SingleFlight flights = new SingleFlight();
+
     @Override
     public Object read(AnnoHolder annoHolder, MethodHolder methodHolder, ProxyChain baseInvoker, boolean needWrite) throws Throwable {
         String key = KeyGenerator.generateSingleKey(annoHolder, baseInvoker.getArguments());
-        Object readResult = cacheManager.readSingle(annoHolder.getCache(), key);
+        Object readResult = revalidate(cacheManager.readSingle(annoHolder.getCache(), key), needWrite,
+                Collections.singletonList(key),
+                keys -> invokeAndWrite(annoHolder, methodHolder, baseInvoker::proceed, key, true));
 
         doRecord(readResult, key, annoHolder);
         // 命中
@@ -68,10 +74,17 @@ public class SingleCacheReader extends AbstractReader {
             return readResult;
         }
 
-
         // not hit
+        if (annoHolder.isCoalesce()) {
+            return flights.execute(key, () -> invokeAndWrite(annoHolder, methodHolder, baseInvoker::proceed, key, needWrite));
+        }
+        return invokeAndWrite(annoHolder, methodHolder, baseInvoker::proceed, key, needWrite);
+    }
+
+    private Object invokeAndWrite(AnnoHolder annoHolder, MethodHolder methodHolder, ThrowableSupplier<Object> invoker,
+                                  String key, boolean needWrite) throws Throwable {
         // invoke method
-        Object invokeResult = doLogInvoke(baseInvoker::proceed);
+        Object invokeResult = doLogInvoke(cacheManager.getMetrics(annoHolder.getCache()), invoker);
         if (invokeResult != null && methodHolder.getInnerReturnType() == null) {
             methodHolder.setInnerReturnType(invokeResult.getClass());
         }
@@ -81,20 +94,22 @@ public class SingleCacheReader extends AbstractReader {
         }
 
         if (invokeResult != null) {
-            cacheManager.writeSingle(annoHolder.getCache(), key, invokeResult, annoHolder.getExpire());
+            cacheManager.writeSingle(annoHolder.getCache(), key, RefreshEntry.wrap(annoHolder, invokeResult), RefreshEntry.expireOf(annoHolder));
             return invokeResult;
         }
 
         // invokeResult is null
         if (config.isPreventOn()) {
-            cacheManager.writeSingle(annoHolder.getCache(), key, PreventObjects.getPreventObject(), annoHolder.getExpire());
+            cacheManager.writeSingle(annoHolder.getCache(), key, RefreshEntry.wrap(annoHolder, PreventObjects.getPreventObject()), RefreshEntry.expireOf(annoHolder));
         }
 
         return null;
     }
 
     private void doRecord(Object result, String key, AnnoHolder annoHolder) {
-        Logger.info("single cache hit rate: {}/1, key: {}", result == null ? 0 : 1, key);
+        if (cacheManager.isSampled()) {
+            Logger.info("single cache hit rate: {}/1, key: {}", result == null ? 0 : 1, key);
+        }
         if (this.baseHitting != null) {
             String pattern = PatternGenerator.generatePattern(annoHolder);
 
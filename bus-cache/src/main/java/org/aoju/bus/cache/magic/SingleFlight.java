@@ -0,0 +1,166 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.cache.magic;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 合并同一缓存key上的并发加载: 首个调用方负责加载并写入缓存,
+ * 其余调用方等待其结果,避免热点key失效时的击穿
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+class SingleFlight {
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+
+    private static Object await(CompletableFuture<Object> flight) throws Throwable {
+        try {
+            return flight.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 执行加载,若该key已有加载在进行则等待其结果
+     *
+     * @param key    缓存key
+     * @param loader 加载逻辑
+     * @return 加载结果
+     * @throws Throwable 加载失败
+     */
+    Object execute(String key, AbstractReader.ThrowableSupplier<Object> loader) throws Throwable {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = flights.putIfAbsent(key, flight);
+        if (null != running) {
+            return await(running);
+        }
+
+        try {
+            Object result = loader.get();
+            flight.complete(result);
+            return result;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * 认领一批key: 没有其他调用方正在加载的key由当前调用方负责加载
+     *
+     * @param keys 未命中的keys
+     * @return 认领结果
+     */
+    Claim claim(Collection<String> keys) {
+        Map<String, CompletableFuture<Object>> owned = new LinkedHashMap<>(keys.size());
+        Map<String, CompletableFuture<Object>> waiting = new LinkedHashMap<>();
+        for (String key : keys) {
+            CompletableFuture<Object> flight = new CompletableFuture<>();
+            CompletableFuture<Object> running = flights.putIfAbsent(key, flight);
+            if (null == running) {
+                owned.put(key, flight);
+            } else {
+                waiting.put(key, running);
+            }
+        }
+        return new Claim(owned, waiting);
+    }
+
+    class Claim {
+
+        private final Map<String, CompletableFuture<Object>> owned;
+
+        private final Map<String, CompletableFuture<Object>> waiting;
+
+        private Claim(Map<String, CompletableFuture<Object>> owned, Map<String, CompletableFuture<Object>> waiting) {
+            this.owned = owned;
+            this.waiting = waiting;
+        }
+
+        /**
+         * @return 由当前调用方负责加载的keys
+         */
+        Set<String> getOwnedKeys() {
+            return new LinkedHashSet<>(owned.keySet());
+        }
+
+        /**
+         * 发布当前调用方的加载结果
+         *
+         * @param keyValueMap 已加载的key_value_map, 缺失的key以null发布
+         */
+        void complete(Map<String, Object> keyValueMap) {
+            owned.forEach((key, flight) -> {
+                flight.complete(keyValueMap.get(key));
+                flights.remove(key, flight);
+            });
+        }
+
+        /**
+         * 发布加载失败,等待的调用方将收到同样的异常
+         *
+         * @param e 异常信息
+         */
+        void fail(Throwable e) {
+            owned.forEach((key, flight) -> {
+                flight.completeExceptionally(e);
+                flights.remove(key, flight);
+            });
+        }
+
+        /**
+         * 等待其他调用方加载的keys, 并将结果与已命中的内容合并
+         *
+         * @param hitKeyValueMap 已命中的key_value_map
+         * @return 合并后的key_value_map
+         * @throws Throwable 其他调用方加载失败
+         */
+        Map<String, Object> await(Map<String, Object> hitKeyValueMap) throws Throwable {
+            if (waiting.isEmpty()) {
+                return hitKeyValueMap;
+            }
+
+            Map<String, Object> keyValueMap = new LinkedHashMap<>(hitKeyValueMap);
+            for (Map.Entry<String, CompletableFuture<Object>> entry : waiting.entrySet()) {
+                Object value = SingleFlight.await(entry.getValue());
+                if (null != value) {
+                    keyValueMap.put(entry.getKey(), value);
+                }
+            }
+            return keyValueMap;
+        }
+    }
+
+}
@@ -50,6 +50,7 @@ public class GuavaCache implements CacheX {
                 .newBuilder()
                 .maximumSize(size)
                 .expireAfterWrite(expire, TimeUnit.MILLISECONDS)
+                .recordStats()
                 .build(new CacheLoader<String, Object>() {
                     @Override
                     public Object load(String key) {
@@ -88,4 +89,9 @@ public class GuavaCache implements CacheX {
         guavaCache.cleanUp();
     }
 
+    @Override
+    public long evictionCount() {
+        return guavaCache.stats().evictionCount();
+    }
+
 }
@@ -31,6 +31,7 @@ import org.aoju.bus.cache.CacheX;
 import org.aoju.bus.cache.magic.CacheExpire;
 import org.aoju.bus.cache.serialize.BaseSerializer;
 import org.aoju.bus.cache.serialize.Hessian2Serializer;
+import org.aoju.bus.cache.support.Histogram;
 
 import javax.annotation.PreDestroy;
 import java.io.IOException;
@@ -54,6 +55,8 @@ public class MemcachedCache implements CacheX {
 
     private BaseSerializer serializer;
 
+    private final Histogram valueSize = new Histogram();
+
     public MemcachedCache(String ipPorts) throws IOException {
         this(ipPorts, new Hessian2Serializer());
     }
@@ -75,7 +78,7 @@ public class MemcachedCache implements CacheX {
 
     @Override
     public void write(String key, Object value, long expire) {
-        byte[] byteValue = serializer.serialize(value);
+        byte[] byteValue = serialize(value);
         try {
             if (expire == CacheExpire.FOREVER) {
                 client.set(key, _30_DAYS, byteValue);
@@ -132,6 +135,19 @@ public class MemcachedCache implements CacheX {
         }
     }
 
+    @Override
+    public Histogram valueSize() {
+        return valueSize;
+    }
+
+    private byte[] serialize(Object value) {
+        byte[] bytes = serializer.serialize(value);
+        if (bytes != null) {
+            valueSize.record(bytes.length);
+        }
+        return bytes;
+    }
+
     @PreDestroy
     public void tearDown() {
         if (client != null && !client.isShutdown()) {
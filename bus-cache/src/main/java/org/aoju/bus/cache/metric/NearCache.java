@@ -0,0 +1,183 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.cache.metric;
+
+import org.aoju.bus.cache.CacheX;
+import org.aoju.bus.cache.Hitting;
+import org.aoju.bus.cache.magic.CacheExpire;
+import org.aoju.bus.cache.support.Histogram;
+
+import java.util.*;
+
+/**
+ * 两级缓存支持,
+ * 在远程缓存(L2)之前放置一个本地缓存(L1), L1未命中时读取L2并回填L1;
+ * 写入或移除缓存时通过{@link InvalidChannel}通知其他节点同步移除其L1中的旧内容,
+ * L1的有效期不超过{@code localExpire}, 以限制通知丢失时的脏读时长
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+public class NearCache implements CacheX {
+
+    private final CacheX local;
+
+    private final CacheX remote;
+
+    private final InvalidChannel channel;
+
+    private final long localExpire;
+
+    private final Hitting hitting;
+
+    private final String localPattern;
+
+    private final String remotePattern;
+
+    public NearCache(CacheX local, CacheX remote, InvalidChannel channel) {
+        this(local, remote, channel, CacheExpire.ONE_MIN, null, null);
+    }
+
+    /**
+     * @param local       本地缓存(L1)
+     * @param remote      远程缓存(L2)
+     * @param channel     失效通知通道
+     * @param localExpire L1最长有效期,单位毫秒
+     * @param name        缓存名称,用于命中率统计分组
+     * @param hitting     命中率统计,为null时不统计
+     */
+    public NearCache(CacheX local, CacheX remote, InvalidChannel channel,
+                     long localExpire, String name, Hitting hitting) {
+        this.local = local;
+        this.remote = remote;
+        this.channel = channel;
+        this.localExpire = localExpire;
+        this.hitting = hitting;
+        this.localPattern = name + ":L1";
+        this.remotePattern = name + ":L2";
+
+        this.channel.subscribe(this.local::remove);
+    }
+
+    @Override
+    public Object read(String key) {
+        Object value = local.read(key);
+        doRecord(localPattern, value == null ? 0 : 1, 1);
+        if (value != null) {
+            return value;
+        }
+
+        value = remote.read(key);
+        doRecord(remotePattern, value == null ? 0 : 1, 1);
+        if (value != null) {
+            local.write(key, value, localExpire);
+        }
+        return value;
+    }
+
+    @Override
+    public Map<String, Object> read(Collection<String> keys) {
+        Map<String, Object> result = new HashMap<>(keys.size());
+        List<String> missKeys = new ArrayList<>();
+        Map<String, Object> localMap = local.read(keys);
+        for (String key : keys) {
+            Object value = localMap.get(key);
+            if (value == null) {
+                missKeys.add(key);
+            } else {
+                result.put(key, value);
+            }
+        }
+        doRecord(localPattern, result.size(), keys.size());
+        if (missKeys.isEmpty()) {
+            return result;
+        }
+
+        Map<String, Object> remoteMap = new HashMap<>(missKeys.size());
+        remote.read(missKeys).forEach((key, value) -> {
+            if (value != null) {
+                remoteMap.put(key, value);
+            }
+        });
+        doRecord(remotePattern, remoteMap.size(), missKeys.size());
+        if (!remoteMap.isEmpty()) {
+            local.write(remoteMap, localExpire);
+            result.putAll(remoteMap);
+        }
+        return result;
+    }
+
+    @Override
+    public void write(String key, Object value, long expire) {
+        remote.write(key, value, expire);
+        local.write(key, value, localExpire(expire));
+        channel.publish(key);
+    }
+
+    @Override
+    public void write(Map<String, Object> keyValueMap, long expire) {
+        remote.write(keyValueMap, expire);
+        local.write(keyValueMap, localExpire(expire));
+        if (!keyValueMap.isEmpty()) {
+            channel.publish(keyValueMap.keySet().toArray(new String[0]));
+        }
+    }
+
+    @Override
+    public void remove(String... keys) {
+        remote.remove(keys);
+        local.remove(keys);
+        channel.publish(keys);
+    }
+
+    @Override
+    public void clear() {
+        local.clear();
+        remote.clear();
+    }
+
+    @Override
+    public long evictionCount() {
+        return local.evictionCount() + remote.evictionCount();
+    }
+
+    @Override
+    public Histogram valueSize() {
+        return remote.valueSize();
+    }
+
+    private long localExpire(long expire) {
+        return expire == CacheExpire.FOREVER ? localExpire : Math.min(expire, localExpire);
+    }
+
+    private void doRecord(String pattern, int hitCount, int totalCount) {
+        if (this.hitting != null) {
+            this.hitting.hitIncr(pattern, hitCount);
+            this.hitting.reqIncr(pattern, totalCount);
+        }
+    }
+
+}
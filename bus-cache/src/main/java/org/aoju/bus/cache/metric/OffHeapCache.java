@@ -0,0 +1,550 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.cache.metric;
+
+import org.aoju.bus.cache.CacheX;
+import org.aoju.bus.cache.magic.CacheExpire;
+import org.aoju.bus.cache.serialize.BaseSerializer;
+import org.aoju.bus.cache.serialize.Hessian2Serializer;
+import org.aoju.bus.cache.support.Histogram;
+import org.aoju.bus.logger.Logger;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 堆外缓存支持
+ * 序列化后的内容保存在直接内存或内存映射文件中, 堆内仅保留索引, 适合缓存体积较大的内容;
+ * 内存按分段加锁, 每段按固定大小的页划分给不同规格(slab class)的块, 同一规格内按LRU淘汰,
+ * 某规格无可用页时从页数最多的规格回收一页
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+public class OffHeapCache implements CacheX {
+
+    /**
+     * 默认页大小, 同时也是可缓存内容的最大字节数
+     */
+    private static final int DEFAULT_PAGE_SIZE = 1 << 20;
+    /**
+     * 单个分段的最大容量
+     */
+    private static final long MAX_SEGMENT_SIZE = 1L << 30;
+    /**
+     * 最小块大小及相邻规格的增长系数
+     */
+    private static final int MIN_CHUNK_SIZE = 64;
+    private static final double GROWTH_FACTOR = 1.25;
+
+    private final BaseSerializer serializer;
+    private final int pageSize;
+    private final int[] chunkSizes;
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final RandomAccessFile file;
+
+    private final Histogram valueSize = new Histogram();
+
+    /**
+     * 使用直接内存
+     *
+     * @param capacity 总容量(字节)
+     */
+    public OffHeapCache(long capacity) {
+        this(capacity, new Hessian2Serializer());
+    }
+
+    public OffHeapCache(long capacity, BaseSerializer serializer) {
+        this(capacity, DEFAULT_PAGE_SIZE, serializer, null);
+    }
+
+    /**
+     * @param capacity   总容量(字节)
+     * @param pageSize   页大小(字节), 超出该大小的内容不缓存
+     * @param serializer 序列化
+     * @param file       内存映射文件, 为null时使用直接内存
+     */
+    public OffHeapCache(long capacity, int pageSize, BaseSerializer serializer, File file) {
+        if (pageSize < MIN_CHUNK_SIZE || capacity < pageSize) {
+            throw new IllegalArgumentException("capacity must be greater than pageSize, and pageSize at least " + MIN_CHUNK_SIZE);
+        }
+        this.serializer = serializer;
+        this.pageSize = pageSize;
+        this.chunkSizes = chunkSizes(pageSize);
+
+        int count = ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors() * 2);
+        while (count > 1 && capacity / count < pageSize * 4L) {
+            count >>= 1;
+        }
+        while (capacity / count > MAX_SEGMENT_SIZE) {
+            count <<= 1;
+        }
+        int pages = (int) (capacity / count / pageSize);
+        long segmentSize = (long) pages * pageSize;
+
+        this.segments = new Segment[count];
+        this.segmentMask = count - 1;
+        try {
+            if (null == file) {
+                this.file = null;
+                for (int i = 0; i < count; i++) {
+                    segments[i] = new Segment(ByteBuffer.allocateDirect((int) segmentSize), pages);
+                }
+            } else {
+                this.file = new RandomAccessFile(file, "rw");
+                this.file.setLength(segmentSize * count);
+                FileChannel channel = this.file.getChannel();
+                for (int i = 0; i < count; i++) {
+                    segments[i] = new Segment(channel.map(FileChannel.MapMode.READ_WRITE, i * segmentSize, segmentSize), pages);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("map cache file failed: " + file, e);
+        }
+    }
+
+    private static int[] chunkSizes(int pageSize) {
+        List<Integer> sizes = new ArrayList<>();
+        int size = MIN_CHUNK_SIZE;
+        while (size < pageSize) {
+            sizes.add(size);
+            size = Math.max(size + 8, (int) (size * GROWTH_FACTOR) + 7 & ~7);
+        }
+        sizes.add(pageSize);
+        return sizes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int ceilingPowerOfTwo(int x) {
+        return 1 << -Integer.numberOfLeadingZeros(Math.max(x, 2) - 1);
+    }
+
+    private static void release(ByteBuffer buffer) {
+        if (null == buffer || !buffer.isDirect()) {
+            return;
+        }
+        try {
+            Method cleaner = buffer.getClass().getMethod("cleaner");
+            cleaner.setAccessible(true);
+            Object instance = cleaner.invoke(buffer);
+            if (null != instance) {
+                instance.getClass().getMethod("clean").invoke(instance);
+            }
+        } catch (Exception e) {
+            // 无法主动释放时交由GC回收
+            Logger.debug("release off-heap buffer failed, leave it to gc.", e);
+        }
+    }
+
+    @Override
+    public Object read(String key) {
+        return serializer.deserialize(segmentFor(key).get(key, System.currentTimeMillis()));
+    }
+
+    @Override
+    public Map<String, Object> read(Collection<String> keys) {
+        Map<String, Object> result = new HashMap<>(keys.size());
+        long now = System.currentTimeMillis();
+        for (String key : keys) {
+            byte[] bytes = segmentFor(key).get(key, now);
+            if (null != bytes) {
+                result.put(key, serializer.deserialize(bytes));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void write(String key, Object value, long expire) {
+        long now = System.currentTimeMillis();
+        segmentFor(key).put(key, serialize(value), expireAt(expire, now));
+    }
+
+    @Override
+    public void write(Map<String, Object> keyValueMap, long expire) {
+        long expireAt = expireAt(expire, System.currentTimeMillis());
+        keyValueMap.forEach((key, value) -> segmentFor(key).put(key, serialize(value), expireAt));
+    }
+
+    @Override
+    public void remove(String... keys) {
+        for (String key : keys) {
+            segmentFor(key).remove(key);
+        }
+    }
+
+    /**
+     * 清空全部缓存内容, 已分配的内存保留复用
+     */
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public long evictionCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            count += segment.evictions;
+        }
+        return count;
+    }
+
+    @Override
+    public Histogram valueSize() {
+        return valueSize;
+    }
+
+    private byte[] serialize(Object value) {
+        byte[] bytes = serializer.serialize(value);
+        if (bytes != null) {
+            valueSize.record(bytes.length);
+        }
+        return bytes;
+    }
+
+    /**
+     * 当前缓存条目数(含尚未清理的过期条目)
+     *
+     * @return 条目数
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * 释放全部堆外内存, 释放后不可再使用
+     */
+    @PreDestroy
+    public void tearDown() {
+        for (Segment segment : segments) {
+            segment.close();
+        }
+        if (null != file) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private long expireAt(long expire, long now) {
+        return expire > CacheExpire.FOREVER ? now + expire : Long.MAX_VALUE;
+    }
+
+    private Segment segmentFor(String key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & segmentMask];
+    }
+
+    private int slabOf(int length) {
+        int index = Arrays.binarySearch(chunkSizes, length);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static final class Entry {
+
+        final String key;
+        final int slab;
+        final int offset;
+        final int length;
+        final long expireAt;
+        Entry prev;
+        Entry next;
+
+        Entry(String key, int slab, int offset, int length, long expireAt) {
+            this.key = key;
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+            this.expireAt = expireAt;
+        }
+
+        Entry() {
+            this(null, -1, -1, 0, 0);
+            this.prev = this;
+            this.next = this;
+        }
+    }
+
+    /**
+     * 单一规格的块: 空闲块栈及按访问顺序排列的条目(头部最新)
+     */
+    private static final class SlabClass {
+
+        final int chunkSize;
+        final Entry head = new Entry();
+        int[] free = new int[16];
+        int freeSize;
+        int pages;
+
+        SlabClass(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        void push(int offset) {
+            if (freeSize == free.length) {
+                free = Arrays.copyOf(free, free.length << 1);
+            }
+            free[freeSize++] = offset;
+        }
+
+        int pop() {
+            return free[--freeSize];
+        }
+
+        Entry eldest() {
+            return head.prev == head ? null : head.prev;
+        }
+
+        void linkFirst(Entry entry) {
+            entry.prev = head;
+            entry.next = head.next;
+            head.next.prev = entry;
+            head.next = entry;
+        }
+
+        void unlink(Entry entry) {
+            entry.prev.next = entry.next;
+            entry.next.prev = entry.prev;
+            entry.prev = null;
+            entry.next = null;
+        }
+
+        void reset() {
+            head.prev = head;
+            head.next = head;
+            freeSize = 0;
+            pages = 0;
+        }
+    }
+
+    private final class Segment {
+
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<String, Entry> index = new HashMap<>();
+        final SlabClass[] classes = new SlabClass[chunkSizes.length];
+        final int pages;
+        ByteBuffer memory;
+        int nextPage;
+        volatile long evictions;
+
+        Segment(ByteBuffer memory, int pages) {
+            this.memory = memory;
+            this.pages = pages;
+            for (int i = 0; i < classes.length; i++) {
+                classes[i] = new SlabClass(chunkSizes[i]);
+            }
+        }
+
+        byte[] get(String key, long now) {
+            lock.lock();
+            try {
+                Entry entry = index.get(key);
+                if (null == entry) {
+                    return null;
+                }
+                if (entry.expireAt <= now) {
+                    evict(entry);
+                    return null;
+                }
+                SlabClass slab = classes[entry.slab];
+                slab.unlink(entry);
+                slab.linkFirst(entry);
+
+                byte[] bytes = new byte[entry.length];
+                memory.clear();
+                memory.position(entry.offset);
+                memory.get(bytes);
+                return bytes;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(String key, byte[] bytes, long expireAt) {
+            lock.lock();
+            try {
+                Entry old = index.get(key);
+                if (null != old) {
+                    free(old);
+                }
+                if (null == bytes || bytes.length > pageSize) {
+                    return;
+                }
+
+                int slab = slabOf(bytes.length);
+                int offset = allocate(slab);
+                if (offset < 0) {
+                    return;
+                }
+                memory.clear();
+                memory.position(offset);
+                memory.put(bytes);
+
+                Entry entry = new Entry(key, slab, offset, bytes.length, expireAt);
+                classes[slab].linkFirst(entry);
+                index.put(key, entry);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(String key) {
+            lock.lock();
+            try {
+                Entry entry = index.get(key);
+                if (null != entry) {
+                    free(entry);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return index.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                index.clear();
+                for (SlabClass slab : classes) {
+                    slab.reset();
+                }
+                nextPage = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                clear();
+                release(memory);
+                memory = ByteBuffer.allocate(0);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 分配块: 优先使用空闲块, 其次划分未使用的页, 再次淘汰同规格最久未访问的条目, 最后从其他规格回收一页
+         */
+        private int allocate(int slab) {
+            SlabClass target = classes[slab];
+            if (target.freeSize == 0) {
+                if (nextPage < pages && memory.capacity() > 0) {
+                    carve(target, nextPage++);
+                } else if (null != target.eldest()) {
+                    evict(target.eldest());
+                } else {
+                    int page = reclaim(target);
+                    if (page < 0) {
+                        return -1;
+                    }
+                    carve(target, page);
+                }
+            }
+            return target.pop();
+        }
+
+        private void carve(SlabClass slab, int page) {
+            int base = page * pageSize;
+            for (int offset = base + pageSize - slab.chunkSize; offset >= base; offset -= slab.chunkSize) {
+                slab.push(offset);
+            }
+            slab.pages++;
+        }
+
+        // 从页数最多的规格中回收其最久未访问条目所在的页
+        private int reclaim(SlabClass target) {
+            SlabClass victim = null;
+            for (SlabClass slab : classes) {
+                if (slab != target && slab.pages > 0 && (null == victim || slab.pages > victim.pages)) {
+                    victim = slab;
+                }
+            }
+            if (null == victim) {
+                return -1;
+            }
+
+            Entry eldest = victim.eldest();
+            int page = (null != eldest ? eldest.offset : victim.free[victim.freeSize - 1]) / pageSize;
+            for (Entry entry = victim.head.next; entry != victim.head; ) {
+                Entry next = entry.next;
+                if (entry.offset / pageSize == page) {
+                    evict(entry);
+                }
+                entry = next;
+            }
+
+            int size = 0;
+            for (int i = 0; i < victim.freeSize; i++) {
+                if (victim.free[i] / pageSize != page) {
+                    victim.free[size++] = victim.free[i];
+                }
+            }
+            victim.freeSize = size;
+            victim.pages--;
+            return page;
+        }
+
+        private void evict(Entry entry) {
+            free(entry);
+            evictions++;
+        }
+
+        private void free(Entry entry) {
+            index.remove(entry.key);
+            SlabClass slab = classes[entry.slab];
+            slab.unlink(entry);
+            slab.push(entry.offset);
+        }
+    }
+
+}
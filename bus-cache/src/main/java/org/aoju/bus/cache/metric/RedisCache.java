@@ -28,12 +28,14 @@ import org.aoju.bus.cache.CacheX;
 import org.aoju.bus.cache.magic.CacheExpire;
 import org.aoju.bus.cache.serialize.BaseSerializer;
 import org.aoju.bus.cache.serialize.Hessian2Serializer;
+import org.aoju.bus.cache.support.Histogram;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.Pipeline;
 
 import javax.annotation.PreDestroy;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +53,8 @@ public class RedisCache implements CacheX {
 
     private JedisPool jedisPool;
 
+    private final Histogram valueSize = new Histogram();
+
     public RedisCache(JedisPool jedisPool) {
         this(jedisPool, new Hessian2Serializer());
     }
@@ -60,12 +64,12 @@ public class RedisCache implements CacheX {
         this.serializer = serializer;
     }
 
-    static byte[][] toByteArray(Map<String, Object> keyValueMap, BaseSerializer serializer) {
+    private byte[][] toByteArray(Map<String, Object> keyValueMap) {
         byte[][] kvs = new byte[keyValueMap.size() * 2][];
         int index = 0;
         for (Map.Entry<String, Object> entry : keyValueMap.entrySet()) {
             kvs[index++] = entry.getKey().getBytes();
-            kvs[index++] = serializer.serialize(entry.getValue());
+            kvs[index++] = serialize(entry.getValue());
         }
         return kvs;
     }
@@ -100,7 +104,7 @@ public class RedisCache implements CacheX {
     @Override
     public void write(String key, Object value, long expire) {
         try (Jedis client = jedisPool.getResource()) {
-            byte[] bytesValue = serializer.serialize(value);
+            byte[] bytesValue = serialize(value);
             if (expire == CacheExpire.FOREVER) {
                 client.set(key.getBytes(), bytesValue);
             } else {
@@ -111,6 +115,10 @@ public class RedisCache implements CacheX {
 
     @Override
     public Map<String, Object> read(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
         try (Jedis client = jedisPool.getResource()) {
             List<byte[]> bytesValues = client.mget(toByteArray(keys));
             return toObjectMap(keys, bytesValues, this.serializer);
@@ -119,8 +127,12 @@ public class RedisCache implements CacheX {
 
     @Override
     public void write(Map<String, Object> keyValueMap, long expire) {
+        if (keyValueMap.isEmpty()) {
+            return;
+        }
+
         try (Jedis client = jedisPool.getResource()) {
-            byte[][] kvs = toByteArray(keyValueMap, serializer);
+            byte[][] kvs = toByteArray(keyValueMap);
             if (expire == CacheExpire.FOREVER) {
                 client.mset(kvs);
             } else {
@@ -135,6 +147,10 @@ public class RedisCache implements CacheX {
 
     @Override
     public void remove(String... keys) {
+        if (keys.length == 0) {
+            return;
+        }
+
         try (Jedis client = jedisPool.getResource()) {
             client.del(keys);
         }
@@ -145,6 +161,19 @@ public class RedisCache implements CacheX {
         tearDown();
     }
 
+    @Override
+    public Histogram valueSize() {
+        return valueSize;
+    }
+
+    private byte[] serialize(Object value) {
+        byte[] bytes = serializer.serialize(value);
+        if (bytes != null) {
+            valueSize.record(bytes.length);
+        }
+        return bytes;
+    }
+
     @PreDestroy
     public void tearDown() {
         if (jedisPool != null && !jedisPool.isClosed()) {
@@ -28,14 +28,29 @@ import org.aoju.bus.cache.CacheX;
 import org.aoju.bus.cache.magic.CacheExpire;
 import org.aoju.bus.cache.serialize.BaseSerializer;
 import org.aoju.bus.cache.serialize.Hessian2Serializer;
+import org.aoju.bus.cache.support.Histogram;
+import org.aoju.bus.logger.Logger;
+import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.JedisClusterCRC16;
+import redis.clients.util.SafeEncoder;
 
 import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Redis 集群缓存支持
+ * 批量读写按槽位所在节点分组, 每个节点使用一次pipeline, 多个节点之间并行执行;
+ * 槽位分布发生变化时(MOVED等), 受影响的key退回由{@link JedisCluster}逐个处理并刷新槽位信息
  *
  * @author Kimi Liu
  * @version 5.9.8
@@ -43,10 +58,29 @@ import java.util.*;
  */
 public class RedisClusterCache implements CacheX {
 
+    private static final int SLOTS = 16384;
+
+    private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger number = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setName("cache:cluster-pipeline-" + number.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
     private BaseSerializer serializer;
 
     private JedisCluster jedisCluster;
 
+    // 槽位 -> 主节点连接池, 为null时需重新加载
+    private volatile JedisPool[] slots;
+
+    private final Histogram valueSize = new Histogram();
+
     public RedisClusterCache(JedisCluster jedisCluster) {
         this(jedisCluster, new Hessian2Serializer());
     }
@@ -56,35 +90,6 @@ public class RedisClusterCache implements CacheX {
         this.serializer = serializer;
     }
 
-    static byte[][] toByteArray(Map<String, Object> keyValueMap, BaseSerializer serializer) {
-        byte[][] kvs = new byte[keyValueMap.size() * 2][];
-        int index = 0;
-        for (Map.Entry<String, Object> entry : keyValueMap.entrySet()) {
-            kvs[index++] = entry.getKey().getBytes();
-            kvs[index++] = serializer.serialize(entry.getValue());
-        }
-        return kvs;
-    }
-
-    static byte[][] toByteArray(Collection<String> keys) {
-        byte[][] array = new byte[keys.size()][];
-        int index = 0;
-        for (String str : keys) {
-            array[index++] = str.getBytes();
-        }
-        return array;
-    }
-
-    static Map<String, Object> toObjectMap(Collection<String> keys, List<byte[]> bytesValues, BaseSerializer serializer) {
-        int index = 0;
-        Map<String, Object> result = new HashMap<>(keys.size());
-        for (String key : keys) {
-            Object value = serializer.deserialize(bytesValues.get(index++));
-            result.put(key, value);
-        }
-        return result;
-    }
-
     @Override
     public Object read(String key) {
         return serializer.deserialize(jedisCluster.get(key.getBytes()));
@@ -92,7 +97,7 @@ public class RedisClusterCache implements CacheX {
 
     @Override
     public void write(String key, Object value, long expire) {
-        byte[] bytes = serializer.serialize(value);
+        byte[] bytes = serialize(value);
         if (expire == CacheExpire.FOREVER) {
             jedisCluster.set(key.getBytes(), bytes);
         } else {
@@ -106,8 +111,23 @@ public class RedisClusterCache implements CacheX {
             return Collections.emptyMap();
         }
 
-        List<byte[]> bytesValues = jedisCluster.mget(toByteArray(keys));
-        return toObjectMap(keys, bytesValues, this.serializer);
+        Map<String, Object> result = new HashMap<>(keys.size());
+        execute(keys, (pipeline, nodeKeys) -> {
+            for (String key : nodeKeys) {
+                pipeline.get(key.getBytes());
+            }
+        }, (key, response) -> {
+            Object value = serializer.deserialize((byte[]) response);
+            synchronized (result) {
+                result.put(key, value);
+            }
+        }, key -> {
+            Object value = read(key);
+            synchronized (result) {
+                result.put(key, value);
+            }
+        });
+        return result;
     }
 
     @Override
@@ -116,13 +136,18 @@ public class RedisClusterCache implements CacheX {
             return;
         }
 
-        if (expire == CacheExpire.FOREVER) {
-            jedisCluster.mset(toByteArray(keyValueMap, this.serializer));
-        } else {
-            for (Map.Entry<String, Object> entry : keyValueMap.entrySet()) {
-                write(entry.getKey(), entry.getValue(), expire);
+        Map<String, byte[]> bytesMap = new HashMap<>(keyValueMap.size());
+        keyValueMap.forEach((key, value) -> bytesMap.put(key, serialize(value)));
+        execute(keyValueMap.keySet(), (pipeline, nodeKeys) -> {
+            for (String key : nodeKeys) {
+                if (expire == CacheExpire.FOREVER) {
+                    pipeline.set(key.getBytes(), bytesMap.get(key));
+                } else {
+                    pipeline.psetex(key.getBytes(), expire, bytesMap.get(key));
+                }
             }
-        }
+        }, (key, response) -> {
+        }, key -> write(key, keyValueMap.get(key), expire));
     }
 
     @Override
@@ -130,7 +155,12 @@ public class RedisClusterCache implements CacheX {
         if (keys.length == 0) {
             return;
         }
-        jedisCluster.del(keys);
+        execute(Arrays.asList(keys), (pipeline, nodeKeys) -> {
+            for (String key : nodeKeys) {
+                pipeline.del(key.getBytes());
+            }
+        }, (key, response) -> {
+        }, key -> jedisCluster.del(key));
     }
 
     @Override
@@ -138,6 +168,19 @@ public class RedisClusterCache implements CacheX {
         tearDown();
     }
 
+    @Override
+    public Histogram valueSize() {
+        return valueSize;
+    }
+
+    private byte[] serialize(Object value) {
+        byte[] bytes = serializer.serialize(value);
+        if (bytes != null) {
+            valueSize.record(bytes.length);
+        }
+        return bytes;
+    }
+
     @PreDestroy
     public void tearDown() {
         if (this.jedisCluster != null) {
@@ -149,4 +192,122 @@ public class RedisClusterCache implements CacheX {
         }
     }
 
+    /**
+     * 按节点分组执行pipeline, 单个节点时在当前线程执行
+     *
+     * @param keys     keys
+     * @param commands 向pipeline写入命令, 每个key对应一条命令
+     * @param handler  处理每个key的应答
+     * @param fallback 分组执行失败或应答为重定向等错误时, 对单个key的处理
+     */
+    private void execute(Collection<String> keys, Commands commands, Handler handler, Fallback fallback) {
+        Map<JedisPool, List<String>> groups = groupByNode(keys);
+        if (groups.size() == 1) {
+            Map.Entry<JedisPool, List<String>> group = groups.entrySet().iterator().next();
+            executeOnNode(group.getKey(), group.getValue(), commands, handler, fallback);
+            return;
+        }
+
+        CompletableFuture<?>[] futures = groups.entrySet().stream()
+                .map(group -> CompletableFuture.runAsync(
+                        () -> executeOnNode(group.getKey(), group.getValue(), commands, handler, fallback), executor))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(futures).join();
+    }
+
+    private void executeOnNode(JedisPool pool, List<String> keys, Commands commands, Handler handler, Fallback fallback) {
+        List<Object> responses;
+        if (pool == null) {
+            responses = null;
+        } else {
+            try (Jedis client = pool.getResource()) {
+                Pipeline pipeline = client.pipelined();
+                commands.accept(pipeline, keys);
+                responses = pipeline.syncAndReturnAll();
+            } catch (Exception e) {
+                Logger.warn("redis cluster pipeline failed, fallback to single key commands.", e);
+                responses = null;
+            }
+        }
+
+        boolean stale = false;
+        for (int i = 0; i < keys.size(); i++) {
+            Object response = responses == null ? null : responses.get(i);
+            if (responses == null || response instanceof JedisDataException) {
+                stale = true;
+                fallback.accept(keys.get(i));
+            } else {
+                handler.accept(keys.get(i), response);
+            }
+        }
+        if (stale) {
+            this.slots = null;
+        }
+    }
+
+    private Map<JedisPool, List<String>> groupByNode(Collection<String> keys) {
+        JedisPool[] slots = this.slots;
+        if (slots == null) {
+            slots = renewSlots();
+        }
+
+        Map<JedisPool, List<String>> groups = new HashMap<>();
+        List<String> unknown = new ArrayList<>();
+        for (String key : keys) {
+            JedisPool pool = slots == null ? null : slots[JedisClusterCRC16.getSlot(key)];
+            if (pool == null) {
+                unknown.add(key);
+            } else {
+                groups.computeIfAbsent(pool, k -> new ArrayList<>()).add(key);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            // 槽位未知的key由fallback逐个处理
+            groups.put(null, unknown);
+        }
+        return groups;
+    }
+
+    // 从任一可用节点读取CLUSTER SLOTS, 建立槽位到主节点连接池的映射
+    @SuppressWarnings("unchecked")
+    private JedisPool[] renewSlots() {
+        Map<String, JedisPool> nodes = jedisCluster.getClusterNodes();
+        for (JedisPool node : nodes.values()) {
+            try (Jedis client = node.getResource()) {
+                JedisPool[] renewed = new JedisPool[SLOTS];
+                for (Object slotInfo : client.clusterSlots()) {
+                    List<Object> info = (List<Object>) slotInfo;
+                    List<Object> master = (List<Object>) info.get(2);
+                    String nodeKey = SafeEncoder.encode((byte[]) master.get(0)) + ":" + master.get(1);
+                    JedisPool pool = nodes.get(nodeKey);
+                    int start = ((Long) info.get(0)).intValue();
+                    int end = ((Long) info.get(1)).intValue();
+                    for (int slot = start; slot <= end; slot++) {
+                        renewed[slot] = pool;
+                    }
+                }
+                this.slots = renewed;
+                return renewed;
+            } catch (Exception e) {
+                Logger.warn("load redis cluster slots failed, try next node.", e);
+            }
+        }
+        return null;
+    }
+
+    @FunctionalInterface
+    private interface Commands {
+        void accept(Pipeline pipeline, List<String> keys);
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void accept(String key, Object response);
+    }
+
+    @FunctionalInterface
+    private interface Fallback {
+        void accept(String key);
+    }
+
 }
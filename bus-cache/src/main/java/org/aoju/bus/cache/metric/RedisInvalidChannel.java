@@ -0,0 +1,131 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.cache.metric;
+
+import org.aoju.bus.core.lang.Symbol;
+import org.aoju.bus.logger.Logger;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 基于Redis发布/订阅的失效通知通道,
+ * 消息中携带发送节点标识, 节点不会处理自己发出的通知
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+public class RedisInvalidChannel implements InvalidChannel {
+
+    private static final String SEPARATOR = Symbol.LF;
+
+    private final String node = UUID.randomUUID().toString();
+
+    private final List<Consumer<String[]>> listeners = new CopyOnWriteArrayList<>();
+
+    private final JedisPool jedisPool;
+
+    private final String topic;
+
+    private final JedisPubSub pubSub = new JedisPubSub() {
+        @Override
+        public void onMessage(String channel, String message) {
+            String[] parts = message.split(SEPARATOR);
+            if (node.equals(parts[0])) {
+                return;
+            }
+            String[] keys = Arrays.copyOfRange(parts, 1, parts.length);
+            for (Consumer<String[]> listener : listeners) {
+                listener.accept(keys);
+            }
+        }
+    };
+
+    private volatile boolean isShutdown = false;
+
+    public RedisInvalidChannel(JedisPool jedisPool) {
+        this(jedisPool, "bus:cache:invalid");
+    }
+
+    public RedisInvalidChannel(JedisPool jedisPool, String topic) {
+        this.jedisPool = jedisPool;
+        this.topic = topic;
+
+        Thread thread = new Thread(this::listen);
+        thread.setName("cache:invalid-subscriber");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void publish(String... keys) {
+        try (Jedis client = jedisPool.getResource()) {
+            client.publish(topic, node + SEPARATOR + String.join(SEPARATOR, keys));
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String[]> listener) {
+        listeners.add(listener);
+    }
+
+    // subscribe会阻塞当前线程, 连接断开后重新订阅
+    private void listen() {
+        while (!isShutdown) {
+            try (Jedis client = jedisPool.getResource()) {
+                client.subscribe(pubSub, topic);
+            } catch (Exception e) {
+                if (isShutdown) {
+                    return;
+                }
+                Logger.error("subscribe cache invalid channel [{}] failed, retry later.", topic, e);
+                try {
+                    TimeUnit.SECONDS.sleep(1);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void tearDown() {
+        isShutdown = true;
+        if (pubSub.isSubscribed()) {
+            pubSub.unsubscribe();
+        }
+    }
+
+}
@@ -0,0 +1,647 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.cache.metric;
+
+import org.aoju.bus.cache.CacheX;
+import org.aoju.bus.cache.magic.CacheExpire;
+import org.aoju.bus.core.toolkit.MapKit;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有界本地缓存支持
+ * 按条目数或权重限定容量,采用W-TinyLFU策略进行准入/淘汰:
+ * 新数据先进入窗口LRU,溢出后与主区(SLRU)的淘汰候选按访问频率比较,频率高者留存;
+ * 过期由时间轮驱动,读操作不加锁,访问记录先写入分段环形缓冲区,由维护任务批量回放
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+public class TinyLfuCache implements CacheX {
+
+    /**
+     * 单个读缓冲区的槽位数(2的幂)
+     */
+    private static final int READ_BUFFER_SIZE = 64;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+    /**
+     * 每记录多少次访问尝试回放一次读缓冲区
+     */
+    private static final int READ_BUFFER_DRAIN_THRESHOLD = 32;
+    /**
+     * 读缓冲区分段数
+     */
+    private static final int READ_BUFFER_STRIPES = ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors());
+
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+    private static final byte RETIRED = 3;
+
+    private final ConcurrentHashMap<String, Node> data;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final Weigher weigher;
+    private final long maximum;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+
+    private final FrequencySketch sketch;
+    private final AccessOrder window = new AccessOrder();
+    private final AccessOrder probation = new AccessOrder();
+    private final AccessOrder protect = new AccessOrder();
+    private final TimerWheel timerWheel;
+    private final ReadBuffer[] readBuffers;
+
+    private long weightedSize;
+    private long windowWeightedSize;
+    private long protectedWeightedSize;
+    private volatile long evictionCount;
+
+    /**
+     * 按条目数限定容量
+     *
+     * @param size 最大条目数
+     */
+    public TinyLfuCache(long size) {
+        this(size, (key, value) -> 1);
+    }
+
+    /**
+     * 按权重限定容量
+     *
+     * @param weight  最大权重
+     * @param weigher 权重计算
+     */
+    public TinyLfuCache(long weight, Weigher weigher) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("maximum must be positive");
+        }
+        this.maximum = weight;
+        this.weigher = weigher;
+        this.windowMaximum = Math.max(1, weight / 100);
+        this.protectedMaximum = (long) ((weight - windowMaximum) * 0.8);
+        this.data = new ConcurrentHashMap<>((int) Math.min(weight, 1 << 16));
+        this.sketch = new FrequencySketch(weight);
+        this.timerWheel = new TimerWheel(System.nanoTime());
+        this.readBuffers = new ReadBuffer[READ_BUFFER_STRIPES];
+        for (int i = 0; i < READ_BUFFER_STRIPES; i++) {
+            this.readBuffers[i] = new ReadBuffer();
+        }
+    }
+
+    private static int ceilingPowerOfTwo(int x) {
+        return 1 << -Integer.numberOfLeadingZeros(Math.max(x, 2) - 1);
+    }
+
+    @Override
+    public Object read(String key) {
+        Node node = data.get(key);
+        if (null == node) {
+            return null;
+        }
+        Object value = node.value;
+        if (node.isExpired(System.nanoTime())) {
+            return null;
+        }
+        afterRead(node);
+        return value;
+    }
+
+    @Override
+    public Map<String, Object> read(Collection<String> keys) {
+        Map<String, Object> map = new HashMap<>(keys.size());
+        for (String key : keys) {
+            Object value = read(key);
+            if (null != value) {
+                map.put(key, value);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * 设置缓存
+     *
+     * @param key    缓存KEY
+     * @param value  缓存内容
+     * @param expire 指定缓存过期时间(毫秒),{@link CacheExpire#FOREVER}表示永不过期
+     */
+    @Override
+    public void write(String key, Object value, long expire) {
+        if (null == value) {
+            remove(key);
+            return;
+        }
+        int weight = weigher.weigh(key, value);
+        evictionLock.lock();
+        try {
+            long now = System.nanoTime();
+            put(key, value, weight, expire, now);
+            maintenance(now);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void write(Map<String, Object> keyValueMap, long expire) {
+        if (MapKit.isEmpty(keyValueMap)) {
+            return;
+        }
+        evictionLock.lock();
+        try {
+            long now = System.nanoTime();
+            for (Map.Entry<String, Object> entry : keyValueMap.entrySet()) {
+                if (null == entry.getValue()) {
+                    retire(data.get(entry.getKey()));
+                } else {
+                    put(entry.getKey(), entry.getValue(), weigher.weigh(entry.getKey(), entry.getValue()), expire, now);
+                }
+            }
+            maintenance(now);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(String... keys) {
+        evictionLock.lock();
+        try {
+            for (String key : keys) {
+                retire(data.get(key));
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 回放访问记录并清理过期的缓存
+     */
+    @Override
+    public void clear() {
+        evictionLock.lock();
+        try {
+            maintenance(System.nanoTime());
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 当前缓存条目数(含尚未清理的过期条目)
+     *
+     * @return 条目数
+     */
+    public long size() {
+        return data.size();
+    }
+
+    @Override
+    public long evictionCount() {
+        return evictionCount;
+    }
+
+    private void afterRead(Node node) {
+        ReadBuffer buffer = readBuffers[(int) Thread.currentThread().getId() & (READ_BUFFER_STRIPES - 1)];
+        if (buffer.offer(node) && evictionLock.tryLock()) {
+            try {
+                maintenance(System.nanoTime());
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void put(String key, Object value, int weight, long expire, long now) {
+        Node node = data.get(key);
+        if (weight > maximum) {
+            retire(node);
+            return;
+        }
+        long expireAt = expire > CacheExpire.FOREVER ? now + expire * 1_000_000L : Long.MAX_VALUE;
+        if (null == node) {
+            node = new Node(key, value, weight, expireAt);
+            data.put(key, node);
+            node.queue = WINDOW;
+            window.addLast(node);
+            windowWeightedSize += weight;
+            weightedSize += weight;
+        } else {
+            timerWheel.deschedule(node);
+            int delta = weight - node.weight;
+            node.value = value;
+            node.expireAt = expireAt;
+            node.weight = weight;
+            weightedSize += delta;
+            if (node.queue == WINDOW) {
+                windowWeightedSize += delta;
+            } else if (node.queue == PROTECTED) {
+                protectedWeightedSize += delta;
+            }
+            onAccess(node);
+        }
+        sketch.increment(key);
+        if (expireAt != Long.MAX_VALUE) {
+            timerWheel.schedule(node);
+        }
+    }
+
+    /**
+     * 维护任务,调用方须持有{@link #evictionLock}
+     */
+    private void maintenance(long now) {
+        for (ReadBuffer buffer : readBuffers) {
+            buffer.drainTo(this);
+        }
+        timerWheel.advance(now, this);
+        evictEntries();
+    }
+
+    private void onAccess(Node node) {
+        sketch.increment(node.key);
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToBack(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protect.addLast(node);
+                protectedWeightedSize += node.weight;
+                demoteFromProtected();
+                break;
+            case PROTECTED:
+                protect.moveToBack(node);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void demoteFromProtected() {
+        while (protectedWeightedSize > protectedMaximum) {
+            Node demoted = protect.pollFirst();
+            if (null == demoted) {
+                break;
+            }
+            protectedWeightedSize -= demoted.weight;
+            demoted.queue = PROBATION;
+            probation.addLast(demoted);
+        }
+    }
+
+    private void evictEntries() {
+        // 窗口溢出的条目移入主区,作为本轮的准入候选
+        Node candidate = null;
+        while (windowWeightedSize > windowMaximum) {
+            Node node = window.pollFirst();
+            if (null == node) {
+                break;
+            }
+            windowWeightedSize -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+            if (null == candidate) {
+                candidate = node;
+            }
+        }
+
+        while (weightedSize > maximum) {
+            Node victim = probation.peekFirst();
+            if (null == candidate || null == victim || victim == candidate) {
+                if (null == victim) {
+                    victim = null != protect.peekFirst() ? protect.peekFirst() : window.peekFirst();
+                }
+                if (null == victim) {
+                    break;
+                }
+                if (victim == candidate) {
+                    candidate = candidate.next == probation.head ? null : candidate.next;
+                }
+                evict(victim);
+                continue;
+            }
+            if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evict(victim);
+            } else {
+                Node next = candidate.next == probation.head ? null : candidate.next;
+                evict(candidate);
+                candidate = next;
+            }
+        }
+    }
+
+    /**
+     * 因容量或过期淘汰节点,调用方须持有{@link #evictionLock}
+     */
+    private void evict(Node node) {
+        if (null != node && node.queue != RETIRED) {
+            evictionCount++;
+        }
+        retire(node);
+    }
+
+    /**
+     * 将节点从缓存及全部队列中移除,调用方须持有{@link #evictionLock}
+     */
+    private void retire(Node node) {
+        if (null == node || node.queue == RETIRED) {
+            return;
+        }
+        data.remove(node.key, node);
+        switch (node.queue) {
+            case WINDOW:
+                window.remove(node);
+                windowWeightedSize -= node.weight;
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            case PROTECTED:
+                protect.remove(node);
+                protectedWeightedSize -= node.weight;
+                break;
+            default:
+                break;
+        }
+        weightedSize -= node.weight;
+        timerWheel.deschedule(node);
+        node.queue = RETIRED;
+    }
+
+    /**
+     * 权重计算
+     */
+    @FunctionalInterface
+    public interface Weigher {
+
+        /**
+         * 计算缓存条目的权重
+         *
+         * @param key   缓存KEY
+         * @param value 缓存内容
+         * @return 权重, 不小于0
+         */
+        int weigh(String key, Object value);
+
+    }
+
+    private static class Node {
+        final String key;
+        volatile Object value;
+        volatile long expireAt;
+        int weight;
+        byte queue;
+
+        Node prev;
+        Node next;
+        Node prevInWheel;
+        Node nextInWheel;
+
+        Node(String key, Object value, int weight, long expireAt) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.expireAt = expireAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - expireAt >= 0;
+        }
+    }
+
+    /**
+     * 访问顺序队列,以哨兵节点首尾相连
+     */
+    private static class AccessOrder {
+        final Node head = new Node(null, null, 0, Long.MAX_VALUE);
+
+        AccessOrder() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        Node peekFirst() {
+            return head.next == head ? null : head.next;
+        }
+
+        Node pollFirst() {
+            Node first = peekFirst();
+            if (null != first) {
+                remove(first);
+            }
+            return first;
+        }
+
+        void addLast(Node node) {
+            node.prev = head.prev;
+            node.next = head;
+            head.prev.next = node;
+            head.prev = node;
+        }
+
+        void remove(Node node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+        }
+
+        void moveToBack(Node node) {
+            if (head.prev != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+
+    /**
+     * 有损的访问记录缓冲区,写满时覆盖旧记录
+     */
+    private static class ReadBuffer {
+        final AtomicReferenceArray<Node> buffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        final AtomicLong writeCount = new AtomicLong();
+
+        /**
+         * @return 是否应当回放缓冲区
+         */
+        boolean offer(Node node) {
+            long index = writeCount.getAndIncrement();
+            buffer.lazySet((int) index & READ_BUFFER_MASK, node);
+            return (index & (READ_BUFFER_DRAIN_THRESHOLD - 1)) == READ_BUFFER_DRAIN_THRESHOLD - 1;
+        }
+
+        void drainTo(TinyLfuCache cache) {
+            for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+                Node node = buffer.getAndSet(i, null);
+                if (null != node && node.queue != RETIRED) {
+                    cache.onAccess(node);
+                }
+            }
+        }
+    }
+
+    /**
+     * 哈希时间轮,每格约1秒;维护时只扫描自上次推进以来经过的格子
+     */
+    private static class TimerWheel {
+        static final int SHIFT = 30;
+        static final int BUCKETS = 512;
+        static final int MASK = BUCKETS - 1;
+
+        final Node[] wheel = new Node[BUCKETS];
+        long lastTick;
+
+        TimerWheel(long now) {
+            for (int i = 0; i < BUCKETS; i++) {
+                Node sentinel = new Node(null, null, 0, Long.MAX_VALUE);
+                sentinel.prevInWheel = sentinel;
+                sentinel.nextInWheel = sentinel;
+                wheel[i] = sentinel;
+            }
+            this.lastTick = now >> SHIFT;
+        }
+
+        void schedule(Node node) {
+            Node sentinel = wheel[(int) ((node.expireAt >> SHIFT) & MASK)];
+            node.prevInWheel = sentinel.prevInWheel;
+            node.nextInWheel = sentinel;
+            sentinel.prevInWheel.nextInWheel = node;
+            sentinel.prevInWheel = node;
+        }
+
+        void deschedule(Node node) {
+            if (null != node.nextInWheel) {
+                node.prevInWheel.nextInWheel = node.nextInWheel;
+                node.nextInWheel.prevInWheel = node.prevInWheel;
+                node.prevInWheel = null;
+                node.nextInWheel = null;
+            }
+        }
+
+        void advance(long now, TinyLfuCache cache) {
+            long currentTick = now >> SHIFT;
+            long ticks = Math.min(currentTick - lastTick, BUCKETS - 1);
+            for (long tick = currentTick - ticks; tick <= currentTick; tick++) {
+                Node sentinel = wheel[(int) (tick & MASK)];
+                Node node = sentinel.nextInWheel;
+                while (node != sentinel) {
+                    Node next = node.nextInWheel;
+                    if (node.isExpired(now)) {
+                        cache.evict(node);
+                    }
+                    node = next;
+                }
+            }
+            lastTick = currentTick;
+        }
+    }
+
+    /**
+     * 4位计数的Count-Min Sketch,用于估算访问频率,计数总量达到阈值后整体减半实现老化
+     */
+    private static class FrequencySketch {
+        static final long[] SEED = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        static final long RESET_MASK = 0x7777777777777777L;
+        static final long ONE_MASK = 0x1111111111111111L;
+
+        final long[] table;
+        final int tableMask;
+        final int sampleSize;
+        int size;
+
+        FrequencySketch(long maximum) {
+            int length = ceilingPowerOfTwo((int) Math.min(Math.max(maximum, 16), 1 << 20));
+            this.table = new long[length];
+            this.tableMask = length - 1;
+            this.sampleSize = 10 * length;
+        }
+
+        int frequency(String key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        void increment(String key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                added |= incrementAt(indexOf(hash, i), start + i);
+            }
+            if (added && ++size == sampleSize) {
+                reset();
+            }
+        }
+
+        private boolean incrementAt(int i, int j) {
+            int offset = j << 2;
+            long mask = 0xfL << offset;
+            if ((table[i] & mask) != mask) {
+                table[i] += 1L << offset;
+                return true;
+            }
+            return false;
+        }
+
+        private void reset() {
+            int count = 0;
+            for (int i = 0; i < table.length; i++) {
+                count += Long.bitCount(table[i] & ONE_MASK);
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            size = (size >>> 1) - (count >>> 2);
+        }
+
+        private int indexOf(int item, int i) {
+            long hash = (item + SEED[i]) * SEED[i];
+            hash += hash >>> 32;
+            return ((int) hash) & tableMask;
+        }
+
+        private int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+
+}
@@ -25,8 +25,9 @@
 package org.aoju.bus.cache.provider;
 
 import org.aoju.bus.cache.Hitting;
-import org.aoju.bus.cache.magic.CachePair;
 import org.aoju.bus.core.lang.Normal;
+import org.aoju.bus.logger.Logger;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.yaml.snakeyaml.Yaml;
 
@@ -35,49 +36,56 @@ import java.io.InputStream;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
+ * 命中率统计先累加到内存中的分段计数器, 再由后台任务定时批量写入数据库,
+ * 每个周期内每个分组只执行一次累加更新
+ *
  * @author Kimi Liu
  * @version 5.9.8
  * @since JDK 1.8+
  */
 public abstract class AbstractHitting implements Hitting {
 
-    private static final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
         Thread thread = new Thread(r);
         thread.setName("cache:db-writer");
         thread.setDaemon(true);
         return thread;
     });
 
-    private static final Lock lock = new ReentrantLock();
-
-    private volatile boolean isShutdown = false;
+    /**
+     * 默认写入周期,单位毫秒
+     */
+    private static final long FLUSH_INTERVAL = 1000;
 
-    private BlockingQueue<CachePair<String, Integer>> hitQueue = new LinkedTransferQueue<>();
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
 
-    private BlockingQueue<CachePair<String, Integer>> requireQueue = new LinkedTransferQueue<>();
+    private final ScheduledFuture<?> flushTask;
 
     private JdbcOperations jdbcOperations;
 
     private Properties sqls;
 
+    /**
+     * 旧版本的update/insert语句按列名模板(%s)及版本号CAS更新, 仍按原方式逐列写入
+     */
+    private boolean legacy;
+
     protected AbstractHitting(Map<String, Object> context) {
         InputStream resource = this.getClass().getClassLoader().getResourceAsStream(Normal.META_DATA_INF + "/caches/bus-cache.yaml");
         this.sqls = new Yaml().loadAs(resource, Properties.class);
+        this.legacy = sqls.getProperty("update").contains("%s");
+        if (legacy) {
+            Logger.warn("bus-cache.yaml uses the column template 'update' statement, hitting counts are written column by column.");
+        }
 
         this.jdbcOperations = jdbcOperationsSupplier(context).get();
-        executor.submit(() -> {
-            while (!isShutdown) {
-                dumpToDB(hitQueue, "hit_count");
-                dumpToDB(requireQueue, "require_count");
-            }
-        });
+        this.flushTask = executor.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
     }
 
     public AbstractHitting(String url, String username, String password) {
@@ -117,37 +125,22 @@ public abstract class AbstractHitting implements Hitting {
      */
     protected abstract Stream<DataDO> transferResults(List<Map<String, Object>> map);
 
-    private void dumpToDB(BlockingQueue<CachePair<String, Integer>> queue, String column) {
-        long times = 0;
-        CachePair<String, Integer> head;
-
-        // gather queue's all or before 100 data to a Map
-        Map<String, AtomicLong> holdMap = new HashMap<>();
-        while ((head = queue.poll()) != null && times <= 100) {
-            holdMap
-                    .computeIfAbsent(head.getLeft(), (key) -> new AtomicLong(0L))
-                    .addAndGet(head.getRight());
-            ++times;
-        }
-
-        // batch write to DB
-        holdMap.forEach((pattern, count) -> countAddCas(column, pattern, count.get()));
-    }
-
     @Override
     public void hitIncr(String pattern, int count) {
         if (count != 0)
-            hitQueue.add(CachePair.of(pattern, count));
+            counter(pattern).hit.add(count);
     }
 
     @Override
     public void reqIncr(String pattern, int count) {
         if (count != 0)
-            requireQueue.add(CachePair.of(pattern, count));
+            counter(pattern).require.add(count);
     }
 
     @Override
     public Map<String, Hitting.HittingDO> getHitting() {
+        flush();
+
         List<DataDO> dataDOS = queryAll();
         AtomicLong statisticsHit = new AtomicLong(0);
         AtomicLong statisticsRequired = new AtomicLong(0);
@@ -172,37 +165,84 @@ public abstract class AbstractHitting implements Hitting {
 
     @Override
     public void reset(String pattern) {
+        counters.remove(pattern);
         jdbcOperations.update(sqls.getProperty("delete"), pattern);
     }
 
     @Override
     public void resetAll() {
+        counters.clear();
         jdbcOperations.update(sqls.getProperty("truncate"));
     }
 
-    private void countAddCas(String column, String pattern, long count) {
-        Optional<DataDO> dataOptional = queryObject(pattern);
+    // 已存在的分组直接get, 避免computeIfAbsent对桶加锁
+    private Counter counter(String pattern) {
+        Counter counter = counters.get(pattern);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(pattern, (key) -> new Counter());
+        }
+        return counter;
+    }
 
-        // if has pattern record, update it.
-        if (dataOptional.isPresent()) {
-            DataDO dataDO = dataOptional.get();
-            while (update(column, pattern, getObjectCount(dataDO, column, count), dataDO.version) <= 0) {
-                dataDO = queryObject(pattern).get();
+    // 将各分组上个周期内的增量写入DB, 定时任务与getHitting可能同时调用
+    private synchronized void flush() {
+        counters.forEach((pattern, counter) -> {
+            long hit = counter.hit.sumThenReset();
+            long require = counter.require.sumThenReset();
+            if (hit == 0 && require == 0) {
+                return;
             }
-        } else {
-            lock.lock();
+
             try {
-                // double check
-                dataOptional = queryObject(pattern);
-                if (dataOptional.isPresent()) {
-                    update(column, pattern, count, dataOptional.get().version);
+                if (legacy) {
+                    countAddCas("hit_count", pattern, hit);
+                    hit = 0;
+                    countAddCas("require_count", pattern, require);
                 } else {
-                    insert(column, pattern, count);
+                    upsert(pattern, hit, require);
                 }
-            } finally {
-                lock.unlock();
+            } catch (Exception e) {
+                // 写入失败时将增量放回, 等待下个周期
+                counter.hit.add(hit);
+                counter.require.add(require);
+                Logger.error("flush cache hitting of pattern [{}] failed.", pattern, e);
+            }
+        });
+    }
+
+    private void upsert(String pattern, long hit, long require) {
+        if (jdbcOperations.update(sqls.getProperty("update"), hit, require, pattern) > 0) {
+            return;
+        }
+
+        try {
+            jdbcOperations.update(sqls.getProperty("insert"), pattern, hit, require);
+        } catch (DataIntegrityViolationException e) {
+            // 其他节点已插入该分组
+            jdbcOperations.update(sqls.getProperty("update"), hit, require, pattern);
+        }
+    }
+
+    private void countAddCas(String column, String pattern, long count) {
+        if (count == 0) {
+            return;
+        }
+        Optional<DataDO> dataOptional = queryObject(pattern);
+        if (!dataOptional.isPresent()) {
+            try {
+                jdbcOperations.update(String.format(sqls.getProperty("insert"), column), pattern, count);
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // 其他节点已插入该分组
+                dataOptional = queryObject(pattern);
             }
         }
+
+        DataDO dataDO = dataOptional.get();
+        String updateSql = String.format(sqls.getProperty("update"), column);
+        while (jdbcOperations.update(updateSql, getObjectCount(dataDO, column, count), pattern, dataDO.version) <= 0) {
+            dataDO = queryObject(pattern).get();
+        }
     }
 
     private Optional<DataDO> queryObject(String pattern) {
@@ -212,6 +252,12 @@ public abstract class AbstractHitting implements Hitting {
         return transferResults(mapResults).findFirst();
     }
 
+    private long getObjectCount(DataDO data, String column, long countOffset) {
+        long lastCount = column.equals("hit_count") ? data.hitCount : data.requireCount;
+
+        return lastCount + countOffset;
+    }
+
     private List<DataDO> queryAll() {
         String selectAllQuery = sqls.getProperty("select_all");
         List<Map<String, Object>> mapResults = jdbcOperations.queryForList(selectAllQuery);
@@ -219,34 +265,17 @@ public abstract class AbstractHitting implements Hitting {
         return transferResults(mapResults).collect(Collectors.toList());
     }
 
-    private int insert(String column, String pattern, long count) {
-        String insertSql = String.format(sqls.getProperty("insert"), column);
-
-        return jdbcOperations.update(insertSql, pattern, count);
-    }
-
-    private int update(String column, String pattern, long count, long version) {
-        String updateSql = String.format(sqls.getProperty("update"), column);
-
-        return jdbcOperations.update(updateSql, count, pattern, version);
+    @PreDestroy
+    public void tearDown() {
+        flushTask.cancel(false);
+        flush();
     }
 
-    private long getObjectCount(DataDO data, String column, long countOffset) {
-        long lastCount = column.equals("hit_count") ? data.hitCount : data.requireCount;
+    private static final class Counter {
 
-        return lastCount + countOffset;
-    }
-
-    @PreDestroy
-    public void tearDown() {
-        while (hitQueue.size() > 0 || requireQueue.size() > 0) {
-            try {
-                TimeUnit.SECONDS.sleep(1);
-            } catch (InterruptedException ignored) {
-            }
-        }
+        private final LongAdder hit = new LongAdder();
 
-        isShutdown = true;
+        private final LongAdder require = new LongAdder();
     }
 
     protected static final class DataDO {
@@ -31,6 +31,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * @author Kimi Liu
@@ -39,24 +40,29 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 public class MemoryHitting implements Hitting {
 
-    private ConcurrentMap<String, AtomicLong> hitMap = new ConcurrentHashMap<>();
+    private ConcurrentMap<String, LongAdder> hitMap = new ConcurrentHashMap<>();
 
-    private ConcurrentMap<String, AtomicLong> requireMap = new ConcurrentHashMap<>();
+    private ConcurrentMap<String, LongAdder> requireMap = new ConcurrentHashMap<>();
+
+    // 已存在的分组直接get, 避免computeIfAbsent对桶加锁
+    private static LongAdder counter(ConcurrentMap<String, LongAdder> map, String pattern) {
+        LongAdder counter = map.get(pattern);
+        if (counter == null) {
+            counter = map.computeIfAbsent(pattern, (k) -> new LongAdder());
+        }
+        return counter;
+    }
 
     @Override
     public void hitIncr(String pattern, int count) {
-        hitMap.computeIfAbsent(
-                pattern,
-                (k) -> new AtomicLong()
-        ).addAndGet(count);
+        if (count != 0)
+            counter(hitMap, pattern).add(count);
     }
 
     @Override
     public void reqIncr(String pattern, int count) {
-        requireMap.computeIfAbsent(
-                pattern,
-                (k) -> new AtomicLong()
-        ).addAndGet(count);
+        if (count != 0)
+            counter(requireMap, pattern).add(count);
     }
 
     @Override
@@ -66,8 +72,9 @@ public class MemoryHitting implements Hitting {
         AtomicLong statisticsHit = new AtomicLong(0);
         AtomicLong statisticsRequired = new AtomicLong(0);
         requireMap.forEach((pattern, count) -> {
-            long hit = hitMap.computeIfAbsent(pattern, (key) -> new AtomicLong(0)).get();
-            long require = count.get();
+            LongAdder hitCount = hitMap.get(pattern);
+            long hit = hitCount == null ? 0 : hitCount.sum();
+            long require = count.sum();
 
             statisticsHit.addAndGet(hit);
             statisticsRequired.addAndGet(require);
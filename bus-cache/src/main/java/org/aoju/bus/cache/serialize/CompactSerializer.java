@@ -0,0 +1,704 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.cache.serialize;
+
+import org.aoju.bus.logger.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 紧凑二进制序列化,
+ * 整数采用变长编码, 对象按字段名/值自描述(无需预先注册类型),
+ * 同一次序列化中重复出现的类名与字段名只写入一次, 输出缓冲区按线程复用;
+ * 不支持循环引用, 未覆盖的JDK类型回退为JDK序列化;
+ * 无法按原类型或声明类型还原的值在序列化时抛出{@link IllegalArgumentException}
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+public class CompactSerializer extends AbstractSerializer {
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte BYTE = 3;
+    private static final byte SHORT = 4;
+    private static final byte INT = 5;
+    private static final byte LONG = 6;
+    private static final byte FLOAT = 7;
+    private static final byte DOUBLE = 8;
+    private static final byte CHAR = 9;
+    private static final byte STRING = 10;
+    private static final byte BYTES = 11;
+    private static final byte BIG_INTEGER = 12;
+    private static final byte BIG_DECIMAL = 13;
+    private static final byte DATE = 14;
+    private static final byte ENUM = 15;
+    private static final byte COLLECTION = 16;
+    private static final byte MAP = 17;
+    private static final byte ARRAY = 18;
+    private static final byte OBJECT = 19;
+    private static final byte SERIALIZABLE = 20;
+
+    /**
+     * 最大嵌套深度
+     */
+    private static final int MAX_DEPTH = 128;
+
+    /**
+     * 复用的输出缓冲区上限, 超过时本次使用后丢弃
+     */
+    private static final int MAX_POOLED_BUFFER = 1 << 20;
+
+    private static final ThreadLocal<Output> OUTPUT = ThreadLocal.withInitial(Output::new);
+
+    private static final ClassValue<Descriptor> DESCRIPTORS = new ClassValue<Descriptor>() {
+        @Override
+        protected Descriptor computeValue(Class<?> type) {
+            return new Descriptor(type);
+        }
+    };
+
+    /**
+     * 按类加载器缓存类名解析结果, 弱引用类加载器及类, 避免阻止其卸载
+     */
+    private static final Map<ClassLoader, ConcurrentMap<String, WeakReference<Class<?>>>> CLASSES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static Descriptor descriptor(Class<?> type) {
+        return DESCRIPTORS.get(type);
+    }
+
+    private static Class<?> forName(String name) throws ClassNotFoundException {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader == null) {
+            loader = CompactSerializer.class.getClassLoader();
+        }
+        ConcurrentMap<String, WeakReference<Class<?>>> classes = CLASSES.get(loader);
+        if (classes == null) {
+            classes = new ConcurrentHashMap<>();
+            ConcurrentMap<String, WeakReference<Class<?>>> existing = CLASSES.putIfAbsent(loader, classes);
+            if (existing != null) {
+                classes = existing;
+            }
+        }
+        WeakReference<Class<?>> reference = classes.get(name);
+        Class<?> type = reference == null ? null : reference.get();
+        if (type == null) {
+            type = Class.forName(name, false, loader);
+            classes.put(name, new WeakReference<>(type));
+        }
+        return type;
+    }
+
+    /**
+     * 选择集合写入的类型: 有公开无参构造且无比较器时使用原类型,
+     * 否则在声明类型允许时写为等价的标准集合(如Arrays$ArrayList、不可变集合),
+     * 返回{@code null}表示需要回退为JDK序列化
+     *
+     * @param value    集合或Map
+     * @param declared 声明类型
+     * @return 写入的类型
+     */
+    private static Class<?> collectionType(Object value, Class<?> declared) {
+        Class<?> type = value.getClass();
+        if (hasDefaultConstructor(type)
+                && !(value instanceof SortedSet && ((SortedSet<?>) value).comparator() != null)
+                && !(value instanceof SortedMap && ((SortedMap<?, ?>) value).comparator() != null)) {
+            return type;
+        }
+        Class<?> generic;
+        if (value instanceof Map) {
+            generic = LinkedHashMap.class;
+        } else {
+            generic = value instanceof Set ? LinkedHashSet.class : ArrayList.class;
+        }
+        if (declared.isAssignableFrom(generic)) {
+            return generic;
+        }
+        if (value instanceof Serializable) {
+            return null;
+        }
+        throw new IllegalArgumentException("cannot serialize " + type.getName() + " as " + declared.getName()
+                + ": no public default constructor and not Serializable");
+    }
+
+    private static boolean hasDefaultConstructor(Class<?> type) {
+        if (Modifier.isAbstract(type.getModifiers()) || !Modifier.isPublic(type.getModifiers())) {
+            return false;
+        }
+        try {
+            return Modifier.isPublic(type.getConstructor().getModifiers());
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public <T> byte[] serialize(T obj) {
+        if (obj == null) {
+            return null;
+        }
+        try {
+            return doSerialize(obj);
+        } catch (IllegalArgumentException e) {
+            // 无法还原的值直接抛出, 避免写入只在读取时才失败的数据
+            throw e;
+        } catch (Throwable t) {
+            Logger.error("{} serialize error.", this.getClass().getName(), t);
+            return null;
+        }
+    }
+
+    @Override
+    protected byte[] doSerialize(Object obj) throws Throwable {
+        Output output = OUTPUT.get();
+        try {
+            output.writeValue(obj, Object.class, 0);
+            return output.toByteArray();
+        } finally {
+            output.reset();
+            if (output.buffer.length > MAX_POOLED_BUFFER) {
+                OUTPUT.remove();
+            }
+        }
+    }
+
+    @Override
+    protected Object doDeserialize(byte[] bytes) throws Throwable {
+        return new Input(bytes).readValue(0);
+    }
+
+    private static final class Output {
+
+        private final Map<String, Integer> names = new HashMap<>();
+
+        private byte[] buffer = new byte[256];
+
+        private int position;
+
+        void reset() {
+            position = 0;
+            names.clear();
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensure(int size) {
+            if (position + size > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + size));
+            }
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarInt(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeVarInt(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeFixedLong(long value) {
+            ensure(8);
+            for (int i = 0; i < 8; i++) {
+                buffer[position++] = (byte) (value >>> (i << 3));
+            }
+        }
+
+        void writeString(String value) {
+            int length = value.length();
+            ensure(length + 5);
+            // ASCII直接写入, 其余按UTF-8编码
+            int start = position;
+            writeVarInt(length);
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    position = start;
+                    writeBytes(value.getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                buffer[position++] = (byte) c;
+            }
+        }
+
+        // 类名与字段名: 首次出现写入0与原文, 之后写入序号+1
+        void writeName(String name) {
+            Integer index = names.get(name);
+            if (index != null) {
+                writeVarInt(index + 1);
+            } else {
+                writeVarInt(0);
+                writeString(name);
+                names.put(name, names.size());
+            }
+        }
+
+        void writeValue(Object value, Class<?> declared, int depth) throws Exception {
+            if (depth > MAX_DEPTH) {
+                throw new IllegalStateException("object graph is too deep or contains a cycle");
+            }
+            if (value == null) {
+                writeByte(NULL);
+                return;
+            }
+
+            Class<?> type = value.getClass();
+            if (type == String.class) {
+                writeByte(STRING);
+                writeString((String) value);
+            } else if (type == Integer.class) {
+                writeByte(INT);
+                int i = (Integer) value;
+                writeVarInt((i << 1) ^ (i >> 31));
+            } else if (type == Long.class) {
+                writeByte(LONG);
+                long l = (Long) value;
+                writeVarLong((l << 1) ^ (l >> 63));
+            } else if (type == Boolean.class) {
+                writeByte((Boolean) value ? TRUE : FALSE);
+            } else if (type == Double.class) {
+                writeByte(DOUBLE);
+                writeFixedLong(Double.doubleToRawLongBits((Double) value));
+            } else if (type == Float.class) {
+                writeByte(FLOAT);
+                writeVarInt(Integer.reverseBytes(Float.floatToRawIntBits((Float) value)));
+            } else if (type == Short.class) {
+                writeByte(SHORT);
+                short s = (Short) value;
+                writeVarInt((s << 1) ^ (s >> 31));
+            } else if (type == Byte.class) {
+                writeByte(BYTE);
+                writeByte((Byte) value);
+            } else if (type == Character.class) {
+                writeByte(CHAR);
+                writeVarInt((Character) value);
+            } else if (type == byte[].class) {
+                writeByte(BYTES);
+                writeBytes((byte[]) value);
+            } else if (type == BigDecimal.class) {
+                writeByte(BIG_DECIMAL);
+                BigDecimal decimal = (BigDecimal) value;
+                writeBytes(decimal.unscaledValue().toByteArray());
+                int scale = decimal.scale();
+                writeVarInt((scale << 1) ^ (scale >> 31));
+            } else if (type == BigInteger.class) {
+                writeByte(BIG_INTEGER);
+                writeBytes(((BigInteger) value).toByteArray());
+            } else if (type == Date.class) {
+                writeByte(DATE);
+                long time = ((Date) value).getTime();
+                writeVarLong((time << 1) ^ (time >> 63));
+            } else if (value instanceof Enum) {
+                writeByte(ENUM);
+                writeName(((Enum<?>) value).getDeclaringClass().getName());
+                writeString(((Enum<?>) value).name());
+            } else if (value instanceof Collection || value instanceof Map) {
+                Class<?> target = collectionType(value, declared);
+                if (target == null) {
+                    writeSerializable(value);
+                } else if (value instanceof Collection) {
+                    Collection<?> collection = (Collection<?>) value;
+                    writeByte(COLLECTION);
+                    writeName(target.getName());
+                    writeVarInt(collection.size());
+                    for (Object element : collection) {
+                        writeValue(element, Object.class, depth + 1);
+                    }
+                } else {
+                    Map<?, ?> map = (Map<?, ?>) value;
+                    writeByte(MAP);
+                    writeName(target.getName());
+                    writeVarInt(map.size());
+                    for (Map.Entry<?, ?> entry : map.entrySet()) {
+                        writeValue(entry.getKey(), Object.class, depth + 1);
+                        writeValue(entry.getValue(), Object.class, depth + 1);
+                    }
+                }
+            } else if (type.isArray()) {
+                int length = Array.getLength(value);
+                Class<?> componentType = type.getComponentType();
+                writeByte(ARRAY);
+                writeName(componentType.getName());
+                writeVarInt(length);
+                for (int i = 0; i < length; i++) {
+                    writeValue(Array.get(value, i), componentType, depth + 1);
+                }
+            } else if (isJdkType(type)) {
+                writeSerializable(value);
+            } else {
+                Descriptor descriptor = descriptor(type);
+                writeByte(OBJECT);
+                writeName(type.getName());
+                writeVarInt(descriptor.fields.length);
+                for (Field field : descriptor.fields) {
+                    writeName(field.getName());
+                    writeValue(field.get(value), field.getType(), depth + 1);
+                }
+            }
+        }
+
+        private void writeSerializable(Object value) throws Exception {
+            writeByte(SERIALIZABLE);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+                out.writeObject(value);
+            } catch (NotSerializableException e) {
+                throw new IllegalArgumentException("cannot serialize " + value.getClass().getName(), e);
+            }
+            writeBytes(bos.toByteArray());
+        }
+
+        private boolean isJdkType(Class<?> type) {
+            String name = type.getName();
+            return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.");
+        }
+    }
+
+    private static final class Input {
+
+        private final List<String> names = new ArrayList<>();
+
+        private final byte[] buffer;
+
+        private int position;
+
+        Input(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        int readByte() {
+            return buffer[position++];
+        }
+
+        int readVarInt() {
+            int result = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = buffer[position++];
+                result |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+            throw new IllegalStateException("malformed varint");
+        }
+
+        int readZigZagInt() {
+            int value = readVarInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        long readVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer[position++];
+                result |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+            throw new IllegalStateException("malformed varlong");
+        }
+
+        long readZigZagLong() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        long readFixedLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value |= (buffer[position++] & 0xFFL) << (i << 3);
+            }
+            return value;
+        }
+
+        byte[] readBytes() {
+            int length = readVarInt();
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        String readString() {
+            int length = readVarInt();
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        String readName() {
+            int index = readVarInt();
+            if (index > 0) {
+                return names.get(index - 1);
+            }
+            String name = readString();
+            names.add(name);
+            return name;
+        }
+
+        Object readValue(int depth) throws Exception {
+            if (depth > MAX_DEPTH) {
+                throw new IllegalStateException("object graph is too deep");
+            }
+
+            byte tag = (byte) readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                case BYTE:
+                    return (byte) readByte();
+                case SHORT:
+                    return (short) readZigZagInt();
+                case INT:
+                    return readZigZagInt();
+                case LONG:
+                    return readZigZagLong();
+                case FLOAT:
+                    return Float.intBitsToFloat(Integer.reverseBytes(readVarInt()));
+                case DOUBLE:
+                    return Double.longBitsToDouble(readFixedLong());
+                case CHAR:
+                    return (char) readVarInt();
+                case STRING:
+                    return readString();
+                case BYTES:
+                    return readBytes();
+                case BIG_INTEGER:
+                    return new BigInteger(readBytes());
+                case BIG_DECIMAL:
+                    BigInteger unscaled = new BigInteger(readBytes());
+                    return new BigDecimal(unscaled, readZigZagInt());
+                case DATE:
+                    return new Date(readZigZagLong());
+                case ENUM:
+                    return enumConstant(forName(readName()), readString());
+                case COLLECTION: {
+                    Collection<Object> collection = newInstance(forName(readName()));
+                    int size = readVarInt();
+                    for (int i = 0; i < size; i++) {
+                        collection.add(readValue(depth + 1));
+                    }
+                    return collection;
+                }
+                case MAP: {
+                    Map<Object, Object> map = newInstance(forName(readName()));
+                    int size = readVarInt();
+                    for (int i = 0; i < size; i++) {
+                        map.put(readValue(depth + 1), readValue(depth + 1));
+                    }
+                    return map;
+                }
+                case ARRAY: {
+                    Class<?> componentType = componentType(readName());
+                    int length = readVarInt();
+                    Object array = Array.newInstance(componentType, length);
+                    for (int i = 0; i < length; i++) {
+                        Array.set(array, i, readValue(depth + 1));
+                    }
+                    return array;
+                }
+                case SERIALIZABLE:
+                    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(readBytes()))) {
+                        return in.readObject();
+                    }
+                case OBJECT: {
+                    Descriptor descriptor = descriptor(forName(readName()));
+                    Object instance = descriptor.newInstance();
+                    int count = readVarInt();
+                    for (int i = 0; i < count; i++) {
+                        Field field = descriptor.named.get(readName());
+                        Object value = readValue(depth + 1);
+                        // 字段已删除时丢弃其值
+                        if (field != null && (value != null || !field.getType().isPrimitive())) {
+                            field.set(instance, value);
+                        }
+                    }
+                    return instance;
+                }
+                default:
+                    throw new IllegalStateException("unknown tag: " + tag);
+            }
+        }
+
+        private Object enumConstant(Class<?> type, String name) {
+            for (Object constant : type.getEnumConstants()) {
+                if (((Enum<?>) constant).name().equals(name)) {
+                    return constant;
+                }
+            }
+            throw new IllegalArgumentException("no enum constant " + type.getName() + "." + name);
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T newInstance(Class<?> type) throws Exception {
+            return (T) type.getConstructor().newInstance();
+        }
+
+        private Class<?> componentType(String name) throws ClassNotFoundException {
+            switch (name) {
+                case "int":
+                    return int.class;
+                case "long":
+                    return long.class;
+                case "double":
+                    return double.class;
+                case "float":
+                    return float.class;
+                case "short":
+                    return short.class;
+                case "byte":
+                    return byte.class;
+                case "char":
+                    return char.class;
+                case "boolean":
+                    return boolean.class;
+                default:
+                    return forName(name);
+            }
+        }
+    }
+
+    private static final class Descriptor {
+
+        private final Class<?> type;
+
+        private final Field[] fields;
+
+        private final Map<String, Field> named = new HashMap<>();
+
+        private final Constructor<?> constructor;
+
+        Descriptor(Class<?> type) {
+            this.type = type;
+            List<Field> list = new ArrayList<>();
+            for (Class<?> clazz = type; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+                for (Field field : clazz.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+                            || named.containsKey(field.getName())) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    named.put(field.getName(), field);
+                    list.add(field);
+                }
+            }
+            this.fields = list.toArray(new Field[0]);
+
+            Constructor<?> found;
+            try {
+                found = type.getDeclaredConstructor();
+                found.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                found = null;
+            }
+            this.constructor = found;
+        }
+
+        Object newInstance() throws Exception {
+            if (constructor != null) {
+                return constructor.newInstance();
+            }
+            return Instantiator.allocate(type);
+        }
+    }
+
+    /**
+     * 没有无参构造的类型通过Unsafe分配实例
+     */
+    private static final class Instantiator {
+
+        private static final Object UNSAFE;
+
+        private static final Method ALLOCATE;
+
+        static {
+            Object unsafe = null;
+            Method allocate = null;
+            try {
+                Class<?> clazz = Class.forName("sun.misc.Unsafe");
+                Field field = clazz.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                unsafe = field.get(null);
+                allocate = clazz.getMethod("allocateInstance", Class.class);
+            } catch (Exception ignored) {
+                // 不支持时要求类型提供无参构造
+            }
+            UNSAFE = unsafe;
+            ALLOCATE = allocate;
+        }
+
+        static Object allocate(Class<?> type) throws Exception {
+            if (ALLOCATE == null) {
+                throw new InstantiationException(type.getName() + " has no default constructor");
+            }
+            return ALLOCATE.invoke(UNSAFE, type);
+        }
+    }
+
+}
@@ -0,0 +1,267 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.cache.serialize;
+
+import java.util.Arrays;
+
+/**
+ * 按阈值压缩的序列化包装,
+ * 只有序列化结果超过阈值时才使用LZ4块格式压缩, 压缩后没有变小时仍保存原始内容;
+ * 结果首字节标识是否压缩
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+public class CompressSerializer extends AbstractSerializer {
+
+    /**
+     * 默认压缩阈值: 1KB
+     */
+    public static final int DEFAULT_THRESHOLD = 1024;
+
+    private static final byte RAW = 0;
+
+    private static final byte LZ4 = 1;
+
+    private final BaseSerializer serializer;
+
+    private final int threshold;
+
+    public CompressSerializer() {
+        this(new CompactSerializer(), DEFAULT_THRESHOLD);
+    }
+
+    public CompressSerializer(BaseSerializer serializer) {
+        this(serializer, DEFAULT_THRESHOLD);
+    }
+
+    public CompressSerializer(BaseSerializer serializer, int threshold) {
+        this.serializer = serializer;
+        this.threshold = threshold;
+    }
+
+    @Override
+    protected byte[] doSerialize(Object obj) throws Throwable {
+        byte[] bytes = serializer.serialize(obj);
+        if (bytes == null) {
+            return null;
+        }
+
+        if (bytes.length >= threshold) {
+            byte[] compressed = Lz4Block.compress(bytes);
+            if (compressed.length < bytes.length) {
+                return compressed;
+            }
+        }
+
+        byte[] result = new byte[bytes.length + 1];
+        result[0] = RAW;
+        System.arraycopy(bytes, 0, result, 1, bytes.length);
+        return result;
+    }
+
+    @Override
+    protected Object doDeserialize(byte[] bytes) throws Throwable {
+        if (bytes.length == 0) {
+            return null;
+        }
+
+        byte[] raw;
+        if (bytes[0] == LZ4) {
+            raw = Lz4Block.decompress(bytes);
+        } else {
+            raw = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return serializer.deserialize(raw);
+    }
+
+    /**
+     * LZ4块格式: 标识(1) + 原始长度(4) + 序列(token, 字面量, 偏移, 匹配长度)
+     */
+    private static final class Lz4Block {
+
+        private static final int HEADER = 5;
+        private static final int MIN_MATCH = 4;
+        private static final int LAST_LITERALS = 5;
+        private static final int MF_LIMIT = 12;
+        private static final int MAX_OFFSET = 65535;
+        private static final int HASH_LOG = 12;
+
+        private static final ThreadLocal<int[]> TABLE = ThreadLocal.withInitial(() -> new int[1 << HASH_LOG]);
+
+        static byte[] compress(byte[] src) {
+            int length = src.length;
+            byte[] dst = new byte[HEADER + length + length / 255 + 16];
+            dst[0] = LZ4;
+            writeInt(dst, 1, length);
+
+            int op = HEADER;
+            int anchor = 0;
+            if (length > MF_LIMIT) {
+                // 表中保存位置+1, 0表示空
+                int[] table = TABLE.get();
+                Arrays.fill(table, 0);
+                int limit = length - MF_LIMIT;
+                int ip = 0;
+                int misses = 0;
+                while (ip < limit) {
+                    int sequence = readInt(src, ip);
+                    int hash = (sequence * -1640531535) >>> (32 - HASH_LOG);
+                    int ref = table[hash] - 1;
+                    table[hash] = ip + 1;
+                    if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                        // 连续未命中时加大步长, 跳过不可压缩的内容
+                        ip += 1 + (misses++ >>> 6);
+                        continue;
+                    }
+                    misses = 0;
+
+                    while (ip > anchor && ref > 0 && src[ip - 1] == src[ref - 1]) {
+                        ip--;
+                        ref--;
+                    }
+                    int matchLength = MIN_MATCH;
+                    int maxMatch = length - LAST_LITERALS - ip;
+                    while (matchLength < maxMatch && src[ip + matchLength] == src[ref + matchLength]) {
+                        matchLength++;
+                    }
+
+                    op = writeSequence(src, anchor, ip - anchor, dst, op, ip - ref, matchLength);
+                    ip += matchLength;
+                    anchor = ip;
+                }
+            }
+            op = writeSequence(src, anchor, length - anchor, dst, op, 0, 0);
+            return Arrays.copyOf(dst, op);
+        }
+
+        static byte[] decompress(byte[] src) {
+            int length = readInt(src, 1);
+            byte[] dst = new byte[length];
+            int ip = HEADER;
+            int op = 0;
+            while (ip < src.length) {
+                int token = src[ip++] & 0xFF;
+
+                int literals = token >>> 4;
+                if (literals == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        literals += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(src, ip, dst, op, literals);
+                ip += literals;
+                op += literals;
+                if (ip >= src.length) {
+                    break;
+                }
+
+                int offset = (src[ip++] & 0xFF) | ((src[ip++] & 0xFF) << 8);
+                int matchLength = token & 0x0F;
+                if (matchLength == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+
+                int ref = op - offset;
+                if (offset == 0 || ref < 0) {
+                    throw new IllegalStateException("malformed lz4 block");
+                }
+                if (offset >= matchLength) {
+                    System.arraycopy(dst, ref, dst, op, matchLength);
+                    op += matchLength;
+                } else {
+                    // 重叠复制需逐字节进行
+                    for (int i = 0; i < matchLength; i++) {
+                        dst[op++] = dst[ref++];
+                    }
+                }
+            }
+            if (op != length) {
+                throw new IllegalStateException("malformed lz4 block");
+            }
+            return dst;
+        }
+
+        private static int writeSequence(byte[] src, int anchor, int literals,
+                                         byte[] dst, int op, int offset, int matchLength) {
+            int tokenIndex = op++;
+            int token;
+            if (literals >= 15) {
+                token = 15 << 4;
+                op = writeLength(dst, op, literals - 15);
+            } else {
+                token = literals << 4;
+            }
+            System.arraycopy(src, anchor, dst, op, literals);
+            op += literals;
+
+            if (matchLength > 0) {
+                dst[op++] = (byte) offset;
+                dst[op++] = (byte) (offset >>> 8);
+                int extra = matchLength - MIN_MATCH;
+                if (extra >= 15) {
+                    token |= 15;
+                    op = writeLength(dst, op, extra - 15);
+                } else {
+                    token |= extra;
+                }
+            }
+            dst[tokenIndex] = (byte) token;
+            return op;
+        }
+
+        private static int writeLength(byte[] dst, int op, int length) {
+            while (length >= 255) {
+                dst[op++] = (byte) 255;
+                length -= 255;
+            }
+            dst[op++] = (byte) length;
+            return op;
+        }
+
+        private static int readInt(byte[] bytes, int index) {
+            return (bytes[index] & 0xFF)
+                    | (bytes[index + 1] & 0xFF) << 8
+                    | (bytes[index + 2] & 0xFF) << 16
+                    | (bytes[index + 3] & 0xFF) << 24;
+        }
+
+        private static void writeInt(byte[] bytes, int index, int value) {
+            bytes[index] = (byte) value;
+            bytes[index + 1] = (byte) (value >>> 8);
+            bytes[index + 2] = (byte) (value >>> 16);
+            bytes[index + 3] = (byte) (value >>> 24);
+        }
+    }
+
+}
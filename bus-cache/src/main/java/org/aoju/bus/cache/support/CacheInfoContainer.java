@@ -111,17 +111,31 @@ public class CacheInfoContainer {
     }
 
     private static AnnoHolder.Builder scanCached(AnnoHolder.Builder builder, Cached cached) {
+        if (cached.refresh() < 0 || cached.refresh() > 100) {
+            throw new RuntimeException("@Cached's refresh must be a percent between 0 and 100, but was " + cached.refresh());
+        }
+        if (cached.stale() < 0) {
+            throw new RuntimeException("@Cached's stale must not be negative, but was " + cached.stale());
+        }
+        if (cached.expire() > 0 && cached.stale() > Integer.MAX_VALUE - cached.expire()) {
+            throw new RuntimeException("@Cached's expire + stale overflows, expire: " + cached.expire() + ", stale: " + cached.stale());
+        }
+
         return builder
                 .setCache(cached.value())
                 .setPrefix(cached.prefix())
-                .setExpire(cached.expire());
+                .setExpire(cached.expire())
+                .setCoalesce(cached.coalesce())
+                .setRefresh(cached.refresh())
+                .setStale(cached.stale());
     }
 
     private static AnnoHolder.Builder scanCachedGet(AnnoHolder.Builder builder, CachedGet cachedGet) {
         return builder
                 .setCache(cachedGet.value())
                 .setPrefix(cachedGet.prefix())
-                .setExpire(CacheExpire.NO);
+                .setExpire(CacheExpire.NO)
+                .setCoalesce(cachedGet.coalesce());
     }
 
     private static AnnoHolder.Builder scanInvalid(AnnoHolder.Builder builder, Invalid invalid) {
@@ -0,0 +1,152 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.cache.support;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁直方图(HDR风格的对数-线性分桶)
+ * 每个2的幂区间均分为64个子桶, 相对误差不超过1/64;
+ * 主要用于记录纳秒级耗时, 超出上限的数值按上限记录
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+public class Histogram {
+
+    /**
+     * 每个区间的子桶数(2^SUB_BITS), 小于2*SUB_COUNT的数值精确记录
+     */
+    private static final int SUB_BITS = 6;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    /**
+     * 可记录的最大数值, 纳秒单位约73分钟
+     */
+    private static final long MAX_VALUE = (1L << 42) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(indexOf(MAX_VALUE) + 1);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    private static int indexOf(long value) {
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        if (shift <= 0) {
+            return (int) value;
+        }
+        return (shift << SUB_BITS) + (int) (value >>> shift);
+    }
+
+    // 桶内最大数值
+    private static long valueOf(int index) {
+        if (index < SUB_COUNT << 1) {
+            return index;
+        }
+        int shift = (index >>> SUB_BITS) - 1;
+        long sub = (index & (SUB_COUNT - 1)) + SUB_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * 记录一个数值
+     *
+     * @param value 数值, 负数按0记录
+     */
+    public void record(long value) {
+        long v = Math.min(Math.max(value, 0), MAX_VALUE);
+        counts.incrementAndGet(indexOf(v));
+        count.increment();
+        sum.add(v);
+
+        long current;
+        while (v > (current = max.get()) && !max.compareAndSet(current, v)) {
+            // retry
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long total = count.sum();
+        return total == 0 ? 0.0 : (double) sum.sum() / total;
+    }
+
+    /**
+     * 获取百分位数值
+     *
+     * @param percentile 百分位, 如 99.9
+     * @return 不低于该百分位样本的最小桶上界, 无样本时为0
+     */
+    public long getValueAtPercentile(double percentile) {
+        int length = counts.length();
+        long total = 0;
+        for (int i = 0; i < length; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < length; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(valueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.0f, p50=%d, p99=%d, p999=%d, max=%d",
+                getCount(), getMean(), getValueAtPercentile(50), getValueAtPercentile(99),
+                getValueAtPercentile(99.9), getMax());
+    }
+
+}
@@ -24,55 +24,70 @@
  ********************************************************************************/
 package org.aoju.bus.cache.support;
 
+import com.google.common.base.Strings;
 import org.aoju.bus.cache.annotation.CacheKey;
 import org.aoju.bus.cache.magic.AnnoHolder;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
 
+import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
+ * key拼装: 每个方法首次调用时生成拼装计划(预解析的表达式及参数索引)并缓存,
+ * 形如`#参数名`的表达式及空表达式直接按索引取参数值, 不进入spel环境
+ *
  * @author Kimi Liu
  * @version 5.9.8
  * @since JDK 1.8+
  */
 public class KeyGenerator {
 
+    private static final String MULTI_INDEX = "i";
+
+    private static final Pattern VARIABLE = Pattern.compile("#[A-Za-z_$][A-Za-z0-9_$]*");
+
+    private static final ConcurrentMap<Method, KeyPlan> plans = new ConcurrentHashMap<>();
+
     public static String generateSingleKey(AnnoHolder annoHolder, Object[] argValues) {
-        String[] argNames = ArgNameGenerator.getArgNames(annoHolder.getMethod());
-        Map<Integer, CacheKey> cacheKeyMap = annoHolder.getCacheKeyMap();
-        String prefix = annoHolder.getPrefix();
+        KeyPlan plan = getPlan(annoHolder);
+        EvaluationContext context = plan.dynamic ? SpelCalculator.newContext(plan.argNames, argValues) : null;
 
-        return doGenerateKey(cacheKeyMap, prefix, argNames, argValues);
+        return plan.generate(argValues, 0, context);
     }
 
     //array[]: {multiEntry2Key, key2MultiEntry}
     public static Map[] generateMultiKey(AnnoHolder annoHolder, Object[] argValues) {
-        /*由于要将Collection内的元素作为Map的Key, 因此就要求元素必须实现的hashcode & equals方法*/
-        Map<Object, String> multiEntry2Key = new LinkedHashMap<>();
-        Map<String, Object> key2MultiEntry = new LinkedHashMap<>();
-
         // 准备要拼装key所需的原材料
         // 标记为multi的参数
         Collection multiArgEntries = getMultiArgEntries(argValues[annoHolder.getMultiIndex()]);
-        // 参数索引 -> CacheKey
-        Map<Integer, CacheKey> argIndex2CacheKey = annoHolder.getCacheKeyMap();
-        // 全局prefix
-        String prefix = annoHolder.getPrefix();
+
+        /*由于要将Collection内的元素作为Map的Key, 因此就要求元素必须实现的hashcode & equals方法*/
+        int capacity = (int) (multiArgEntries.size() / 0.75f) + 1;
+        Map<Object, String> multiEntry2Key = new LinkedHashMap<>(capacity);
+        Map<String, Object> key2MultiEntry = new LinkedHashMap<>(capacity);
 
         // 开始拼装
+        KeyPlan plan = getPlan(annoHolder);
 
-        // 根据方法获取原始的参数名
-        String[] argNames = ArgNameGenerator.getArgNames(annoHolder.getMethod());
-        // 给参数名添加一个`#i`遍历指令
-        String[] appendArgNames = (String[]) appendArray(argNames, "i");
+        // 参数名追加一个`#i`遍历指令, 每个元素拼装前为其赋值
+        EvaluationContext context = null;
+        if (plan.dynamic) {
+            context = SpelCalculator.newContext(plan.argNames, appendArray(argValues, 0));
+        }
 
         int i = 0;
         for (Object multiElement : multiArgEntries) {
+            if (context != null) {
+                context.setVariable(MULTI_INDEX, i);
+                context.setVariable(plan.indexName, i);
+            }
 
-            // 给参数值数组的`#i`指令赋值
-            Object[] appendArgValues = appendArray(argValues, i);
-
-            String key = doGenerateKey(argIndex2CacheKey, prefix, appendArgNames, appendArgValues);
+            String key = plan.generate(argValues, i, context);
 
             key2MultiEntry.put(key, multiElement);
             multiEntry2Key.put(multiElement, key);
@@ -82,30 +97,8 @@ public class KeyGenerator {
         return new Map[]{multiEntry2Key, key2MultiEntry};
     }
 
-    private static String doGenerateKey(Map<Integer, CacheKey> parameterIndex2CacheKey,
-                                        String prefix, String[] argNames, Object[] argValues) {
-
-        StringBuilder sb = new StringBuilder(prefix);
-        for (Map.Entry<Integer, CacheKey> entry : parameterIndex2CacheKey.entrySet()) {
-            int argIndex = entry.getKey();
-            String argSpel = entry.getValue().value();
-
-            Object defaultValue = getDefaultValue(argValues, argIndex);
-            Object keyPart = SpelCalculator.calcSpelValueWithContext(argSpel, argNames, argValues, defaultValue);
-
-            sb.append(keyPart);
-
-        }
-
-        return sb.toString();
-    }
-
-    /**
-     * 获取当spel表达式为空(null or '')时, 默认的拼装keyPart
-     * 注意: 当multi的spel表达式为空时, 这时会将整个`Collection`实例作为keyPart(当然, 这种情况不会发生)...
-     */
-    private static Object getDefaultValue(Object[] argValues, int argIndex) {
-        return argValues[argIndex];
+    private static KeyPlan getPlan(AnnoHolder annoHolder) {
+        return plans.computeIfAbsent(annoHolder.getMethod(), method -> new KeyPlan(annoHolder));
     }
 
     /**
@@ -135,4 +128,104 @@ public class KeyGenerator {
 
         return dest;
     }
+
+    /**
+     * 单个方法的key拼装计划
+     */
+    private static final class KeyPlan {
+
+        private final String prefix;
+
+        // spel环境中的参数名, multi方法末尾追加`i`
+        private final String[] argNames;
+
+        // multi方法中`#i`对应的argsN变量名
+        private final String indexName;
+
+        // 每个keyPart取值的参数索引, 等于参数个数时表示`#i`; 需要计算表达式时为-1
+        private final int[] indexes;
+
+        private final Expression[] expressions;
+
+        // 是否有keyPart需要spel环境
+        private final boolean dynamic;
+
+        KeyPlan(AnnoHolder annoHolder) {
+            String[] names = ArgNameGenerator.getArgNames(annoHolder.getMethod());
+            if (annoHolder.isMulti()) {
+                names = Arrays.copyOf(names, names.length + 1);
+                names[names.length - 1] = MULTI_INDEX;
+            }
+            String[] xNames = ArgNameGenerator.getXArgNames(names.length);
+
+            Map<Integer, CacheKey> cacheKeyMap = annoHolder.getCacheKeyMap();
+            this.prefix = annoHolder.getPrefix();
+            this.argNames = names;
+            this.indexName = xNames.length == 0 ? MULTI_INDEX : xNames[xNames.length - 1];
+            this.indexes = new int[cacheKeyMap.size()];
+            this.expressions = new Expression[cacheKeyMap.size()];
+
+            boolean dynamic = false;
+            int part = 0;
+            for (Map.Entry<Integer, CacheKey> entry : cacheKeyMap.entrySet()) {
+                String spel = entry.getValue().value();
+                if (Strings.isNullOrEmpty(spel)) {
+                    // spel表达式为空(null or '')时, 默认以参数本身作为keyPart
+                    // 注意: 当multi的spel表达式为空时, 这时会将整个`Collection`实例作为keyPart(当然, 这种情况不会发生)...
+                    indexes[part] = entry.getKey();
+                } else {
+                    indexes[part] = indexOf(spel.trim(), names, xNames);
+                    if (indexes[part] < 0) {
+                        expressions[part] = SpelCalculator.parseExpression(spel);
+                        dynamic = true;
+                    }
+                }
+                ++part;
+            }
+            this.dynamic = dynamic;
+        }
+
+        // 形如`#name`的表达式直接解析为参数索引, 变量覆盖顺序与spel环境一致(argsN晚于参数名导入)
+        private static int indexOf(String spel, String[] names, String[] xNames) {
+            if (!VARIABLE.matcher(spel).matches()) {
+                return -1;
+            }
+
+            String name = spel.substring(1);
+            for (int i = xNames.length - 1; i >= 0; --i) {
+                if (xNames[i].equals(name)) {
+                    return i;
+                }
+            }
+            for (int i = names.length - 1; i >= 0; --i) {
+                if (names[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        String generate(Object[] argValues, int multiIndex, EvaluationContext context) {
+            if (indexes.length == 1 && expressions[0] == null) {
+                return prefix.concat(String.valueOf(valueOf(argValues, indexes[0], multiIndex)));
+            }
+
+            StringBuilder sb = new StringBuilder(prefix);
+            for (int part = 0; part < indexes.length; ++part) {
+                Expression expression = expressions[part];
+                if (expression == null) {
+                    sb.append(valueOf(argValues, indexes[part], multiIndex));
+                } else {
+                    sb.append(expression.getValue(context));
+                }
+            }
+
+            return sb.toString();
+        }
+
+        private Object valueOf(Object[] argValues, int index, int multiIndex) {
+            return index < argValues.length ? argValues[index] : multiIndex;
+        }
+    }
+
 }
@@ -27,12 +27,19 @@ package org.aoju.bus.cache.support;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * Spel表达式的计算功能(@Cached内的condition、@CacheKey内的spel只是作为一个增值服务, 并不作为核心功能, 只是作为key拼装的一个亮点, 并不是必须功能)
+ * 表达式解析结果按原文缓存, 并以MIXED模式在多次解释执行后编译为字节码, 编译失败时自动退回解释执行
  *
  * @author Kimi Liu
  * @version 5.9.8
@@ -40,14 +47,45 @@ import org.springframework.expression.spel.support.StandardEvaluationContext;
  */
 public class SpelCalculator {
 
-    private static final ExpressionParser parser = new SpelExpressionParser();
+    private static final ExpressionParser parser = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, SpelCalculator.class.getClassLoader()));
+
+    private static final ConcurrentMap<String, Expression> expressions = new ConcurrentHashMap<>();
 
     public static Object calcSpelValueWithContext(String spel, String[] argNames, Object[] argValues, Object defaultValue) {
         if (Strings.isNullOrEmpty(spel)) {
             return defaultValue;
         }
 
-        // 将[参数名->参数值]导入spel环境
+        return parseExpression(spel).getValue(newContext(argNames, argValues));
+    }
+
+    public static Object calcSpelWithNoContext(String spel, Object defaultValue) {
+        if (Strings.isNullOrEmpty(spel)) {
+            return defaultValue;
+        }
+
+        return parseExpression(spel).getValue(defaultValue);
+    }
+
+    /**
+     * 获取解析后的表达式, 同一表达式只解析一次
+     *
+     * @param spel 表达式
+     * @return 可重复执行的表达式
+     */
+    public static Expression parseExpression(String spel) {
+        return expressions.computeIfAbsent(spel, parser::parseExpression);
+    }
+
+    /**
+     * 将[参数名->参数值]及[argsN->参数值]导入spel环境
+     *
+     * @param argNames  参数名
+     * @param argValues 参数值
+     * @return spel环境
+     */
+    public static EvaluationContext newContext(String[] argNames, Object[] argValues) {
         EvaluationContext context = new StandardEvaluationContext();
 
         Preconditions.checkState(argNames.length == argValues.length);
@@ -61,15 +99,7 @@ public class SpelCalculator {
             context.setVariable(xArgNames[i], argValues[i]);
         }
 
-        return parser.parseExpression(spel).getValue(context);
-    }
-
-    public static Object calcSpelWithNoContext(String spel, Object defaultValue) {
-        if (Strings.isNullOrEmpty(spel)) {
-            return defaultValue;
-        }
-
-        return parser.parseExpression(spel).getValue(defaultValue);
+        return context;
     }
 
 }
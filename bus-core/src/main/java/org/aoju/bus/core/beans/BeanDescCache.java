@@ -27,6 +27,8 @@ package org.aoju.bus.core.beans;
 
 import org.aoju.bus.core.lang.SimpleCache;
 
+import java.util.function.Supplier;
+
 /**
  * Bean属性缓存
  * 缓存用于防止多次反射造成的性能问题
@@ -51,6 +53,17 @@ public enum BeanDescCache {
         return bdCache.get(beanClass);
     }
 
+    /**
+     * 获得属性名和{@link BeanDesc}Map映射,不存在时创建并加入缓存
+     *
+     * @param beanClass Bean的类
+     * @param supplier  缓存不存在时的创建方法
+     * @return 属性名和{@link BeanDesc}映射
+     */
+    public BeanDesc getBeanDesc(Class<?> beanClass, Supplier<BeanDesc> supplier) {
+        return bdCache.get(beanClass, supplier);
+    }
+
     /**
      * 加入缓存
      *
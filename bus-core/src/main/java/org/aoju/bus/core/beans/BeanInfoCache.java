@@ -28,6 +28,7 @@ import org.aoju.bus.core.lang.SimpleCache;
 
 import java.beans.PropertyDescriptor;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Bean属性缓存
@@ -55,6 +56,19 @@ public enum BeanInfoCache {
         return (ignoreCase ? ignoreCasePdCache : pdCache).get(beanClass);
     }
 
+    /**
+     * 获得属性名和{@link PropertyDescriptor}Map映射,不存在时创建并加入缓存
+     *
+     * @param beanClass  Bean的类
+     * @param ignoreCase 是否忽略大小写
+     * @param supplier   缓存不存在时的创建方法
+     * @return 属性名和{@link PropertyDescriptor}Map映射
+     */
+    public Map<String, PropertyDescriptor> getPropertyDescriptorMap(Class<?> beanClass, boolean ignoreCase,
+                                                                    Supplier<Map<String, PropertyDescriptor>> supplier) {
+        return (ignoreCase ? ignoreCasePdCache : pdCache).get(beanClass, supplier);
+    }
+
     /**
      * 加入缓存
      *
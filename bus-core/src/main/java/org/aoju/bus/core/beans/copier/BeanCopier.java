@@ -152,6 +152,10 @@ public class BeanCopier<T> implements Copier<T>, Serializable {
      * @param destBean     目标Bean
      */
     private void beanToBean(Object providerBean, Object destBean) {
+        if (this.copyOptions.compiled) {
+            CompiledCopier.of(providerBean.getClass(), destBean, this.destType, this.copyOptions).copy(providerBean, destBean);
+            return;
+        }
         valueProviderToBean(new BeanValueProvider(providerBean, this.copyOptions.ignoreCase, this.copyOptions.ignoreError), destBean);
     }
 
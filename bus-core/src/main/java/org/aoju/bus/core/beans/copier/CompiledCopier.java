@@ -0,0 +1,348 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.core.beans.copier;
+
+import org.aoju.bus.core.beans.BeanDesc;
+import org.aoju.bus.core.convert.Convert;
+import org.aoju.bus.core.lang.Normal;
+import org.aoju.bus.core.lang.Typed;
+import org.aoju.bus.core.lang.exception.InstrumentException;
+import org.aoju.bus.core.toolkit.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预编译的Bean拷贝计划
+ * 首次拷贝时按(源类型, 目标类型, 拷贝选项)解析出需要拷贝的属性、泛型参数的实际类型及是否需要类型转换,
+ * 并将getter/setter转换为{@link MethodHandle}, 之后的拷贝不再查找属性描述及进行反射调用;
+ * 拷贝规则与{@link BeanCopier}的反射拷贝保持一致
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+final class CompiledCopier {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /**
+     * 按目标类型分组缓存, 随目标类型一同回收, 避免长期持有已卸载的类
+     */
+    private static final ClassValue<Map<Key, CompiledCopier>> CACHE = new ClassValue<Map<Key, CompiledCopier>>() {
+        @Override
+        protected Map<Key, CompiledCopier> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final Property[] properties;
+    private final boolean ignoreNullValue;
+    private final boolean ignoreError;
+
+    private CompiledCopier(Class<?> sourceClass, Class<?> editable, Type destType, CopyOptions copyOptions) {
+        this.ignoreNullValue = copyOptions.ignoreNullValue;
+        this.ignoreError = copyOptions.ignoreError;
+
+        final Map<String, BeanDesc.PropDesc> sourcePdMap = BeanKit.getBeanDesc(sourceClass).getPropMap(copyOptions.ignoreCase);
+        final HashSet<String> ignoreSet = (null != copyOptions.ignoreProperties) ? CollKit.newHashSet(copyOptions.ignoreProperties) : null;
+        final Map<String, String> fieldReverseMapping = copyOptions.getReversedMapping();
+
+        final List<Property> properties = new ArrayList<>();
+        for (BeanDesc.PropDesc prop : BeanKit.getBeanDesc(editable).getProps()) {
+            final Field field = prop.getField();
+            final String fieldName = prop.getFieldName();
+            if (CollKit.contains(ignoreSet, fieldName)) {
+                continue;
+            }
+            final String providerKey = mappingKey(fieldReverseMapping, fieldName);
+            final String isKey = StringKit.upperFirstAndAddPre(providerKey, Normal.IS);
+            if (false == sourcePdMap.containsKey(providerKey) && false == sourcePdMap.containsKey(isKey)) {
+                continue;
+            }
+            final Method setterMethod = prop.getSetter();
+            if (null == setterMethod && false == BeanKit.isPublic(field)) {
+                continue;
+            }
+
+            final Type valueType = valueType(field, setterMethod, destType);
+            BeanDesc.PropDesc sourcePd = sourcePdMap.get(providerKey);
+            if (null == sourcePd && (Boolean.class == valueType || boolean.class == valueType)) {
+                // boolean类型字段字段名支持两种方式
+                sourcePd = sourcePdMap.get(isKey);
+            }
+            final Method getter = null == sourcePd ? null : sourcePd.getGetter();
+
+            properties.add(new Property(providerKey, fieldName, valueType, prop.getFieldClass(),
+                    null == getter ? null : getter(getter),
+                    null == getter || needConvert(valueType, getter.getReturnType()),
+                    null == setterMethod ? setter(field) : setter(setterMethod)));
+        }
+        this.properties = properties.toArray(new Property[0]);
+    }
+
+    /**
+     * 获取拷贝计划, 不存在时创建并缓存
+     *
+     * @param sourceClass 源Bean类型
+     * @param dest        目标Bean
+     * @param destType    目标的泛型类型
+     * @param copyOptions 拷贝选项
+     * @return 拷贝计划
+     */
+    static CompiledCopier of(Class<?> sourceClass, Object dest, Type destType, CopyOptions copyOptions) {
+        Class<?> editable = dest.getClass();
+        if (null != copyOptions.editable) {
+            // 检查限制类是否为target的父类或接口
+            if (false == copyOptions.editable.isInstance(dest)) {
+                throw new IllegalArgumentException(StringKit.format("Target class [{}] not assignable to Editable class [{}]", dest.getClass().getName(), copyOptions.editable.getName()));
+            }
+            editable = copyOptions.editable;
+        }
+
+        final Key key = new Key(sourceClass, editable, destType, copyOptions);
+        final Map<Key, CompiledCopier> copiers = CACHE.get(editable);
+        CompiledCopier copier = copiers.get(key);
+        if (null == copier) {
+            copier = new CompiledCopier(sourceClass, editable, destType, copyOptions);
+            CompiledCopier existing = copiers.putIfAbsent(key, copier);
+            if (null != existing) {
+                copier = existing;
+            }
+        }
+        return copier;
+    }
+
+    private static String mappingKey(Map<String, String> mapping, String fieldName) {
+        if (MapKit.isEmpty(mapping)) {
+            return fieldName;
+        }
+        return ObjectKit.defaultIfNull(mapping.get(fieldName), fieldName);
+    }
+
+    private static Type valueType(Field field, Method setterMethod, Type destType) {
+        Type valueType = (null == setterMethod) ? TypeKit.getType(field) : TypeKit.getFirstParamType(setterMethod);
+        if (valueType instanceof ParameterizedType) {
+            // 参数为泛型参数类型，解析对应泛型类型为真实类型
+            ParameterizedType tmp = (ParameterizedType) valueType;
+            Type[] actualTypeArguments = tmp.getActualTypeArguments();
+            if (TypeKit.hasTypeVeriable(actualTypeArguments)) {
+                actualTypeArguments = TypeKit.getActualTypes(destType, field.getDeclaringClass(), tmp.getActualTypeArguments());
+                if (ArrayKit.isNotEmpty(actualTypeArguments)) {
+                    valueType = new Typed(actualTypeArguments, tmp.getOwnerType(), tmp.getRawType());
+                }
+            }
+        } else if (valueType instanceof TypeVariable) {
+            valueType = TypeKit.getActualType(destType, field.getDeclaringClass(), valueType);
+        }
+        return valueType;
+    }
+
+    /**
+     * 目标为非泛型类型且getter返回值可直接赋值时, 无需类型转换
+     */
+    private static boolean needConvert(Type valueType, Class<?> returnType) {
+        if (false == valueType instanceof Class) {
+            return true;
+        }
+        return false == Convert.wrap((Class<?>) valueType).isAssignableFrom(Convert.wrap(returnType));
+    }
+
+    private static MethodHandle getter(Method getter) {
+        try {
+            ReflectKit.setAccessible(getter);
+            return LOOKUP.unreflect(getter).asType(GETTER_TYPE);
+        } catch (IllegalAccessException | SecurityException e) {
+            throw new InstrumentException(e);
+        }
+    }
+
+    private static MethodHandle setter(Method setter) {
+        try {
+            ReflectKit.setAccessible(setter);
+            return LOOKUP.unreflect(setter).asType(SETTER_TYPE);
+        } catch (IllegalAccessException | SecurityException e) {
+            throw new InstrumentException(e);
+        }
+    }
+
+    private static MethodHandle setter(Field field) {
+        try {
+            ReflectKit.setAccessible(field);
+            return LOOKUP.unreflectSetter(field).asType(SETTER_TYPE);
+        } catch (IllegalAccessException | SecurityException e) {
+            throw new InstrumentException(e);
+        }
+    }
+
+    /**
+     * 按计划拷贝属性
+     *
+     * @param source 源Bean
+     * @param bean   目标Bean
+     */
+    void copy(Object source, Object bean) {
+        for (Property property : properties) {
+            Object value = null;
+            if (null != property.getter) {
+                try {
+                    value = (Object) property.getter.invokeExact(source);
+                } catch (Throwable e) {
+                    if (false == ignoreError) {
+                        throw new InstrumentException("Inject [{}] error!", property.providerKey);
+                    }
+                }
+                if (property.convert) {
+                    // 尝试转换为目标类型，失败将返回原类型
+                    final Object convertValue = Convert.convertWithCheck(property.valueType, value, null, ignoreError);
+                    if (null != convertValue) {
+                        value = convertValue;
+                    }
+                }
+            }
+
+            if (null == value && ignoreNullValue) {
+                continue;// 当允许跳过空时，跳过
+            }
+            if (bean == value) {
+                continue;// 值不能为bean本身，防止循环引用
+            }
+
+            try {
+                if (false == property.wrapClass.isInstance(value)) {
+                    value = Convert.convert(property.fieldClass, value);
+                    if (null == value && ignoreNullValue) {
+                        continue;// 当允许跳过空时，跳过
+                    }
+                }
+                if (null == value && property.fieldClass.isPrimitive()) {
+                    // 基本类型不能拆箱null, 与反射注入一致使用默认值
+                    value = ClassKit.getDefaultValue(property.fieldClass);
+                }
+                property.setter.invokeExact(bean, value);
+            } catch (Throwable e) {
+                if (false == ignoreError) {
+                    throw new InstrumentException("Inject [{}] error!", property.fieldName);
+                }
+                // 忽略注入失败
+            }
+        }
+    }
+
+    /**
+     * 单个属性的拷贝计划
+     */
+    private static final class Property {
+
+        final String providerKey;
+        final String fieldName;
+        final Type valueType;
+        final Class<?> fieldClass;
+        // 基本类型的包装类型, 用于判断值是否需要转换(拆箱由MethodHandle完成)
+        final Class<?> wrapClass;
+        final MethodHandle getter;
+        final boolean convert;
+        final MethodHandle setter;
+
+        Property(String providerKey, String fieldName, Type valueType, Class<?> fieldClass,
+                 MethodHandle getter, boolean convert, MethodHandle setter) {
+            this.providerKey = providerKey;
+            this.fieldName = fieldName;
+            this.valueType = valueType;
+            this.fieldClass = fieldClass;
+            this.wrapClass = Convert.wrap(fieldClass);
+            this.getter = getter;
+            this.convert = convert;
+            this.setter = setter;
+        }
+    }
+
+    /**
+     * 缓存键: 拷贝选项在创建时复制, 之后对选项的修改会生成新的计划
+     */
+    private static final class Key {
+
+        private final Class<?> sourceClass;
+        private final Class<?> editable;
+        private final Type destType;
+        private final boolean ignoreNullValue;
+        private final boolean ignoreError;
+        private final boolean ignoreCase;
+        private final List<String> ignoreProperties;
+        private final Map<String, String> fieldMapping;
+        private final int hash;
+
+        Key(Class<?> sourceClass, Class<?> editable, Type destType, CopyOptions copyOptions) {
+            this.sourceClass = sourceClass;
+            this.editable = editable;
+            this.destType = destType;
+            this.ignoreNullValue = copyOptions.ignoreNullValue;
+            this.ignoreError = copyOptions.ignoreError;
+            this.ignoreCase = copyOptions.ignoreCase;
+            this.ignoreProperties = null == copyOptions.ignoreProperties
+                    ? Collections.emptyList() : Arrays.asList(copyOptions.ignoreProperties.clone());
+            this.fieldMapping = MapKit.isEmpty(copyOptions.fieldMapping)
+                    ? Collections.emptyMap() : new HashMap<>(copyOptions.fieldMapping);
+
+            int hash = sourceClass.hashCode();
+            hash = 31 * hash + editable.hashCode();
+            hash = 31 * hash + Objects.hashCode(destType);
+            hash = 31 * hash + (ignoreNullValue ? 1 : 0) + (ignoreError ? 2 : 0) + (ignoreCase ? 4 : 0);
+            hash = 31 * hash + ignoreProperties.hashCode();
+            this.hash = 31 * hash + fieldMapping.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (false == o instanceof Key) {
+                return false;
+            }
+            Key key = (Key) o;
+            return sourceClass == key.sourceClass
+                    && editable == key.editable
+                    && Objects.equals(destType, key.destType)
+                    && ignoreNullValue == key.ignoreNullValue
+                    && ignoreError == key.ignoreError
+                    && ignoreCase == key.ignoreCase
+                    && ignoreProperties.equals(key.ignoreProperties)
+                    && fieldMapping.equals(key.fieldMapping);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -66,6 +66,11 @@ public class CopyOptions {
      * 拷贝属性的字段映射,用于不同的属性之前拷贝做对应表用
      */
     protected Map<String, String> fieldMapping;
+    /**
+     * 是否使用预编译的拷贝计划,仅对Bean之间的拷贝生效
+     * 计划按源类型、目标类型及拷贝选项缓存,属性的读写使用{@link java.lang.invoke.MethodHandle}
+     */
+    protected boolean compiled;
 
     /**
      * 构造拷贝选项
@@ -173,6 +178,17 @@ public class CopyOptions {
         return this;
     }
 
+    /**
+     * 设置是否使用预编译的拷贝计划,仅对Bean之间的拷贝生效
+     *
+     * @param compiled 是否使用预编译的拷贝计划
+     * @return CopyOptions
+     */
+    public CopyOptions setCompiled(boolean compiled) {
+        this.compiled = compiled;
+        return this;
+    }
+
     /**
      * 获取反转之后的映射
      *
@@ -574,6 +574,33 @@ public class Convert {
         return (List<T>) toCollection(ArrayList.class, elementType, value);
     }
 
+    /**
+     * 批量转换为指定元素类型的列表,同类元素共用转换计划
+     *
+     * @param <T>    元素类型
+     * @param type   元素类型
+     * @param values 被转换的值,支持数组、集合、迭代器及逗号分隔的字符串
+     * @return {@link List}
+     * @throws InstrumentException 转换器不存在
+     */
+    public static <T> List<T> convertAll(Type type, Object values) throws InstrumentException {
+        return ConverterRegistry.getInstance().convertAll(type, values);
+    }
+
+    /**
+     * 批量转换行数据中指定列的值
+     *
+     * @param <T>  列值类型
+     * @param type 列值类型
+     * @param rows 行数据
+     * @param key  列名
+     * @return 列值列表
+     * @throws InstrumentException 转换器不存在
+     */
+    public static <T> List<T> convertColumn(Type type, Iterable<? extends Map<?, ?>> rows, Object key) throws InstrumentException {
+        return ConverterRegistry.getInstance().convertColumn(type, rows, key);
+    }
+
     /**
      * 转换为Map
      *
@@ -1055,4 +1082,37 @@ public class Convert {
         return convert(byte[].class, value);
     }
 
+    /**
+     * 转换为int数组,数字元素直接取值不经过装箱
+     *
+     * @param value        被转换的值
+     * @param defaultValue 元素为空或转换失败时的默认值
+     * @return int数组
+     */
+    public static int[] toPrimitiveIntArray(Object value, int defaultValue) {
+        return ConverterRegistry.getInstance().toIntArray(value, defaultValue);
+    }
+
+    /**
+     * 转换为long数组,数字元素直接取值不经过装箱
+     *
+     * @param value        被转换的值
+     * @param defaultValue 元素为空或转换失败时的默认值
+     * @return long数组
+     */
+    public static long[] toPrimitiveLongArray(Object value, long defaultValue) {
+        return ConverterRegistry.getInstance().toLongArray(value, defaultValue);
+    }
+
+    /**
+     * 转换为double数组,数字元素直接取值不经过装箱
+     *
+     * @param value        被转换的值
+     * @param defaultValue 元素为空或转换失败时的默认值
+     * @return double数组
+     */
+    public static double[] toPrimitiveDoubleArray(Object value, double defaultValue) {
+        return ConverterRegistry.getInstance().toDoubleArray(value, defaultValue);
+    }
+
 }
@@ -25,15 +25,14 @@
 package org.aoju.bus.core.convert;
 
 import org.aoju.bus.core.date.DateTime;
+import org.aoju.bus.core.lang.Symbol;
 import org.aoju.bus.core.lang.Types;
 import org.aoju.bus.core.lang.exception.InstrumentException;
-import org.aoju.bus.core.toolkit.BeanKit;
-import org.aoju.bus.core.toolkit.ObjectKit;
-import org.aoju.bus.core.toolkit.ReflectKit;
-import org.aoju.bus.core.toolkit.TypeKit;
+import org.aoju.bus.core.toolkit.*;
 
 import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -61,6 +60,15 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 public class ConverterRegistry {
 
+    /**
+     * 转换计划缓存上限，超出后清空重建
+     */
+    private static final int MAX_PLAN_SIZE = 4096;
+    /**
+     * 目标类型无法识别时的占位计划
+     */
+    private static final Plan UNRESOLVED = (value, defaultValue) -> value;
+
     /**
      * 默认类型转换器
      */
@@ -69,6 +77,18 @@ public class ConverterRegistry {
      * 用户自定义类型转换器
      */
     private volatile Map<Type, Converter<?>> customConverterMap;
+    /**
+     * 自定义转换器优先时的转换计划：目标类型 -> (源类型 -> 计划)
+     */
+    private final Map<Type, Map<Class<?>, Plan>> customFirstPlans = new ConcurrentHashMap<>();
+    /**
+     * 默认转换器优先时的转换计划：目标类型 -> (源类型 -> 计划)
+     */
+    private final Map<Type, Map<Class<?>, Plan>> defaultFirstPlans = new ConcurrentHashMap<>();
+    /**
+     * 已缓存的计划数
+     */
+    private final AtomicInteger planCount = new AtomicInteger();
 
     public ConverterRegistry() {
         defaultConverter();
@@ -110,6 +130,8 @@ public class ConverterRegistry {
             }
         }
         customConverterMap.put(type, converter);
+        // 自定义转换器影响查找结果，已解析的计划失效
+        clearPlans();
         return this;
     }
 
@@ -186,35 +208,17 @@ public class ConverterRegistry {
             type = ((Types<?>) type).getType();
         }
 
-        // 标准转换器
-        final Converter<T> converter = getConverter(type, isCustomFirst);
-        if (null != converter) {
-            return converter.convert(value, defaultValue);
+        final Plan plan = getPlan(type, value.getClass(), isCustomFirst);
+        if (UNRESOLVED != plan) {
+            return (T) plan.convert(value, defaultValue);
         }
 
-        Class<T> rowType = (Class<T>) TypeKit.getClass(type);
-        if (null == rowType) {
-            if (null != defaultValue) {
-                rowType = (Class<T>) defaultValue.getClass();
-            } else {
-                // 无法识别的泛型类型，按照Object处理
-                return (T) value;
-            }
+        if (null != defaultValue) {
+            // 无法识别的泛型类型，按照默认值类型处理，此情况不缓存
+            return (T) special(type, defaultValue.getClass(), value.getClass()).convert(value, defaultValue);
         }
-
-        // 特殊类型转换，包括Collection、Map、强转、Array等
-        final T result = convertSpecial(type, rowType, value, defaultValue);
-        if (null != result) {
-            return result;
-        }
-
-        // 尝试转Bean
-        if (BeanKit.isBean(rowType)) {
-            return new BeanConverter<T>(type).convert(value, defaultValue);
-        }
-
-        // 无法转换
-        throw new InstrumentException("No Converter for type [{}]", rowType.getName());
+        // 无法识别的泛型类型，按照Object处理
+        return (T) value;
     }
 
     /**
@@ -246,61 +250,372 @@ public class ConverterRegistry {
     }
 
     /**
-     * 特殊类型转换
+     * 批量转换值为指定类型，同类元素共用一次解析的转换计划
+     * 自定义转换器优先
+     *
+     * @param <T>    转换的目标类型(转换器转换到的类型)
+     * @param type   元素目标类型
+     * @param values 被转换的值，支持数组、{@link Iterable}、{@link Iterator}及逗号分隔的字符串，其它对象按单个元素处理
+     * @return 转换后的列表，{@code null}元素保持为{@code null}
+     * @throws InstrumentException 转换器不存在
+     */
+    public <T> List<T> convertAll(Type type, Object values) throws InstrumentException {
+        final Collection<?> elements = elements(values);
+        final List<T> result = new ArrayList<>(elements.size());
+        if (type instanceof Types) {
+            type = ((Types<?>) type).getType();
+        }
+        final Cursor cursor = new Cursor(type);
+        for (Object element : elements) {
+            result.add((T) cursor.convert(element, null));
+        }
+        return result;
+    }
+
+    /**
+     * 批量转换行数据中指定列的值，每行为一个{@link Map}
+     * 自定义转换器优先
+     *
+     * @param <T>  转换的目标类型(转换器转换到的类型)
+     * @param type 列目标类型
+     * @param rows 行数据
+     * @param key  列名
+     * @return 转换后的列值，行为{@code null}或不含此列时为{@code null}
+     * @throws InstrumentException 转换器不存在
+     */
+    public <T> List<T> convertColumn(Type type, Iterable<? extends Map<?, ?>> rows, Object key) throws InstrumentException {
+        final List<T> result = rows instanceof Collection ? new ArrayList<>(((Collection<?>) rows).size()) : new ArrayList<>();
+        if (type instanceof Types) {
+            type = ((Types<?>) type).getType();
+        }
+        final Cursor cursor = new Cursor(type);
+        for (Map<?, ?> row : rows) {
+            result.add((T) cursor.convert(null == row ? null : row.get(key), null));
+        }
+        return result;
+    }
+
+    /**
+     * 批量转换为int数组，{@link Number}元素及int、long、double数组直接取值，不经过装箱
+     *
+     * @param values       被转换的值，规则同{@link #convertAll(Type, Object)}
+     * @param defaultValue 元素为{@code null}或转换失败时的默认值
+     * @return int数组
+     */
+    public int[] toIntArray(Object values, int defaultValue) {
+        if (values instanceof int[]) {
+            return ((int[]) values).clone();
+        }
+        if (values instanceof long[]) {
+            final long[] array = (long[]) values;
+            final int[] result = new int[array.length];
+            for (int i = 0; i < array.length; i++) {
+                result[i] = (int) array[i];
+            }
+            return result;
+        }
+        if (values instanceof double[]) {
+            final double[] array = (double[]) values;
+            final int[] result = new int[array.length];
+            for (int i = 0; i < array.length; i++) {
+                result[i] = (int) array[i];
+            }
+            return result;
+        }
+        final Collection<?> elements = elements(values);
+        final int[] result = new int[elements.size()];
+        final Cursor cursor = new Cursor(int.class);
+        int i = 0;
+        for (Object element : elements) {
+            if (element instanceof Number) {
+                result[i++] = ((Number) element).intValue();
+            } else {
+                final Object value = cursor.convertQuietly(element);
+                result[i++] = value instanceof Number ? ((Number) value).intValue() : defaultValue;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量转换为long数组，{@link Number}元素及int、long、double数组直接取值，不经过装箱
+     *
+     * @param values       被转换的值，规则同{@link #convertAll(Type, Object)}
+     * @param defaultValue 元素为{@code null}或转换失败时的默认值
+     * @return long数组
+     */
+    public long[] toLongArray(Object values, long defaultValue) {
+        if (values instanceof long[]) {
+            return ((long[]) values).clone();
+        }
+        if (values instanceof int[]) {
+            final int[] array = (int[]) values;
+            final long[] result = new long[array.length];
+            for (int i = 0; i < array.length; i++) {
+                result[i] = array[i];
+            }
+            return result;
+        }
+        if (values instanceof double[]) {
+            final double[] array = (double[]) values;
+            final long[] result = new long[array.length];
+            for (int i = 0; i < array.length; i++) {
+                result[i] = (long) array[i];
+            }
+            return result;
+        }
+        final Collection<?> elements = elements(values);
+        final long[] result = new long[elements.size()];
+        final Cursor cursor = new Cursor(long.class);
+        int i = 0;
+        for (Object element : elements) {
+            if (element instanceof Number) {
+                result[i++] = ((Number) element).longValue();
+            } else {
+                final Object value = cursor.convertQuietly(element);
+                result[i++] = value instanceof Number ? ((Number) value).longValue() : defaultValue;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量转换为double数组，{@link Number}元素及int、long、double数组直接取值，不经过装箱
+     *
+     * @param values       被转换的值，规则同{@link #convertAll(Type, Object)}
+     * @param defaultValue 元素为{@code null}或转换失败时的默认值
+     * @return double数组
+     */
+    public double[] toDoubleArray(Object values, double defaultValue) {
+        if (values instanceof double[]) {
+            return ((double[]) values).clone();
+        }
+        if (values instanceof int[]) {
+            final int[] array = (int[]) values;
+            final double[] result = new double[array.length];
+            for (int i = 0; i < array.length; i++) {
+                result[i] = array[i];
+            }
+            return result;
+        }
+        if (values instanceof long[]) {
+            final long[] array = (long[]) values;
+            final double[] result = new double[array.length];
+            for (int i = 0; i < array.length; i++) {
+                result[i] = array[i];
+            }
+            return result;
+        }
+        final Collection<?> elements = elements(values);
+        final double[] result = new double[elements.size()];
+        final Cursor cursor = new Cursor(double.class);
+        int i = 0;
+        for (Object element : elements) {
+            if (element instanceof Number) {
+                result[i++] = ((Number) element).doubleValue();
+            } else {
+                final Object value = cursor.convertQuietly(element);
+                result[i++] = value instanceof Number ? ((Number) value).doubleValue() : defaultValue;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取(目标类型, 源类型)对应的转换计划，首次使用时解析并缓存
+     *
+     * @param type          目标类型
+     * @param sourceClass   被转换值的类型
+     * @param isCustomFirst 是否自定义转换器优先
+     * @return 转换计划，目标类型无法识别时返回{@link #UNRESOLVED}
+     */
+    private Plan getPlan(Type type, Class<?> sourceClass, boolean isCustomFirst) {
+        final Map<Type, Map<Class<?>, Plan>> plans = isCustomFirst ? customFirstPlans : defaultFirstPlans;
+        Map<Class<?>, Plan> sourcePlans = plans.get(type);
+        if (null == sourcePlans) {
+            sourcePlans = plans.computeIfAbsent(type, key -> new ConcurrentHashMap<>());
+        }
+        Plan plan = sourcePlans.get(sourceClass);
+        if (null == plan) {
+            plan = resolve(type, sourceClass, isCustomFirst);
+            if (planCount.incrementAndGet() > MAX_PLAN_SIZE) {
+                clearPlans();
+            }
+            final Plan previous = sourcePlans.putIfAbsent(sourceClass, plan);
+            if (null != previous) {
+                plan = previous;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * 解析转换计划，顺序与查找规则同{@link #convert(Type, Object, Object, boolean)}：
+     * 标准转换器、特殊类型(Collection、Map、强转、枚举、数组)、Bean
+     *
+     * @param type          目标类型
+     * @param sourceClass   被转换值的类型
+     * @param isCustomFirst 是否自定义转换器优先
+     * @return 转换计划
+     */
+    private Plan resolve(Type type, Class<?> sourceClass, boolean isCustomFirst) {
+        final Converter<Object> converter = getConverter(type, isCustomFirst);
+        if (null != converter) {
+            if (converter instanceof AbstractConverter) {
+                // 源类型已是目标类型时无需转换(Map类型涉及参数类型除外)，仅需校验默认值类型
+                final Class<?> targetType = ((AbstractConverter<?>) converter).getTargetType();
+                if (null != targetType && targetType.isAssignableFrom(sourceClass)
+                        && false == Map.class.isAssignableFrom(targetType)) {
+                    return (value, defaultValue) -> (null == defaultValue || targetType.isInstance(defaultValue))
+                            ? value : converter.convert(value, defaultValue);
+                }
+            }
+            return converter::convert;
+        }
+
+        final Class<?> rowType = TypeKit.getClass(type);
+        if (null == rowType) {
+            return UNRESOLVED;
+        }
+        return special(type, rowType, sourceClass);
+    }
+
+    /**
+     * 特殊类型转换计划
      * 包括：
      *
      * <pre>
      * Collection
      * Map
      * 强转(无需转换)
+     * 枚举
      * 数组
+     * Bean
      * </pre>
      *
-     * @param <T>          转换的目标类型(转换器转换到的类型)
-     * @param type         类型
-     * @param value        值
-     * @param defaultValue 默认值
-     * @return 转换后的值
+     * @param type        目标类型
+     * @param rowType     目标原始类型
+     * @param sourceClass 被转换值的类型
+     * @return 转换计划
      */
-    private <T> T convertSpecial(Type type, Class<T> rowType, Object value, T defaultValue) {
-        if (null == rowType) {
-            return null;
+    private Plan special(Type type, Class<?> rowType, Class<?> sourceClass) {
+        final Plan fallback;
+        if (BeanKit.isBean(rowType)) {
+            // 尝试转Bean
+            final BeanConverter<Object> beanConverter = new BeanConverter<>(type);
+            fallback = beanConverter::convert;
+        } else {
+            // 无法转换
+            fallback = (value, defaultValue) -> {
+                throw new InstrumentException("No Converter for type [{}]", rowType.getName());
+            };
         }
 
-        // 集合转换(不可以默认强转)
+        final Plan plan;
         if (Collection.class.isAssignableFrom(rowType)) {
+            // 集合转换(不可以默认强转)
             final CollectionConverter collectionConverter = new CollectionConverter(type);
-            return (T) collectionConverter.convert(value, (Collection<?>) defaultValue);
-        }
-
-        // Map类型(不可以默认强转)
-        if (Map.class.isAssignableFrom(rowType)) {
+            plan = (value, defaultValue) -> collectionConverter.convert(value, (Collection<?>) defaultValue);
+        } else if (Map.class.isAssignableFrom(rowType)) {
+            // Map类型(不可以默认强转)
             final MapConverter mapConverter = new MapConverter(type);
-            return (T) mapConverter.convert(value, (Map<?, ?>) defaultValue);
+            plan = (value, defaultValue) -> mapConverter.convert(value, (Map<?, ?>) defaultValue);
+        } else if (rowType.isAssignableFrom(sourceClass)) {
+            // 默认强转
+            return (value, defaultValue) -> value;
+        } else if (rowType.isEnum()) {
+            // 枚举转换
+            final EnumConverter enumConverter = new EnumConverter(rowType);
+            plan = enumConverter::convert;
+        } else if (rowType.isArray()) {
+            // 数组转换，失败进行下一步
+            final ArrayConverter arrayConverter = new ArrayConverter(rowType);
+            plan = (value, defaultValue) -> {
+                try {
+                    return arrayConverter.convert(value, defaultValue);
+                } catch (Exception e) {
+                    return null;
+                }
+            };
+        } else {
+            return fallback;
         }
 
-        // 默认强转
-        if (rowType.isInstance(value)) {
-            return (T) value;
-        }
+        return (value, defaultValue) -> {
+            final Object result = plan.convert(value, defaultValue);
+            return null != result ? result : fallback.convert(value, defaultValue);
+        };
+    }
 
-        // 枚举转换
-        if (rowType.isEnum()) {
-            return (T) new EnumConverter(rowType).convert(value, defaultValue);
-        }
+    /**
+     * 清空转换计划缓存
+     */
+    private void clearPlans() {
+        customFirstPlans.clear();
+        defaultFirstPlans.clear();
+        planCount.set(0);
+    }
 
-        // 数组转换
-        if (rowType.isArray()) {
-            final ArrayConverter arrayConverter = new ArrayConverter(rowType);
-            try {
-                return (T) arrayConverter.convert(value, defaultValue);
-            } catch (Exception e) {
-                // 数组转换失败进行下一步
+    /**
+     * 将批量值转为可遍历的集合
+     *
+     * @param values 批量值
+     * @return 集合
+     */
+    private static Collection<?> elements(Object values) {
+        if (null == values) {
+            return Collections.emptyList();
+        }
+        if (values instanceof Collection) {
+            return (Collection<?>) values;
+        }
+        if (values instanceof Object[]) {
+            return Arrays.asList((Object[]) values);
+        }
+        if (values instanceof int[]) {
+            final int[] array = (int[]) values;
+            final List<Object> list = new ArrayList<>(array.length);
+            for (int value : array) {
+                list.add(value);
             }
+            return list;
         }
-
-        // 表示非需要特殊转换的对象
-        return null;
+        if (values instanceof long[]) {
+            final long[] array = (long[]) values;
+            final List<Object> list = new ArrayList<>(array.length);
+            for (long value : array) {
+                list.add(value);
+            }
+            return list;
+        }
+        if (values instanceof double[]) {
+            final double[] array = (double[]) values;
+            final List<Object> list = new ArrayList<>(array.length);
+            for (double value : array) {
+                list.add(value);
+            }
+            return list;
+        }
+        if (values.getClass().isArray()) {
+            // 其它原始类型数组
+            final int length = Array.getLength(values);
+            final List<Object> list = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                list.add(Array.get(values, i));
+            }
+            return list;
+        }
+        if (values instanceof Iterable) {
+            return IterKit.toList((Iterable<?>) values);
+        }
+        if (values instanceof Iterator) {
+            return IterKit.toList((Iterator<?>) values);
+        }
+        if (values instanceof CharSequence) {
+            // 单纯字符串情况下按照逗号分隔后劈开
+            return Arrays.asList(StringKit.split(values.toString(), Symbol.COMMA));
+        }
+        return Collections.singletonList(values);
     }
 
     /**
@@ -382,6 +697,60 @@ public class ConverterRegistry {
         return this;
     }
 
+    /**
+     * 转换计划，由(目标类型, 源类型)解析一次后复用
+     */
+    @FunctionalInterface
+    private interface Plan {
+
+        /**
+         * 转换
+         *
+         * @param value        被转换值，非{@code null}
+         * @param defaultValue 默认值
+         * @return 转换后的值
+         */
+        Object convert(Object value, Object defaultValue);
+
+    }
+
+    /**
+     * 批量转换游标，缓存上一个元素类型对应的计划，同类元素无需查表
+     */
+    private class Cursor {
+
+        private final Type type;
+        private Class<?> lastClass;
+        private Plan lastPlan;
+
+        Cursor(Type type) {
+            this.type = type;
+        }
+
+        Object convert(Object value, Object defaultValue) {
+            if (ObjectKit.isNull(value)) {
+                return defaultValue;
+            }
+            if (TypeKit.isUnknow(type)) {
+                return value;
+            }
+            final Class<?> sourceClass = value.getClass();
+            if (sourceClass != lastClass) {
+                lastPlan = getPlan(type, sourceClass, true);
+                lastClass = sourceClass;
+            }
+            return UNRESOLVED == lastPlan ? value : lastPlan.convert(value, defaultValue);
+        }
+
+        Object convertQuietly(Object value) {
+            try {
+                return convert(value, null);
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+    }
+
     /**
      * 类级的内部类，也就是静态的成员式内部类，该内部类的实例与外部类的实例 没有绑定关系，而且只有被调用到才会装载，从而实现了延迟加载
      */
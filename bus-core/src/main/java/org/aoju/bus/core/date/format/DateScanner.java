@@ -0,0 +1,396 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.core.date.format;
+
+import org.aoju.bus.core.date.DateTime;
+import org.aoju.bus.core.lang.Fields;
+import org.aoju.bus.core.lang.Symbol;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.TimeZone;
+
+/**
+ * 常见日期格式的快速解析
+ * 直接扫描字符序列,不使用正则,也不创建中间字符串,支持的格式:
+ * <ol>
+ * <li>yyyyMMdd、yyyyMMddHHmmss、yyyyMMddHHmmssSSS、HHmmss</li>
+ * <li>yyyy-M-d、yyyy-M-d H:m、yyyy-M-d H:m:s、yyyy-M-d H:m:s.SSS(分隔符可为"-"、"/"、".")</li>
+ * <li>H:m、H:m:s(日期为当天)</li>
+ * <li>yyyy-MM-dd'T'HH:mm:ss[.S-SSSSSSSSS](Z|+HHmm|+HH:mm)</li>
+ * </ol>
+ * 时区与{@link Fields}中对应格式一致,不支持的格式或超出范围的值返回{@code null},由调用方按原有规则解析
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+public final class DateScanner {
+
+    /**
+     * 本地格式使用的时区
+     */
+    private static final TimeZone LOCAL_TIME_ZONE = Fields.NORM_DATETIME_FORMAT.getTimeZone();
+    private static final ZoneId LOCAL_ZONE = LOCAL_TIME_ZONE.toZoneId();
+    private static final ZoneRules LOCAL_RULES = LOCAL_ZONE.getRules();
+    /**
+     * ISO8601格式使用的时区
+     */
+    private static final TimeZone UTC_TIME_ZONE = Fields.UTC_FORMAT.getTimeZone();
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+    /**
+     * 时区切换检测范围,覆盖跨越整天的切换
+     */
+    private static final long TRANSITION_WINDOW = 2 * MILLIS_PER_DAY;
+    private static final int DAYS_0000_TO_1970 = 719528;
+
+    /**
+     * 解析常见格式的日期字符串
+     *
+     * @param text 日期字符串
+     * @return 日期, 格式不支持时返回{@code null}
+     */
+    public static DateTime parse(CharSequence text) {
+        if (null == text) {
+            return null;
+        }
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= Symbol.C_SPACE) {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= Symbol.C_SPACE) {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+
+        if (isDigits(text, start, end)) {
+            return parsePure(text, start, end);
+        }
+        if (end - start >= 3 && end - start <= 8
+                && (text.charAt(start + 1) == Symbol.C_COLON || text.charAt(start + 2) == Symbol.C_COLON)) {
+            return parseTime(text, start, end);
+        }
+        return parseDate(text, start, end);
+    }
+
+    /**
+     * 生成字符串的形态,数字统一为'9',其它字符保持不变,同一形态的字符串使用相同的格式解析
+     *
+     * @param text 日期字符串
+     * @return 形态
+     */
+    public static String shape(CharSequence text) {
+        final char[] chars = new char[text.length()];
+        for (int i = 0; i < chars.length; i++) {
+            final char c = text.charAt(i);
+            chars[i] = isDigit(c) ? '9' : c;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 纯数字: yyyyMMdd、yyyyMMddHHmmss、yyyyMMddHHmmssSSS、HHmmss
+     */
+    private static DateTime parsePure(CharSequence text, int start, int end) {
+        switch (end - start) {
+            case 6:
+                return local(1970, 1, 1, number(text, start, 2), number(text, start + 2, 2), number(text, start + 4, 2), 0);
+            case 8:
+                return local(number(text, start, 4), number(text, start + 4, 2), number(text, start + 6, 2), 0, 0, 0, 0);
+            case 14:
+            case 17:
+                return local(number(text, start, 4), number(text, start + 4, 2), number(text, start + 6, 2),
+                        number(text, start + 8, 2), number(text, start + 10, 2), number(text, start + 12, 2),
+                        end - start == 17 ? number(text, start + 14, 3) : 0);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 时间: H:m、H:m:s,日期为当天
+     */
+    private static DateTime parseTime(CharSequence text, int start, int end) {
+        final int[] fields = new int[3];
+        final int pos = scanTime(text, start, end, fields);
+        if (pos != end) {
+            return null;
+        }
+        final LocalDate today = LocalDate.now(LOCAL_ZONE);
+        return local(today.getYear(), today.getMonthValue(), today.getDayOfMonth(), fields[0], fields[1], fields[2], 0);
+    }
+
+    /**
+     * 日期及日期时间
+     */
+    private static DateTime parseDate(CharSequence text, int start, int end) {
+        if (end - start < 8 || false == isDigits(text, start, start + 4) || false == isDateSeparator(text.charAt(start + 4))) {
+            return null;
+        }
+        final int year = number(text, start, 4);
+        int pos = start + 5;
+        final int monthEnd = digitsEnd(text, pos, end, 2);
+        if (monthEnd == pos || monthEnd == end || false == isDateSeparator(text.charAt(monthEnd))) {
+            return null;
+        }
+        final int month = number(text, pos, monthEnd - pos);
+        pos = monthEnd + 1;
+        final int dayEnd = digitsEnd(text, pos, end, 2);
+        if (dayEnd == pos) {
+            return null;
+        }
+        final int day = number(text, pos, dayEnd - pos);
+        if (dayEnd == end) {
+            return local(year, month, day, 0, 0, 0, 0);
+        }
+
+        final char separator = text.charAt(dayEnd);
+        if (separator == 'T') {
+            return parseIso(text, start, end, year, month, day);
+        }
+        if (separator != Symbol.C_SPACE) {
+            return null;
+        }
+
+        final int[] fields = new int[3];
+        pos = scanTime(text, dayEnd + 1, end, fields);
+        if (pos < 0) {
+            return null;
+        }
+        int millis = 0;
+        if (pos != end) {
+            // 毫秒只支持3位,且秒必须存在
+            final char c = text.charAt(pos);
+            if ((c != Symbol.C_DOT && c != Symbol.C_COMMA) || end - pos != 4 || false == isDigits(text, pos + 1, end)
+                    || count(text, dayEnd + 1, pos, Symbol.C_COLON) != 2) {
+                return null;
+            }
+            millis = number(text, pos + 1, 3);
+        }
+        return local(year, month, day, fields[0], fields[1], fields[2], millis);
+    }
+
+    /**
+     * ISO8601: yyyy-MM-dd'T'HH:mm:ss[.S-SSSSSSSSS](Z|+HHmm|+HH:mm),结果时区为UTC
+     */
+    private static DateTime parseIso(CharSequence text, int start, int end, int year, int month, int day) {
+        // 日期部分必须为标准的yyyy-MM-dd
+        int pos = start + 10;
+        if (text.charAt(start + 4) != Symbol.C_HYPHEN || text.charAt(start + 7) != Symbol.C_HYPHEN
+                || pos + 9 > end || text.charAt(pos) != 'T'
+                || text.charAt(pos + 3) != Symbol.C_COLON || text.charAt(pos + 6) != Symbol.C_COLON
+                || false == isDigits(text, pos + 1, pos + 3) || false == isDigits(text, pos + 4, pos + 6)
+                || false == isDigits(text, pos + 7, pos + 9)) {
+            return null;
+        }
+        final int hour = number(text, pos + 1, 2);
+        final int minute = number(text, pos + 4, 2);
+        final int second = number(text, pos + 7, 2);
+        pos += 9;
+
+        int millis = 0;
+        if (pos < end && text.charAt(pos) == Symbol.C_DOT) {
+            final int fractionEnd = digitsEnd(text, pos + 1, end, 9);
+            final int digits = fractionEnd - pos - 1;
+            if (digits == 0) {
+                return null;
+            }
+            millis = number(text, pos + 1, Math.min(digits, 3));
+            for (int i = digits; i < 3; i++) {
+                millis *= 10;
+            }
+            pos = fractionEnd;
+        }
+
+        final int offsetSeconds;
+        if (pos + 1 == end && text.charAt(pos) == 'Z') {
+            offsetSeconds = 0;
+        } else if (pos < end && (text.charAt(pos) == Symbol.C_PLUS || text.charAt(pos) == Symbol.C_HYPHEN)) {
+            final int sign = text.charAt(pos) == Symbol.C_PLUS ? 1 : -1;
+            final int length = end - pos;
+            final int minuteStart;
+            if (length == 5 && isDigits(text, pos + 1, end)) {
+                minuteStart = pos + 3;
+            } else if (length == 6 && text.charAt(pos + 3) == Symbol.C_COLON
+                    && isDigits(text, pos + 1, pos + 3) && isDigits(text, pos + 4, end)) {
+                minuteStart = pos + 4;
+            } else {
+                return null;
+            }
+            final int offsetHour = number(text, pos + 1, 2);
+            final int offsetMinute = number(text, minuteStart, 2);
+            if (offsetHour > 18 || offsetMinute > 59) {
+                return null;
+            }
+            offsetSeconds = sign * (offsetHour * 3600 + offsetMinute * 60);
+        } else {
+            return null;
+        }
+
+        if (false == isValid(year, month, day, hour, minute, second)) {
+            return null;
+        }
+        final long epochMillis = epochMillis(year, month, day, hour, minute, second, millis) - offsetSeconds * 1000L;
+        return new DateTime(epochMillis, UTC_TIME_ZONE);
+    }
+
+    /**
+     * 扫描H:m或H:m:s,各部分1到2位数字
+     *
+     * @param fields 时、分、秒
+     * @return 结束位置, 不匹配返回-1
+     */
+    private static int scanTime(CharSequence text, int pos, int end, int[] fields) {
+        fields[2] = 0;
+        for (int i = 0; i < 3; i++) {
+            if (i > 0) {
+                if (pos == end || text.charAt(pos) != Symbol.C_COLON) {
+                    return i == 2 ? pos : -1;
+                }
+                pos++;
+            }
+            final int numberEnd = digitsEnd(text, pos, end, 2);
+            if (numberEnd == pos) {
+                return -1;
+            }
+            fields[i] = number(text, pos, numberEnd - pos);
+            pos = numberEnd;
+        }
+        return pos;
+    }
+
+    /**
+     * 按本地时区构建日期,值超出范围或临近时区切换时返回{@code null}
+     */
+    private static DateTime local(int year, int month, int day, int hour, int minute, int second, int millis) {
+        if (false == isValid(year, month, day, hour, minute, second)) {
+            return null;
+        }
+        final long wallMillis = epochMillis(year, month, day, hour, minute, second, millis);
+        if (LOCAL_RULES.isFixedOffset()) {
+            return new DateTime(wallMillis - LOCAL_RULES.getOffset(Instant.EPOCH).getTotalSeconds() * 1000L, LOCAL_TIME_ZONE);
+        }
+        // 与Calendar一致使用TimeZone的偏移,临近时区切换(夏令时间隙或重叠)时交由Calendar处理
+        final int offset = LOCAL_TIME_ZONE.getOffset(wallMillis - LOCAL_TIME_ZONE.getRawOffset());
+        final long epochMillis = wallMillis - offset;
+        if (LOCAL_TIME_ZONE.getOffset(epochMillis) != offset
+                || LOCAL_TIME_ZONE.getOffset(epochMillis - TRANSITION_WINDOW) != offset
+                || LOCAL_TIME_ZONE.getOffset(epochMillis + TRANSITION_WINDOW) != offset) {
+            return null;
+        }
+        return new DateTime(epochMillis, LOCAL_TIME_ZONE);
+    }
+
+    private static boolean isValid(int year, int month, int day, int hour, int minute, int second) {
+        // 1600年之前涉及儒略历切换,交由Calendar处理
+        return year >= 1600 && month >= 1 && month <= 12 && day >= 1 && day <= lengthOfMonth(year, month)
+                && hour <= 23 && minute <= 59 && second <= 59;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * UTC时间对应的毫秒数,与{@link LocalDate#toEpochDay()}算法一致
+     */
+    private static long epochMillis(int year, int month, int day, int hour, int minute, int second, int millis) {
+        long total = 365L * year;
+        total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (lengthOfMonth(year, 2) == 28) {
+                total--;
+            }
+        }
+        final long epochDay = total - DAYS_0000_TO_1970;
+        return epochDay * MILLIS_PER_DAY + hour * 3600000L + minute * 60000L + second * 1000L + millis;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isDigits(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (false == isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int count(CharSequence text, int start, int end, char c) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == c) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isDateSeparator(char c) {
+        return c == Symbol.C_HYPHEN || c == Symbol.C_SLASH || c == Symbol.C_DOT;
+    }
+
+    /**
+     * 从指定位置开始连续数字的结束位置,最多max位
+     */
+    private static int digitsEnd(CharSequence text, int pos, int end, int max) {
+        final int limit = Math.min(end, pos + max);
+        while (pos < limit && isDigit(text.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int number(CharSequence text, int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+        }
+        return value;
+    }
+
+}
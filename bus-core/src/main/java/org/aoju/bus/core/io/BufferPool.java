@@ -24,8 +24,6 @@
  ********************************************************************************/
 package org.aoju.bus.core.io;
 
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -37,12 +35,11 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class BufferPool {
 
-    private static Timer timer = new Timer("BufferPoolClean", true);
     private PageBuffer[] pageBufferList;
     /**
      * 内存页游标
      */
-    private volatile AtomicInteger cursor = new AtomicInteger(0);
+    private final AtomicInteger cursor = new AtomicInteger(0);
 
     /**
      * @param pageSize 内存页大小
@@ -54,14 +51,6 @@ public class BufferPool {
         for (int i = 0; i < poolSize; i++) {
             pageBufferList[i] = new PageBuffer(pageSize, isDirect);
         }
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                for (PageBuffer pageBuffer : pageBufferList) {
-                    pageBuffer.tryClean();
-                }
-            }
-        }, 500, 1000);
     }
 
     /**
@@ -70,8 +59,45 @@ public class BufferPool {
      * @return 缓存页对象
      */
     public PageBuffer allocateBufferPage() {
-        //轮训游标,均衡分配内存页
-        return pageBufferList[cursor.getAndIncrement() % pageBufferList.length];
+        //轮训游标,均衡分配内存页(游标溢出后仍为非负数)
+        return pageBufferList[(cursor.getAndIncrement() & Integer.MAX_VALUE) % pageBufferList.length];
+    }
+
+    /**
+     * 全部内存页
+     *
+     * @return 内存页
+     */
+    public PageBuffer[] getPageBuffers() {
+        return pageBufferList.clone();
+    }
+
+    /**
+     * 堆外内存的总容量
+     *
+     * @return 字节数
+     */
+    public long getDirectCapacity() {
+        long capacity = 0;
+        for (PageBuffer pageBuffer : pageBufferList) {
+            if (pageBuffer.isDirect()) {
+                capacity += pageBuffer.getCapacity();
+            }
+        }
+        return capacity;
+    }
+
+    /**
+     * 全部内存页退回堆内存分配的次数
+     *
+     * @return 次数
+     */
+    public long getFallbackCount() {
+        long count = 0;
+        for (PageBuffer pageBuffer : pageBufferList) {
+            count += pageBuffer.getFallbackCount();
+        }
+        return count;
     }
 
 }
@@ -24,9 +24,14 @@
  ********************************************************************************/
 package org.aoju.bus.core.io;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * 这是避免GC搅动和零填充所必需的
  * 这个池是一个线程安全的静态单例
+ * 池按线程分为多个分段,每个分段是一个无锁的单链表,分段被其他线程占用时直接新建(或丢弃)而不等待;
+ * 总容量可通过系统属性{@code bus.io.pool.size}(字节)或{@link #setMaxSize(long)}配置,平均分配到各分段
  *
  * @author Kimi Liu
  * @version 5.9.8
@@ -34,39 +39,134 @@ package org.aoju.bus.core.io;
  */
 public final class LifeCycle {
 
-    static final long MAX_SIZE = 64 * 1024;
+    /**
+     * 分段数量,不少于CPU核数的2的幂
+     */
+    static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+
+    /**
+     * 分段被占用时的标记
+     */
+    static final Segment LOCK = new Segment(new byte[0], 0, 0, false, false);
+
+    /**
+     * 每个分段的头节点,头节点的{@code limit}记录该分段缓存的字节数
+     */
+    static final AtomicReferenceArray<Segment> HEADS = new AtomicReferenceArray<>(STRIPES);
+
+    static final LongAdder HITS = new LongAdder();
 
-    static Segment next;
+    static final LongAdder MISSES = new LongAdder();
 
-    static long byteCount;
+    /**
+     * 每个分段的容量上限(字节)
+     */
+    static volatile long stripeSize = Math.max(Segment.SIZE,
+            Long.getLong("bus.io.pool.size", 64 * 1024L * STRIPES) / STRIPES);
 
     private LifeCycle() {
 
     }
 
     public static Segment take() {
-        synchronized (LifeCycle.class) {
-            if (next != null) {
-                Segment result = next;
-                next = result.next;
-                result.next = null;
-                byteCount -= Segment.SIZE;
-                return result;
-            }
+        int stripe = stripe();
+
+        Segment first = HEADS.getAndSet(stripe, LOCK);
+        if (first == LOCK) {
+            // 分段正在被其他线程使用,不等待
+            MISSES.increment();
+            return new Segment();
+        }
+        if (first == null) {
+            HEADS.set(stripe, null);
+            MISSES.increment();
+            return new Segment();
         }
-        return new Segment();
+
+        HEADS.set(stripe, first.next);
+        first.next = null;
+        first.limit = 0;
+        HITS.increment();
+        return first;
     }
 
     public static void recycle(Segment segment) {
         if (segment.next != null || segment.prev != null) throw new IllegalArgumentException();
         if (segment.shared) return;
-        synchronized (LifeCycle.class) {
-            if (byteCount + Segment.SIZE > MAX_SIZE) return;
-            byteCount += Segment.SIZE;
-            segment.next = next;
-            segment.pos = segment.limit = 0;
-            next = segment;
+        int stripe = stripe();
+
+        Segment first = HEADS.getAndSet(stripe, LOCK);
+        if (first == LOCK) {
+            // 分段正在被其他线程使用,丢弃该段
+            return;
+        }
+        int firstLimit = first != null ? first.limit : 0;
+        if (firstLimit + Segment.SIZE > stripeSize) {
+            // 超出容量上限,丢弃该段
+            HEADS.set(stripe, first);
+            return;
         }
+
+        segment.next = first;
+        segment.pos = 0;
+        segment.limit = firstLimit + Segment.SIZE;
+        HEADS.set(stripe, segment);
+    }
+
+    /**
+     * 设置池的总容量,超出部分的段在下次回收时丢弃
+     *
+     * @param maxSize 总容量(字节)
+     */
+    public static void setMaxSize(long maxSize) {
+        stripeSize = Math.max(0, maxSize / STRIPES);
+    }
+
+    /**
+     * 池的总容量
+     *
+     * @return 总容量(字节)
+     */
+    public static long getMaxSize() {
+        return stripeSize * STRIPES;
+    }
+
+    /**
+     * 池中当前缓存的字节数,正被占用的分段不计入
+     *
+     * @return 字节数
+     */
+    public static long getByteCount() {
+        long byteCount = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            Segment first = HEADS.get(i);
+            if (first != null && first != LOCK) {
+                byteCount += first.limit;
+            }
+        }
+        return byteCount;
+    }
+
+    /**
+     * 从池中取得段的次数
+     *
+     * @return 命中次数
+     */
+    public static long getHitCount() {
+        return HITS.sum();
+    }
+
+    /**
+     * 池为空或被占用而新建段的次数
+     *
+     * @return 未命中次数
+     */
+    public static long getMissCount() {
+        return MISSES.sum();
+    }
+
+    private static int stripe() {
+        return (int) (Thread.currentThread().getId() & (STRIPES - 1L));
     }
 
 }
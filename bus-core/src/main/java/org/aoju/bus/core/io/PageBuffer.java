@@ -24,17 +24,23 @@
  ********************************************************************************/
 package org.aoju.bus.core.io;
 
-import org.aoju.bus.core.lang.Normal;
-
 import java.nio.ByteBuffer;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * ByteBuffer内存页
+ * 内存页按2的幂划分规格(最小64字节, 最大不超过页大小), 每次申请取不小于所需大小的最小规格:
+ * 优先从当前线程缓存取得, 其次从该规格的共享空闲栈取得, 再次从页中未划分的空间切出,
+ * 最后将更大规格的空闲块逐级对半拆分, 取其中一块, 其余按规格归还共享空闲栈;
+ * 块由申请它的线程释放时放回该线程的缓存, 其他线程释放或线程缓存已满时归还共享空闲栈,
+ * 已结束线程的缓存在有新线程申请或页空间耗尽时归还共享空闲栈;
+ * 页空间耗尽或申请超出页大小时退回为堆内存分配, 并计入{@link #getFallbackCount()};
+ * 块释放后不会与相邻块合并, 页空间被小规格块划分完之后, 即使这些块全部空闲, 较大规格的申请仍会退回堆内存分配;
+ * 共享空闲栈为无锁栈(Treiber stack), 栈顶以"版本号+块序号"打包为long并通过CAS更新, 版本号避免ABA问题
  *
  * @author Kimi Liu
  * @version 5.9.8
@@ -43,30 +49,54 @@ import java.util.concurrent.locks.ReentrantLock;
 public class PageBuffer {
 
     /**
-     * 当前空闲的虚拟Buffer
+     * 最小规格为 1 &lt;&lt; MIN_SHIFT 字节
      */
-    private List<VirtualBuffer> availableBuffers;
+    private static final int MIN_SHIFT = 6;
     /**
-     * 待回收的虚拟Buffer
+     * 每个线程每种规格缓存的块数
      */
-    private ConcurrentLinkedQueue<VirtualBuffer> cleanBuffers = new ConcurrentLinkedQueue<>();
+    private static final int CACHE_SIZE = 4;
 
     /**
      * 当前缓存页的物理缓冲区
      */
-    private ByteBuffer buffer;
-    private ReentrantLock lock = new ReentrantLock();
-
-    private long lastAllocateTime;
+    private final ByteBuffer buffer;
+    private final boolean direct;
+    /**
+     * 各规格共享空闲栈的栈顶: 高32位为版本号, 低32位为块序号+1(0表示空栈)
+     */
+    private final AtomicLongArray freeLists;
+    /**
+     * 按块序号(起始位置 &gt;&gt; MIN_SHIFT)索引的已划分块
+     */
+    private final VirtualBuffer[] chunks;
+    /**
+     * 页中已划分空间的末尾
+     */
+    private final AtomicInteger cursor = new AtomicInteger();
+    /**
+     * 全部线程缓存, 用于回收已结束线程缓存中的块
+     */
+    private final Queue<Cache> caches = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Cache> threadCache = ThreadLocal.withInitial(this::newCache);
+    private final LongAdder allocateCount = new LongAdder();
+    private final LongAdder fallbackCount = new LongAdder();
 
     /**
      * @param size   缓存页大小
      * @param direct 是否使用堆外内存
      */
     PageBuffer(int size, boolean direct) {
-        availableBuffers = new LinkedList<>();
         this.buffer = allocate0(size, direct);
-        availableBuffers.add(new VirtualBuffer(this, null, buffer.position(), buffer.limit()));
+        this.direct = direct;
+
+        int classes = Math.max(0, 32 - Integer.numberOfLeadingZeros(size) - MIN_SHIFT);
+        this.freeLists = new AtomicLongArray(classes);
+        this.chunks = new VirtualBuffer[size >> MIN_SHIFT];
+    }
+
+    private static int slabOf(int size) {
+        return Math.max(0, 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT);
     }
 
     /**
@@ -81,117 +111,244 @@ public class PageBuffer {
     }
 
     public VirtualBuffer allocate(final int size) {
-        lastAllocateTime = System.currentTimeMillis();
-        VirtualBuffer cleanBuffer = cleanBuffers.poll();
-        if (cleanBuffer != null && cleanBuffer.getParentLimit() - cleanBuffer.getParentPosition() >= size) {
-            cleanBuffer.buffer().clear();
-            cleanBuffer.buffer(cleanBuffer.buffer());
-            return cleanBuffer;
-        }
-        lock.lock();
-        try {
-            if (cleanBuffer != null) {
-                clean0(cleanBuffer);
+        allocateCount.increment();
+        int slab = slabOf(size);
+        if (size > 0 && slab < freeLists.length()) {
+            Cache cache = threadCache.get();
+            VirtualBuffer chunk = cache.poll(slab);
+            if (chunk == null) {
+                chunk = take(slab, cache);
             }
-            while ((cleanBuffer = cleanBuffers.poll()) != null) {
-                if (cleanBuffer.getParentLimit() - cleanBuffer.getParentPosition() >= size) {
-                    cleanBuffer.buffer().clear();
-                    cleanBuffer.buffer(cleanBuffer.buffer());
-                    return cleanBuffer;
-                } else {
-                    clean0(cleanBuffer);
-                }
+            if (chunk == null && reclaim()) {
+                chunk = take(slab, cache);
             }
-            Iterator<VirtualBuffer> iterator = availableBuffers.iterator();
-            VirtualBuffer bufferChunk;
-            while (iterator.hasNext()) {
-                VirtualBuffer freeChunk = iterator.next();
-                final int remaining = freeChunk.getParentLimit() - freeChunk.getParentPosition();
-                if (remaining < size) {
-                    continue;
-                }
-                if (remaining == size) {
-                    iterator.remove();
-                    buffer.limit(freeChunk.getParentLimit());
-                    buffer.position(freeChunk.getParentPosition());
-                    freeChunk.buffer(buffer.slice());
-                    bufferChunk = freeChunk;
+            if (chunk != null) {
+                chunk.owner = cache;
+                ByteBuffer slice = chunk.buffer();
+                if (slice != null && slice.capacity() == size) {
+                    slice.clear();
                 } else {
-                    buffer.limit(freeChunk.getParentPosition() + size);
-                    buffer.position(freeChunk.getParentPosition());
-                    bufferChunk = new VirtualBuffer(this, buffer.slice(), buffer.position(), buffer.limit());
-                    freeChunk.setParentPosition(buffer.limit());
-                }
-                if (bufferChunk.buffer().remaining() != size) {
-                    throw new RuntimeException("allocate " + size + ", buffer:" + bufferChunk);
+                    ByteBuffer duplicate = buffer.duplicate();
+                    duplicate.limit(chunk.getParentPosition() + size);
+                    duplicate.position(chunk.getParentPosition());
+                    slice = duplicate.slice();
                 }
-                return bufferChunk;
+                chunk.buffer(slice);
+                return chunk;
             }
-        } finally {
-            lock.unlock();
         }
+        fallbackCount.increment();
         return new VirtualBuffer(null, allocate0(size, false), 0, 0);
     }
 
     void clean(VirtualBuffer cleanBuffer) {
-        if (cleanBuffers.offer(cleanBuffer)) {
-            return;
-        }
-        lock.lock();
-        try {
-            clean0(cleanBuffer);
-        } finally {
-            lock.unlock();
+        int slab = slabOf(cleanBuffer.getParentLimit() - cleanBuffer.getParentPosition());
+        Cache owner = cleanBuffer.owner;
+        cleanBuffer.owner = null;
+        if (owner == null || owner.thread != Thread.currentThread() || !owner.offer(slab, cleanBuffer)) {
+            push(slab, cleanBuffer);
         }
     }
 
-    void tryClean() {
-        if (System.currentTimeMillis() - lastAllocateTime < 1000 || !lock.tryLock()) {
-            return;
+    private Cache newCache() {
+        // 新线程加入时顺带回收已结束线程的缓存, 避免其在队列中堆积
+        reclaim();
+        Cache cache = new Cache(Thread.currentThread(), freeLists.length());
+        caches.add(cache);
+        return cache;
+    }
+
+    private VirtualBuffer take(int slab, Cache cache) {
+        VirtualBuffer chunk = pop(slab);
+        if (chunk == null) {
+            chunk = carve(slab);
         }
-        try {
-            VirtualBuffer cleanBuffer;
-            while ((cleanBuffer = cleanBuffers.poll()) != null) {
-                clean0(cleanBuffer);
+        return chunk != null ? chunk : split(slab, cache);
+    }
+
+    /**
+     * 从更大规格的空闲块中拆分出所需规格的块
+     *
+     * @param slab  所需规格
+     * @param cache 当前线程缓存
+     * @return 拆分得到的块, 没有更大的空闲块时为null
+     */
+    private VirtualBuffer split(int slab, Cache cache) {
+        for (int larger = slab + 1; larger < freeLists.length(); larger++) {
+            VirtualBuffer chunk = cache.poll(larger);
+            if (chunk == null) {
+                chunk = pop(larger);
             }
-        } finally {
-            lock.unlock();
+            if (chunk == null) {
+                continue;
+            }
+            // 保留低地址的一半继续拆分, 高地址的一半归还对应规格
+            int position = chunk.getParentPosition();
+            for (int k = larger - 1; k >= slab; k--) {
+                int half = 1 << (k + MIN_SHIFT);
+                push(k, chunkAt(position + half, half));
+            }
+            chunk.setParentLimit(position + (1 << (slab + MIN_SHIFT)));
+            return chunk;
         }
+        return null;
+    }
 
+    private VirtualBuffer chunkAt(int position, int chunkSize) {
+        VirtualBuffer chunk = new VirtualBuffer(this, null, position, position + chunkSize);
+        chunks[position >> MIN_SHIFT] = chunk;
+        return chunk;
     }
 
-    private void clean0(VirtualBuffer cleanBuffer) {
-        int index = 0;
-        Iterator<VirtualBuffer> iterator = availableBuffers.iterator();
-        while (iterator.hasNext()) {
-            VirtualBuffer freeBuffer = iterator.next();
-            //cleanBuffer在freeBuffer之前并且形成连续块
-            if (freeBuffer.getParentPosition() == cleanBuffer.getParentLimit()) {
-                freeBuffer.setParentPosition(cleanBuffer.getParentPosition());
-                return;
-            }
-            //cleanBuffer与freeBuffer之后并形成连续块
-            if (freeBuffer.getParentLimit() == cleanBuffer.getParentPosition()) {
-                freeBuffer.setParentLimit(cleanBuffer.getParentLimit());
-                //判断后一个是否连续
-                if (iterator.hasNext()) {
-                    VirtualBuffer next = iterator.next();
-                    if (next.getParentPosition() == freeBuffer.getParentLimit()) {
-                        freeBuffer.setParentLimit(next.getParentLimit());
-                        iterator.remove();
-                    } else if (next.getParentPosition() < freeBuffer.getParentLimit()) {
-                        throw new IllegalStateException(Normal.EMPTY);
+    /**
+     * 将已结束线程缓存中的块归还共享空闲栈
+     *
+     * @return 是否归还了块
+     */
+    private boolean reclaim() {
+        boolean reclaimed = false;
+        for (Cache cache : caches) {
+            // 线程结束后其缓存不再被修改, isAlive()保证可见性; remove成功的线程独占归还
+            if (!cache.thread.isAlive() && caches.remove(cache)) {
+                for (int slab = 0; slab < cache.counts.length; slab++) {
+                    VirtualBuffer chunk;
+                    while ((chunk = cache.poll(slab)) != null) {
+                        push(slab, chunk);
+                        reclaimed = true;
                     }
                 }
-                return;
             }
-            if (freeBuffer.getParentPosition() > cleanBuffer.getParentLimit()) {
-                availableBuffers.add(index, cleanBuffer);
-                return;
+        }
+        return reclaimed;
+    }
+
+    /**
+     * 当前已从页中划分出的字节数
+     *
+     * @return 字节数
+     */
+    public int getUsedBytes() {
+        return Math.min(cursor.get(), buffer.capacity());
+    }
+
+    /**
+     * 内存页容量
+     *
+     * @return 字节数
+     */
+    public int getCapacity() {
+        return buffer.capacity();
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * 申请次数
+     *
+     * @return 次数
+     */
+    public long getAllocateCount() {
+        return allocateCount.sum();
+    }
+
+    /**
+     * 页空间不足或申请超出页大小而退回堆内存分配的次数
+     *
+     * @return 次数
+     */
+    public long getFallbackCount() {
+        return fallbackCount.sum();
+    }
+
+    private VirtualBuffer pop(int slab) {
+        long head;
+        VirtualBuffer first;
+        do {
+            head = freeLists.get(slab);
+            first = chunkOf(head);
+            if (first == null) {
+                return null;
+            }
+            // first.next可能已被其他线程修改, 此时版本号已变化, CAS失败后重试
+        } while (!freeLists.compareAndSet(slab, head, headOf(head, first.next)));
+        first.next = null;
+        return first;
+    }
+
+    private void push(int slab, VirtualBuffer chunk) {
+        long head;
+        do {
+            head = freeLists.get(slab);
+            chunk.next = chunkOf(head);
+        } while (!freeLists.compareAndSet(slab, head, headOf(head, chunk)));
+    }
+
+    private VirtualBuffer chunkOf(long head) {
+        int index = (int) head;
+        return index == 0 ? null : chunks[index - 1];
+    }
+
+    // 新栈顶: 版本号加1, 块序号指向top
+    private static long headOf(long head, VirtualBuffer top) {
+        long index = top == null ? 0 : (top.getParentPosition() >> MIN_SHIFT) + 1;
+        return (((head >>> 32) + 1) << 32) | index;
+    }
+
+    private VirtualBuffer carve(int slab) {
+        int chunkSize = 1 << (slab + MIN_SHIFT);
+        int position;
+        do {
+            position = cursor.get();
+            if (position + chunkSize > buffer.capacity()) {
+                return null;
+            }
+        } while (!cursor.compareAndSet(position, position + chunkSize));
+        return chunkAt(position, chunkSize);
+    }
+
+    /**
+     * 线程缓存: 每种规格最多缓存{@link #CACHE_SIZE}个块, 仅所属线程访问
+     */
+    static final class Cache {
+
+        final Thread thread;
+        final VirtualBuffer[][] chunks;
+        final int[] counts;
+
+        Cache(Thread thread, int classes) {
+            this.thread = thread;
+            this.chunks = new VirtualBuffer[classes][CACHE_SIZE];
+            this.counts = new int[classes];
+        }
+
+        VirtualBuffer poll(int slab) {
+            if (counts[slab] == 0) {
+                return null;
             }
-            index++;
+            int index = --counts[slab];
+            VirtualBuffer chunk = chunks[slab][index];
+            chunks[slab][index] = null;
+            return chunk;
         }
-        availableBuffers.add(cleanBuffer);
+
+        boolean offer(int slab, VirtualBuffer chunk) {
+            if (counts[slab] == CACHE_SIZE) {
+                return false;
+            }
+            chunks[slab][counts[slab]++] = chunk;
+            return true;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PageBuffer{capacity=" + getCapacity()
+                + ", used=" + getUsedBytes()
+                + ", direct=" + direct
+                + ", allocate=" + getAllocateCount()
+                + ", fallback=" + getFallbackCount() + "}";
     }
 
 }
@@ -56,6 +56,16 @@ public final class VirtualBuffer {
      */
     private int parentLimit;
 
+    /**
+     * 内存页空闲栈中的下一个块
+     */
+    VirtualBuffer next;
+
+    /**
+     * 申请该块的线程缓存, 由该线程释放时放回其缓存
+     */
+    PageBuffer.Cache owner;
+
     VirtualBuffer(PageBuffer pageBuffer, ByteBuffer buffer, int parentPosition, int parentLimit) {
         this.pageBuffer = pageBuffer;
         this.buffer = buffer;
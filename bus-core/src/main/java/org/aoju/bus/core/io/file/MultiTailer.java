@@ -0,0 +1,439 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.core.io.file;
+
+import org.aoju.bus.core.io.LineHandler;
+import org.aoju.bus.core.io.watchers.SimpleWatcher;
+import org.aoju.bus.core.io.watchers.WatchServer;
+import org.aoju.bus.core.io.watchers.Watcher;
+import org.aoju.bus.core.lang.Charset;
+import org.aoju.bus.core.lang.Symbol;
+import org.aoju.bus.core.lang.exception.InstrumentException;
+import org.aoju.bus.core.toolkit.IoKit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 多文件内容跟随器，实现类似Linux下"tail -F"命令功能
+ * 所有文件共用一个{@link WatchServer}及其线程，按所在目录注册监听，
+ * 文件变化时通过{@link FileChannel}按块读取新增内容，读取及解码缓冲在所有文件间复用，
+ * 每块解析出的完整行以批量方式交给{@link LineHandler#handle(List)}，未结束的行保留至下次读取
+ * <p>
+ * 文件被截断时从头读取；文件被轮转(删除、改名后重建)时先读完原文件剩余内容，再从头跟随新文件
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+public class MultiTailer extends WatchServer {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 读取缓冲大小
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 目录 -> (文件名 -> 跟随状态)
+     */
+    private final Map<Path, Map<Path, Tail>> tails = new ConcurrentHashMap<>();
+    /**
+     * 读取缓冲，仅在监听线程中使用
+     */
+    private final ByteBuffer byteBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    /**
+     * 解码缓冲，仅在监听线程中使用
+     */
+    private final CharBuffer charBuffer = CharBuffer.allocate(BUFFER_SIZE);
+    /**
+     * 事件处理
+     */
+    private final Watcher watcher = new SimpleWatcher() {
+        @Override
+        public void onCreate(WatchEvent<?> event, Path currentPath) {
+            follow(currentPath, event);
+        }
+
+        @Override
+        public void onModify(WatchEvent<?> event, Path currentPath) {
+            follow(currentPath, event);
+        }
+
+        @Override
+        public void onDelete(WatchEvent<?> event, Path currentPath) {
+            follow(currentPath, event);
+        }
+
+        @Override
+        public void onOverflow(WatchEvent<?> event, Path currentPath) {
+            // 事件丢失，检查全部文件
+            for (Map<Path, Tail> files : tails.values()) {
+                for (Tail tail : files.values()) {
+                    follow(tail);
+                }
+            }
+        }
+    };
+
+    /**
+     * 构造
+     */
+    public MultiTailer() {
+        this.events = new WatchEvent.Kind<?>[]{
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE
+        };
+        this.init();
+        this.setName("MultiTailer");
+        this.setDaemon(true);
+    }
+
+    /**
+     * 添加跟随的文件，默认UTF-8编码
+     *
+     * @param file        文件
+     * @param lineHandler 行处理器
+     * @return this
+     */
+    public MultiTailer add(File file, LineHandler lineHandler) {
+        return add(file, Charset.UTF_8, lineHandler);
+    }
+
+    /**
+     * 添加跟随的文件，从文件当前末尾开始跟随，文件不存在时等待其创建
+     * 可在{@link #start()}之后调用
+     *
+     * @param file        文件
+     * @param charset     编码
+     * @param lineHandler 行处理器
+     * @return this
+     */
+    public MultiTailer add(File file, java.nio.charset.Charset charset, LineHandler lineHandler) {
+        final Path path = file.toPath().toAbsolutePath().normalize();
+        final Path dir = path.getParent();
+        if (null == dir || false == Files.isDirectory(dir)) {
+            throw new InstrumentException("Directory of [{}] not exist !", path);
+        }
+        if (Files.isDirectory(path)) {
+            throw new InstrumentException("Path [{}] is not a file !", path);
+        }
+
+        final Tail tail = new Tail(path, charset, lineHandler);
+        try {
+            tail.open(true);
+        } catch (IOException e) {
+            throw new InstrumentException(e);
+        }
+
+        final Map<Path, Tail> files = tails.computeIfAbsent(dir, key -> {
+            registerPath(key, 0);
+            return new ConcurrentHashMap<>();
+        });
+        final Tail previous = files.put(path.getFileName(), tail);
+        if (null != previous) {
+            previous.close();
+        }
+        return this;
+    }
+
+    /**
+     * 移除跟随的文件
+     *
+     * @param file 文件
+     * @return this
+     */
+    public MultiTailer remove(File file) {
+        final Path path = file.toPath().toAbsolutePath().normalize();
+        final Map<Path, Tail> files = tails.get(path.getParent());
+        if (null != files) {
+            final Tail tail = files.remove(path.getFileName());
+            if (null != tail) {
+                tail.close();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 跟随的文件数
+     *
+     * @return 文件数
+     */
+    public int size() {
+        int size = 0;
+        for (Map<Path, Tail> files : tails.values()) {
+            size += files.size();
+        }
+        return size;
+    }
+
+    @Override
+    public void run() {
+        while (false == isClosed) {
+            watch(watcher, null);
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        for (Map<Path, Tail> files : tails.values()) {
+            for (Tail tail : files.values()) {
+                tail.close();
+            }
+        }
+    }
+
+    /**
+     * 处理目录中的文件事件
+     *
+     * @param dir   事件所在目录
+     * @param event 事件
+     */
+    private void follow(Path dir, WatchEvent<?> event) {
+        final Map<Path, Tail> files = tails.get(dir);
+        if (null != files) {
+            final Tail tail = files.get((Path) event.context());
+            if (null != tail) {
+                follow(tail);
+            }
+        }
+    }
+
+    /**
+     * 检查文件轮转并读取新增内容
+     * 文件标识变化或文件被删除时，读完原通道剩余内容后切换到新文件
+     *
+     * @param tail 跟随状态
+     */
+    private void follow(Tail tail) {
+        try {
+            final Object fileKey = fileKey(tail.path);
+            if (null != tail.channel && false == Objects.equals(fileKey, tail.fileKey)) {
+                read(tail);
+                tail.close();
+            }
+            if (null == tail.channel && null != fileKey) {
+                tail.open(false);
+            }
+            if (null != tail.channel) {
+                read(tail);
+            }
+        } catch (IOException e) {
+            // 读取失败时关闭，下次事件时重新打开
+            tail.close();
+        }
+    }
+
+    /**
+     * 读取新增内容并按行分发
+     *
+     * @param tail 跟随状态
+     * @throws IOException IO异常
+     */
+    private void read(Tail tail) throws IOException {
+        final FileChannel channel = tail.channel;
+        final long size = channel.size();
+        if (size < tail.position) {
+            // 文件被截断，从头读取
+            tail.reset();
+        }
+
+        final CharsetDecoder decoder = tail.decoder;
+        while (tail.position < size) {
+            byteBuffer.clear();
+            if (size - tail.position < byteBuffer.capacity()) {
+                byteBuffer.limit((int) (size - tail.position));
+            }
+            final int n = channel.read(byteBuffer, tail.position);
+            if (n <= 0) {
+                break;
+            }
+            byteBuffer.flip();
+            charBuffer.clear();
+            decoder.decode(byteBuffer, charBuffer, false);
+            // 未能解码的不完整字符留待下次读取
+            tail.position += byteBuffer.position();
+            charBuffer.flip();
+
+            final List<String> lines = tail.split(charBuffer);
+            if (false == lines.isEmpty()) {
+                tail.lineHandler.handle(lines);
+            }
+            if (0 == byteBuffer.position()) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 获取文件标识，用于识别轮转
+     *
+     * @param path 文件路径
+     * @return 文件标识，文件不存在返回null，系统不支持时返回文件创建时间
+     * @throws IOException IO异常
+     */
+    private static Object fileKey(Path path) throws IOException {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            final Object key = attributes.fileKey();
+            return null != key ? key : attributes.creationTime();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 单个文件的跟随状态，除构造及关闭外只在监听线程中访问
+     */
+    private static class Tail {
+
+        private final Path path;
+        private final CharsetDecoder decoder;
+        private final LineHandler lineHandler;
+        /**
+         * 未结束的行
+         */
+        private final StringBuilder partial = new StringBuilder();
+        private volatile FileChannel channel;
+        private Object fileKey;
+        private long position;
+        /**
+         * 上一块以'\r'结尾，需跳过紧随的'\n'
+         */
+        private boolean skipLf;
+
+        Tail(Path path, java.nio.charset.Charset charset, LineHandler lineHandler) {
+            this.path = path;
+            this.decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.lineHandler = lineHandler;
+        }
+
+        /**
+         * 打开文件
+         *
+         * @param atEnd 是否从末尾开始跟随
+         * @throws IOException IO异常
+         */
+        void open(boolean atEnd) throws IOException {
+            this.fileKey = fileKey(path);
+            if (null == fileKey) {
+                return;
+            }
+            try {
+                this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                this.fileKey = null;
+                return;
+            }
+            reset();
+            if (atEnd) {
+                this.position = channel.size();
+            }
+        }
+
+        /**
+         * 回到文件开头
+         */
+        void reset() {
+            this.position = 0;
+            this.partial.setLength(0);
+            this.skipLf = false;
+            this.decoder.reset();
+        }
+
+        /**
+         * 拆分出完整的行，支持\n、\r\n及\r
+         *
+         * @param chars 解码后的字符
+         * @return 行列表
+         */
+        List<String> split(CharBuffer chars) {
+            final List<String> lines = new ArrayList<>();
+            final int limit = chars.limit();
+            int start = 0;
+            for (int i = 0; i < limit; i++) {
+                final char c = chars.get(i);
+                if (c == Symbol.C_LF || c == Symbol.C_CR) {
+                    if (c == Symbol.C_LF && skipLf && i == start && 0 == partial.length()) {
+                        // 跨块的\r\n
+                        skipLf = false;
+                        start = i + 1;
+                        continue;
+                    }
+                    lines.add(line(chars, start, i));
+                    if (c == Symbol.C_CR && i + 1 < limit && chars.get(i + 1) == Symbol.C_LF) {
+                        i++;
+                    }
+                    skipLf = c == Symbol.C_CR && i + 1 == limit;
+                    start = i + 1;
+                } else {
+                    skipLf = false;
+                }
+            }
+            if (start < limit) {
+                partial.append(chars, start, limit);
+            }
+            return lines;
+        }
+
+        private String line(CharBuffer chars, int start, int end) {
+            if (0 == partial.length()) {
+                return chars.subSequence(start, end).toString();
+            }
+            final String line = partial.append(chars, start, end).toString();
+            partial.setLength(0);
+            return line;
+        }
+
+        void close() {
+            IoKit.close(channel);
+            this.channel = null;
+        }
+    }
+
+}
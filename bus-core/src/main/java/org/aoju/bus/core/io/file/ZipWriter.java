@@ -0,0 +1,690 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.core.io.file;
+
+import org.aoju.bus.core.io.StreamProgress;
+import org.aoju.bus.core.lang.Charset;
+import org.aoju.bus.core.lang.exception.InstrumentException;
+import org.aoju.bus.core.toolkit.IoKit;
+import org.aoju.bus.core.toolkit.ThreadKit;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 并行Zip写出器
+ * 文件按块({@link #CHUNK_SIZE})提交到线程池独立压缩,每块以前一块末尾32KB作为预设字典,
+ * 非末块以{@link Deflater#SYNC_FLUSH}结束,从而各块输出首尾相接即为完整的deflate流;
+ * 各块CRC32在写出线程中合并,写出线程按提交顺序拼接数据并回填本地文件头,
+ * 最终生成标准Zip文件(条目或文件超过4GB时使用ZIP64扩展)
+ * <p>
+ * 同时在途的块数量受窗口限制,内存占用约为 窗口 * 块大小 * 2
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+public class ZipWriter implements Closeable {
+
+    /**
+     * 压缩块大小
+     */
+    private static final int CHUNK_SIZE = 1 << 20;
+    /**
+     * deflate预设字典大小
+     */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    /**
+     * 超过此大小的条目使用ZIP64扩展记录大小,预留deflate可能的膨胀空间
+     */
+    private static final long ZIP64_ENTRY_THRESHOLD = 0xF0000000L;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+    private static final int END_SIG = 0x06054b50;
+    private static final int ZIP64_END_SIG = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final int LOCAL_HEADER_SIZE = 30;
+
+    private static final int FLAG_UTF8 = 1 << 11;
+    private static final int VERSION_DEFAULT = 20;
+    private static final int VERSION_ZIP64 = 45;
+
+    /**
+     * 输出通道
+     */
+    private final FileChannel channel;
+    /**
+     * 条目名称编码
+     */
+    private final java.nio.charset.Charset charset;
+    /**
+     * 压缩级别
+     */
+    private final int level;
+    /**
+     * 压缩线程池
+     */
+    private final ExecutorService executor;
+    /**
+     * 同时在途的最大块数
+     */
+    private final int window;
+    /**
+     * 进度回调,可为null
+     */
+    private final StreamProgress progress;
+    /**
+     * 已写出的条目,用于生成中央目录
+     */
+    private final List<Entry> entries = new ArrayList<>();
+    /**
+     * 等待写出的块,按提交顺序排列
+     */
+    private final Deque<Part> parts = new ArrayDeque<>();
+    /**
+     * 头信息缓冲
+     */
+    private final ByteBuffer header = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+    /**
+     * 当前写出位置
+     */
+    private long position;
+    /**
+     * 已处理的原始字节数
+     */
+    private long processed;
+    /**
+     * 是否已关闭
+     */
+    private boolean closed;
+
+    /**
+     * 构造
+     *
+     * @param zipFile     生成的Zip文件
+     * @param charset     条目名称编码,null表示UTF-8
+     * @param parallelism 并行度,小于1表示CPU核心数
+     * @param level       压缩级别,0~9或{@link Deflater#DEFAULT_COMPRESSION}
+     * @param progress    进度回调,null表示不回调,进度为已压缩的原始字节数
+     * @throws InstrumentException IO异常
+     */
+    public ZipWriter(File zipFile, java.nio.charset.Charset charset, int parallelism, int level, StreamProgress progress) throws InstrumentException {
+        if (parallelism < 1) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        try {
+            this.channel = FileChannel.open(zipFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new InstrumentException(e);
+        }
+        this.charset = (null == charset) ? Charset.UTF_8 : charset;
+        this.level = level;
+        this.progress = progress;
+        this.window = parallelism * 2;
+        this.executor = ThreadKit.newExecutor(parallelism);
+    }
+
+    /**
+     * 添加目录条目
+     *
+     * @param path 在压缩文件中的路径,以"/"结尾
+     * @throws InstrumentException IO异常
+     */
+    public void addDir(String path) throws InstrumentException {
+        final Entry entry = new Entry(encode(path), System.currentTimeMillis(), 0, false);
+        enqueue(new Part(entry, 0, true, null, null));
+    }
+
+    /**
+     * 添加文件条目,文件内容将被分块提交压缩
+     *
+     * @param file 文件
+     * @param path 在压缩文件中的路径
+     * @throws InstrumentException IO异常
+     */
+    public void addFile(File file, String path) throws InstrumentException {
+        final FileChannel source;
+        final long size;
+        try {
+            source = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            size = source.size();
+        } catch (IOException e) {
+            throw new InstrumentException(e);
+        }
+        final Entry entry = new Entry(encode(path), file.lastModified(), size, true);
+        long offset = 0;
+        int index = 0;
+        do {
+            final long start = offset;
+            final int length = (int) Math.min(CHUNK_SIZE, size - offset);
+            offset += length;
+            final boolean last = offset >= size;
+            enqueue(new Part(entry, index++, last, source,
+                    executor.submit(() -> deflate(source, start, length, last))));
+        } while (offset < size);
+    }
+
+    /**
+     * 写出剩余数据及中央目录,关闭文件
+     *
+     * @throws InstrumentException IO异常
+     */
+    public void finish() throws InstrumentException {
+        if (closed) {
+            return;
+        }
+        try {
+            while (false == parts.isEmpty()) {
+                drain();
+            }
+            writeCentralDirectory();
+        } catch (IOException e) {
+            throw new InstrumentException(e);
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * 关闭,未调用{@link #finish()}时生成的文件不完整
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        executor.shutdownNow();
+        for (Part part : parts) {
+            IoKit.close(part.source);
+        }
+        parts.clear();
+        IoKit.close(channel);
+    }
+
+    /**
+     * 加入写出队列,超出窗口时写出队首的块
+     *
+     * @param part 块
+     * @throws InstrumentException IO异常
+     */
+    private void enqueue(Part part) throws InstrumentException {
+        parts.addLast(part);
+        boolean success = false;
+        try {
+            while (parts.size() > window) {
+                drain();
+            }
+            success = true;
+        } catch (IOException e) {
+            throw new InstrumentException(e);
+        } finally {
+            if (false == success) {
+                close();
+            }
+        }
+    }
+
+    /**
+     * 写出队首的块
+     *
+     * @throws IOException IO异常
+     */
+    private void drain() throws IOException {
+        final Part part = parts.peekFirst();
+        final Entry entry = part.entry;
+        if (part.index == 0) {
+            entry.offset = position;
+            writeLocalHeader(entry);
+        }
+        if (null != part.future) {
+            final Block block = await(part.future);
+            write(ByteBuffer.wrap(block.data, 0, block.length));
+            entry.crc = combine(entry.crc, block.crc, block.rawLength);
+            entry.compressedSize += block.length;
+            entry.size += block.rawLength;
+            processed += block.rawLength;
+            if (null != progress) {
+                progress.progress(processed);
+            }
+        }
+        parts.pollFirst();
+        if (part.last) {
+            IoKit.close(part.source);
+            if (entry.deflated) {
+                patchLocalHeader(entry);
+            }
+            entries.add(entry);
+        }
+    }
+
+    /**
+     * 等待块压缩完成
+     *
+     * @param future 压缩任务
+     * @return 压缩结果
+     * @throws IOException IO异常
+     */
+    private Block await(Future<Block> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InstrumentException(e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new InstrumentException(cause);
+        }
+    }
+
+    /**
+     * 压缩文件中的一块,非首块以前32KB作为预设字典
+     *
+     * @param source 文件通道
+     * @param start  块起始位置
+     * @param length 块长度
+     * @param last   是否为末块
+     * @return 压缩结果
+     * @throws IOException IO异常
+     */
+    private Block deflate(FileChannel source, long start, int length, boolean last) throws IOException {
+        final int dictionary = (int) Math.min(DICTIONARY_SIZE, start);
+        final byte[] input = new byte[dictionary + length];
+        final ByteBuffer buffer = ByteBuffer.wrap(input);
+        long pos = start - dictionary;
+        while (buffer.hasRemaining()) {
+            final int n = source.read(buffer, pos);
+            if (n < 0) {
+                throw new IOException("File size changed while zipping");
+            }
+            pos += n;
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(input, dictionary, length);
+
+        final Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary > 0) {
+                deflater.setDictionary(input, 0, dictionary);
+            }
+            deflater.setInput(input, dictionary, length);
+            byte[] output = new byte[length + (length >>> 8) + 64];
+            int count = 0;
+            if (last) {
+                deflater.finish();
+            }
+            while (true) {
+                if (count == output.length) {
+                    output = Arrays.copyOf(output, output.length << 1);
+                }
+                final int n = deflater.deflate(output, count, output.length - count,
+                        last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                count += n;
+                if (last ? deflater.finished() : count < output.length && deflater.needsInput()) {
+                    break;
+                }
+            }
+            return new Block(output, count, crc.getValue(), length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 写出本地文件头,压缩条目的CRC及大小在数据写出后回填
+     *
+     * @param entry 条目
+     * @throws IOException IO异常
+     */
+    private void writeLocalHeader(Entry entry) throws IOException {
+        final ByteBuffer buffer = buffer(LOCAL_HEADER_SIZE + entry.name.length + 20);
+        buffer.putInt(LOCAL_HEADER_SIG);
+        buffer.putShort((short) (entry.zip64 ? VERSION_ZIP64 : VERSION_DEFAULT));
+        buffer.putShort((short) flags());
+        buffer.putShort((short) (entry.deflated ? Deflater.DEFLATED : 0));
+        buffer.putInt(entry.dosTime);
+        buffer.putInt(0);
+        buffer.putInt(entry.zip64 ? (int) ZIP64_MAGIC : 0);
+        buffer.putInt(entry.zip64 ? (int) ZIP64_MAGIC : 0);
+        buffer.putShort((short) entry.name.length);
+        buffer.putShort((short) (entry.zip64 ? 20 : 0));
+        buffer.put(entry.name);
+        if (entry.zip64) {
+            buffer.putShort((short) ZIP64_EXTRA_ID);
+            buffer.putShort((short) 16);
+            buffer.putLong(0);
+            buffer.putLong(0);
+        }
+        buffer.flip();
+        write(buffer);
+    }
+
+    /**
+     * 回填本地文件头中的CRC及大小
+     *
+     * @param entry 条目
+     * @throws IOException IO异常
+     */
+    private void patchLocalHeader(Entry entry) throws IOException {
+        ByteBuffer buffer = buffer(4);
+        buffer.putInt((int) entry.crc).flip();
+        writeAt(buffer, entry.offset + 14);
+        if (entry.zip64) {
+            buffer = buffer(16);
+            buffer.putLong(entry.size).putLong(entry.compressedSize).flip();
+            writeAt(buffer, entry.offset + LOCAL_HEADER_SIZE + entry.name.length + 4);
+        } else {
+            buffer = buffer(8);
+            buffer.putInt((int) entry.compressedSize).putInt((int) entry.size).flip();
+            writeAt(buffer, entry.offset + 18);
+        }
+    }
+
+    /**
+     * 写出中央目录及目录结束标识
+     *
+     * @throws IOException IO异常
+     */
+    private void writeCentralDirectory() throws IOException {
+        final long start = position;
+        for (Entry entry : entries) {
+            final boolean largeSize = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+            final boolean largeOffset = entry.offset >= ZIP64_MAGIC;
+            final int extra = (largeSize ? 16 : 0) + (largeOffset ? 8 : 0);
+            final ByteBuffer buffer = buffer(46 + entry.name.length + (extra > 0 ? extra + 4 : 0));
+            final short version = (short) (extra > 0 || entry.zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+            buffer.putInt(CENTRAL_HEADER_SIG);
+            buffer.putShort(version);
+            buffer.putShort(version);
+            buffer.putShort((short) flags());
+            buffer.putShort((short) (entry.deflated ? Deflater.DEFLATED : 0));
+            buffer.putInt(entry.dosTime);
+            buffer.putInt((int) entry.crc);
+            buffer.putInt(largeSize ? (int) ZIP64_MAGIC : (int) entry.compressedSize);
+            buffer.putInt(largeSize ? (int) ZIP64_MAGIC : (int) entry.size);
+            buffer.putShort((short) entry.name.length);
+            buffer.putShort((short) (extra > 0 ? extra + 4 : 0));
+            buffer.putShort((short) 0);
+            buffer.putShort((short) 0);
+            buffer.putShort((short) 0);
+            buffer.putInt(0);
+            buffer.putInt(largeOffset ? (int) ZIP64_MAGIC : (int) entry.offset);
+            buffer.put(entry.name);
+            if (extra > 0) {
+                buffer.putShort((short) ZIP64_EXTRA_ID);
+                buffer.putShort((short) extra);
+                if (largeSize) {
+                    buffer.putLong(entry.size);
+                    buffer.putLong(entry.compressedSize);
+                }
+                if (largeOffset) {
+                    buffer.putLong(entry.offset);
+                }
+            }
+            buffer.flip();
+            write(buffer);
+        }
+
+        final long size = position - start;
+        final int count = entries.size();
+        final boolean zip64 = count >= ZIP64_MAGIC_COUNT || size >= ZIP64_MAGIC || start >= ZIP64_MAGIC;
+        final ByteBuffer buffer = buffer(56 + 20 + 22);
+        if (zip64) {
+            final long end = position;
+            buffer.putInt(ZIP64_END_SIG);
+            buffer.putLong(44);
+            buffer.putShort((short) VERSION_ZIP64);
+            buffer.putShort((short) VERSION_ZIP64);
+            buffer.putInt(0);
+            buffer.putInt(0);
+            buffer.putLong(count);
+            buffer.putLong(count);
+            buffer.putLong(size);
+            buffer.putLong(start);
+            buffer.putInt(ZIP64_LOCATOR_SIG);
+            buffer.putInt(0);
+            buffer.putLong(end);
+            buffer.putInt(1);
+        }
+        buffer.putInt(END_SIG);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) (zip64 ? ZIP64_MAGIC_COUNT : count));
+        buffer.putShort((short) (zip64 ? ZIP64_MAGIC_COUNT : count));
+        buffer.putInt(zip64 ? (int) ZIP64_MAGIC : (int) size);
+        buffer.putInt(zip64 ? (int) ZIP64_MAGIC : (int) start);
+        buffer.putShort((short) 0);
+        buffer.flip();
+        write(buffer);
+    }
+
+    /**
+     * 通用标志位,UTF-8编码的名称设置EFS标志
+     *
+     * @return 标志位
+     */
+    private int flags() {
+        return Charset.UTF_8.equals(charset) ? FLAG_UTF8 : 0;
+    }
+
+    /**
+     * 编码条目名称
+     *
+     * @param path 路径
+     * @return 编码后的名称
+     */
+    private byte[] encode(String path) {
+        final byte[] name = path.getBytes(charset);
+        if (name.length > ZIP64_MAGIC_COUNT) {
+            throw new InstrumentException("Entry name too long: {}", path);
+        }
+        return name;
+    }
+
+    /**
+     * 获取清空后的头信息缓冲
+     *
+     * @param size 所需大小
+     * @return 缓冲
+     */
+    private ByteBuffer buffer(int size) {
+        if (size > header.capacity()) {
+            return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        header.clear();
+        return header;
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private void writeAt(ByteBuffer buffer, long pos) throws IOException {
+        while (buffer.hasRemaining()) {
+            pos += channel.write(buffer, pos);
+        }
+    }
+
+    /**
+     * 合并两段数据的CRC32,算法同zlib的crc32_combine
+     *
+     * @param crc1 前一段的CRC
+     * @param crc2 后一段的CRC
+     * @param len2 后一段的长度
+     * @return 合并后的CRC
+     */
+    private static long combine(long crc1, long crc2, long len2) {
+        if (len2 <= 0) {
+            return crc1;
+        }
+        final long[] even = new long[32];
+        final long[] odd = new long[32];
+        odd[0] = 0xedb88320L;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        square(even, odd);
+        square(odd, even);
+        do {
+            square(even, odd);
+            if ((len2 & 1) != 0) {
+                crc1 = times(even, crc1);
+            }
+            len2 >>= 1;
+            if (len2 == 0) {
+                break;
+            }
+            square(odd, even);
+            if ((len2 & 1) != 0) {
+                crc1 = times(odd, crc1);
+            }
+            len2 >>= 1;
+        } while (len2 != 0);
+        return crc1 ^ crc2;
+    }
+
+    private static long times(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void square(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
+
+    /**
+     * 转换为DOS时间,早于1980年的按1980-01-01处理
+     *
+     * @param millis 毫秒时间
+     * @return DOS时间, 高16位为日期, 低16位为时间
+     */
+    private static int dosTime(long millis) {
+        final LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (time.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16
+                | time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+    }
+
+    /**
+     * 条目
+     */
+    private static class Entry {
+
+        private final byte[] name;
+        private final int dosTime;
+        private final boolean deflated;
+        private final boolean zip64;
+        private long offset;
+        private long crc;
+        private long size;
+        private long compressedSize;
+
+        Entry(byte[] name, long lastModified, long size, boolean deflated) {
+            this.name = name;
+            this.dosTime = dosTime(lastModified);
+            this.deflated = deflated;
+            this.zip64 = size >= ZIP64_ENTRY_THRESHOLD;
+        }
+    }
+
+    /**
+     * 待写出的块
+     */
+    private static class Part {
+
+        private final Entry entry;
+        private final int index;
+        private final boolean last;
+        private final FileChannel source;
+        private final Future<Block> future;
+
+        Part(Entry entry, int index, boolean last, FileChannel source, Future<Block> future) {
+            this.entry = entry;
+            this.index = index;
+            this.last = last;
+            this.source = source;
+            this.future = future;
+        }
+    }
+
+    /**
+     * 块压缩结果
+     */
+    private static class Block {
+
+        private final byte[] data;
+        private final int length;
+        private final long crc;
+        private final int rawLength;
+
+        Block(byte[] data, int length, long crc, int rawLength) {
+            this.data = data;
+            this.length = length;
+            this.crc = crc;
+            this.rawLength = rawLength;
+        }
+    }
+
+}
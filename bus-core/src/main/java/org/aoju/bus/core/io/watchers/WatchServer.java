@@ -34,8 +34,8 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.nio.file.*;
 import java.util.EnumSet;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 文件监听服务，此服务可以同时监听多个路径
@@ -64,9 +64,9 @@ public class WatchServer extends Thread implements Closeable, Serializable {
      */
     private WatchEvent.Modifier[] modifiers;
     /**
-     * WatchKey 和 Path的对应表
+     * WatchKey 和 Path的对应表，监听过程中允许注册新路径
      */
-    private Map<WatchKey, Path> watchKeyPathMap = new HashMap<>();
+    private Map<WatchKey, Path> watchKeyPathMap = new ConcurrentHashMap<>();
 
     /**
      * 初始化
@@ -29,6 +29,7 @@ import org.aoju.bus.core.toolkit.StringKit;
 
 import java.io.Serializable;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 0 - 0000000000 0000000000 0000000000 0000000000 0 - 00000 - 00000 - 000000000000
@@ -39,7 +40,9 @@ import java.util.Date;
  * 12位序列,毫秒内的计数,12位的计数顺序号支持每个节点每毫秒(同一机器,同一时间截)产生4096个ID序号
  * 加起来刚好64位,为一个Long型
  * SnowFlake的优点是,整体上按照时间自增排序,并且整个分布式系统内不会产生ID碰撞
- * (由数据中心ID和机器ID作区分),并且效率较高,经测试,SnowFlake每秒能够产生26万ID左右
+ * (由数据中心ID和机器ID作区分),并且效率较高
+ * 时间截与序列合并保存在{@link AtomicLong}中,通过CAS生成ID,无需加锁;
+ * 可将序列划分为多个分区,线程按ID选择分区,进一步降低CAS竞争(此时ID仅在分区内有序)
  *
  * @author Kimi Liu
  * @version 5.9.8
@@ -68,9 +71,15 @@ public class Snowflake implements Serializable {
 
     private long workerId;
     private long dataCenterId;
-    private long sequence = 0L;
-    private long lastTimestamp = -1L;
     private boolean useSystemClock;
+    /**
+     * 每个分区的状态: (时间截 - 开始时间截) 左移12位 | 分区内序列
+     */
+    private final AtomicLong[] states;
+    /**
+     * 每个分区的序列数
+     */
+    private final long partitionSize;
 
     /**
      * 构造
@@ -100,6 +109,25 @@ public class Snowflake implements Serializable {
      * @param isUseSystemClock 是否使用{@link SystemClock} 获取当前时间戳
      */
     public Snowflake(Date epochDate, long workerId, long dataCenterId, boolean isUseSystemClock) {
+        this(epochDate, workerId, dataCenterId, isUseSystemClock, 1);
+    }
+
+    /**
+     * @param epochDate        初始化时间起点(null表示默认起始日期),后期修改会导致id重复,如果要修改连workerId dataCenterId，慎用
+     * @param workerId         工作机器节点id
+     * @param dataCenterId     数据中心id
+     * @param isUseSystemClock 是否使用{@link SystemClock} 获取当前时间戳
+     * @param partitions       序列分区数,须为2的幂且不超过4096,大于1时ID仅在同一分区内有序
+     */
+    public Snowflake(Date epochDate, long workerId, long dataCenterId, boolean isUseSystemClock, int partitions) {
+        if (partitions <= 0 || partitions > sequenceMask + 1 || Integer.bitCount(partitions) != 1) {
+            throw new IllegalArgumentException(StringKit.format("partitions must be a power of 2 between 1 and {}", sequenceMask + 1));
+        }
+        this.states = new AtomicLong[partitions];
+        for (int i = 0; i < partitions; i++) {
+            this.states[i] = new AtomicLong(-1L);
+        }
+        this.partitionSize = (sequenceMask + 1) / partitions;
         if (null != epochDate) {
             this.twepoch = epochDate.getTime();
         } else {
@@ -151,30 +179,57 @@ public class Snowflake implements Serializable {
      *
      * @return ID
      */
-    public synchronized long nextId() {
-        long timestamp = genTime();
-        if (timestamp < lastTimestamp) {
-            if (lastTimestamp - timestamp < 2000) {
-                // 容忍2秒内的回拨，避免NTP校时造成的异常
-                timestamp = lastTimestamp;
+    public long nextId() {
+        int partition = partition();
+        AtomicLong state = states[partition];
+        for (; ; ) {
+            long current = state.get();
+            long next = current < 0 ? -1L : current + 1;
+            if (current < 0 || (current & sequenceMask) >= partitionSize - 1) {
+                next = nextTimestamp(current) << sequenceBits;
             } else {
-                // 如果服务器时间有问题(时钟后退) 报错。
-                throw new IllegalStateException(StringKit.format("Clock moved backwards. Refusing to generate id for {}ms", lastTimestamp - timestamp));
+                long timestamp = genTime() - twepoch;
+                checkBackwards(current >>> sequenceBits, timestamp);
+                if (timestamp > current >>> sequenceBits) {
+                    next = timestamp << sequenceBits;
+                }
+            }
+            if (state.compareAndSet(current, next)) {
+                return compose(partition, next);
             }
         }
+    }
 
-        if (timestamp == lastTimestamp) {
-            sequence = (sequence + 1) & sequenceMask;
-            if (sequence == 0) {
-                timestamp = tilNextMillis(lastTimestamp);
+    /**
+     * 批量获取ID,每个毫秒内的序列一次性预留,减少竞争
+     *
+     * @param count ID数量
+     * @return ID数组, 按生成顺序排列
+     */
+    public long[] nextIds(int count) {
+        long[] ids = new long[count];
+        int partition = partition();
+        AtomicLong state = states[partition];
+        int index = 0;
+        while (index < count) {
+            long current = state.get();
+            long first;
+            if (current < 0 || (current & sequenceMask) >= partitionSize - 1) {
+                first = nextTimestamp(current) << sequenceBits;
+            } else {
+                long timestamp = genTime() - twepoch;
+                checkBackwards(current >>> sequenceBits, timestamp);
+                first = timestamp > current >>> sequenceBits ? timestamp << sequenceBits : current + 1;
+            }
+            long remaining = partitionSize - (first & sequenceMask);
+            long last = first + Math.min(remaining, count - index) - 1;
+            if (state.compareAndSet(current, last)) {
+                for (long value = first; value <= last; value++) {
+                    ids[index++] = compose(partition, value);
+                }
             }
-        } else {
-            sequence = 0L;
         }
-
-        lastTimestamp = timestamp;
-
-        return ((timestamp - twepoch) << timestampLeftShift) | (dataCenterId << dataCenterIdShift) | (workerId << workerIdShift) | sequence;
+        return ids;
     }
 
     /**
@@ -187,19 +242,59 @@ public class Snowflake implements Serializable {
     }
 
     /**
-     * 循环等待下一个时间
+     * 当前线程使用的序列分区
      *
-     * @param lastTimestamp 上次记录的时间
-     * @return 下一个时间
+     * @return 分区索引
      */
-    private long tilNextMillis(long lastTimestamp) {
-        long timestamp = genTime();
+    private int partition() {
+        return states.length == 1 ? 0 : (int) (Thread.currentThread().getId() & (states.length - 1));
+    }
+
+    /**
+     * 组装ID: 时间截、数据中心、机器节点、分区偏移及分区内序列
+     *
+     * @param partition 分区索引
+     * @param value     状态值
+     * @return ID
+     */
+    private long compose(int partition, long value) {
+        return ((value >>> sequenceBits) << timestampLeftShift) | (dataCenterId << dataCenterIdShift) | (workerId << workerIdShift)
+                | (partition * partitionSize + (value & sequenceMask));
+    }
+
+    /**
+     * 当前序列已用尽(或尚未生成过ID)时,取得不早于上次时间截的新时间截
+     *
+     * @param current 分区状态
+     * @return 相对开始时间截的时间
+     */
+    private long nextTimestamp(long current) {
+        long timestamp = genTime() - twepoch;
+        if (current < 0) {
+            return timestamp;
+        }
+        long lastTimestamp = current >>> sequenceBits;
+        checkBackwards(lastTimestamp, timestamp);
+        // 循环等待下一个时间
         while (timestamp <= lastTimestamp) {
-            timestamp = genTime();
+            timestamp = genTime() - twepoch;
         }
         return timestamp;
     }
 
+    /**
+     * 容忍2秒内的回拨(沿用上次时间截),避免NTP校时造成的异常
+     *
+     * @param lastTimestamp 上次时间截
+     * @param timestamp     当前时间截
+     */
+    private void checkBackwards(long lastTimestamp, long timestamp) {
+        if (lastTimestamp - timestamp >= 2000) {
+            // 如果服务器时间有问题(时钟后退) 报错。
+            throw new IllegalStateException(StringKit.format("Clock moved backwards. Refusing to generate id for {}ms", lastTimestamp - timestamp));
+        }
+    }
+
     /**
      * 生成时间戳
      *
@@ -0,0 +1,328 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.core.lang;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+
+/**
+ * 类元数据,直接从class文件字节中读取类名、父类、接口和类上的运行时注解,无需加载类
+ * 用于类扫描时在加载前过滤
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+public final class ClassMetadata {
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int ACC_ANNOTATION = 0x2000;
+    private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+    private static final String[] EMPTY = new String[0];
+
+    private final String className;
+    private final String superClassName;
+    private final String[] interfaceNames;
+    private final String[] annotationNames;
+    private final int access;
+
+    /**
+     * 构造
+     *
+     * @param className       类名
+     * @param superClassName  父类名,无父类为null
+     * @param interfaceNames  直接实现的接口名
+     * @param annotationNames 类上的运行时注解名
+     * @param access          访问标识
+     */
+    public ClassMetadata(String className, String superClassName, String[] interfaceNames, String[] annotationNames, int access) {
+        this.className = className;
+        this.superClassName = superClassName;
+        this.interfaceNames = null == interfaceNames ? EMPTY : interfaceNames;
+        this.annotationNames = null == annotationNames ? EMPTY : annotationNames;
+        this.access = access;
+    }
+
+    /**
+     * 从class文件字节中读取元数据
+     *
+     * @param bytes class文件内容
+     * @return 类元数据
+     * @throws IOException 格式错误
+     */
+    public static ClassMetadata read(byte[] bytes) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        // minor_version, major_version
+        in.readInt();
+
+        // 常量池,只保留UTF8常量和类常量的名称索引
+        final int count = in.readUnsignedShort();
+        final String[] utf8s = new String[count];
+        final int[] classes = new int[count];
+        for (int i = 1; i < count; i++) {
+            final int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1:
+                    utf8s[i] = in.readUTF();
+                    break;
+                case 7:
+                    classes[i] = in.readUnsignedShort();
+                    break;
+                case 8:
+                case 16:
+                case 19:
+                case 20:
+                    skip(in, 2);
+                    break;
+                case 15:
+                    skip(in, 3);
+                    break;
+                case 3:
+                case 4:
+                case 9:
+                case 10:
+                case 11:
+                case 12:
+                case 17:
+                case 18:
+                    skip(in, 4);
+                    break;
+                case 5:
+                case 6:
+                    // long和double占两个位置
+                    skip(in, 8);
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag: " + tag);
+            }
+        }
+
+        final int access = in.readUnsignedShort();
+        final String className = toClassName(utf8s[classes[in.readUnsignedShort()]]);
+        final int superIndex = in.readUnsignedShort();
+        final String superClassName = superIndex == 0 ? null : toClassName(utf8s[classes[superIndex]]);
+        final String[] interfaceNames = new String[in.readUnsignedShort()];
+        for (int i = 0; i < interfaceNames.length; i++) {
+            interfaceNames[i] = toClassName(utf8s[classes[in.readUnsignedShort()]]);
+        }
+
+        // 跳过字段和方法
+        for (int member = 0; member < 2; member++) {
+            final int memberCount = in.readUnsignedShort();
+            for (int i = 0; i < memberCount; i++) {
+                skip(in, 6);
+                skipAttributes(in);
+            }
+        }
+
+        String[] annotationNames = EMPTY;
+        final int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            final String name = utf8s[in.readUnsignedShort()];
+            final int length = in.readInt();
+            if (RUNTIME_VISIBLE_ANNOTATIONS.equals(name)) {
+                annotationNames = new String[in.readUnsignedShort()];
+                for (int j = 0; j < annotationNames.length; j++) {
+                    annotationNames[j] = readAnnotation(in, utf8s);
+                }
+            } else {
+                skip(in, length);
+            }
+        }
+        return new ClassMetadata(className, superClassName, interfaceNames, annotationNames, access);
+    }
+
+    /**
+     * 读取一个注解,返回注解类名
+     */
+    private static String readAnnotation(DataInputStream in, String[] utf8s) throws IOException {
+        final String descriptor = utf8s[in.readUnsignedShort()];
+        final int pairs = in.readUnsignedShort();
+        for (int i = 0; i < pairs; i++) {
+            skip(in, 2);
+            skipElementValue(in, utf8s);
+        }
+        // 描述符形如 Lcom/example/Anno;
+        return toClassName(descriptor.substring(1, descriptor.length() - 1));
+    }
+
+    private static void skipElementValue(DataInputStream in, String[] utf8s) throws IOException {
+        final int tag = in.readUnsignedByte();
+        switch (tag) {
+            case 'e':
+                skip(in, 4);
+                break;
+            case '@':
+                readAnnotation(in, utf8s);
+                break;
+            case '[':
+                final int count = in.readUnsignedShort();
+                for (int i = 0; i < count; i++) {
+                    skipElementValue(in, utf8s);
+                }
+                break;
+            default:
+                // 基本类型、String及Class
+                skip(in, 2);
+        }
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        final int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            skip(in, 2);
+            skip(in, in.readInt());
+        }
+    }
+
+    private static void skip(DataInputStream in, int length) throws IOException {
+        if (in.skipBytes(length) != length) {
+            throw new IOException("Unexpected end of class file");
+        }
+    }
+
+    private static String toClassName(String internalName) {
+        return internalName.replace(Symbol.C_SLASH, Symbol.C_DOT);
+    }
+
+    /**
+     * 类名
+     *
+     * @return 类名
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * 父类名
+     *
+     * @return 父类名, 无父类(Object或接口之外的根)为null
+     */
+    public String getSuperClassName() {
+        return superClassName;
+    }
+
+    /**
+     * 直接实现的接口名
+     *
+     * @return 接口名
+     */
+    public String[] getInterfaceNames() {
+        return interfaceNames.clone();
+    }
+
+    /**
+     * 类上直接声明的运行时注解名
+     *
+     * @return 注解名
+     */
+    public String[] getAnnotationNames() {
+        return annotationNames.clone();
+    }
+
+    /**
+     * 访问标识
+     *
+     * @return 访问标识
+     */
+    public int getAccess() {
+        return access;
+    }
+
+    /**
+     * 是否直接声明了指定注解
+     *
+     * @param annotationName 注解类名
+     * @return 是否声明
+     */
+    public boolean hasAnnotation(String annotationName) {
+        for (String name : annotationNames) {
+            if (name.equals(annotationName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 是否直接继承或实现了指定类
+     *
+     * @param typeName 类名
+     * @return 是否直接继承或实现
+     */
+    public boolean hasDirectSuper(String typeName) {
+        if (typeName.equals(superClassName)) {
+            return true;
+        }
+        for (String name : interfaceNames) {
+            if (name.equals(typeName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 是否为接口
+     *
+     * @return 是否为接口
+     */
+    public boolean isInterface() {
+        return Modifier.isInterface(access);
+    }
+
+    /**
+     * 是否为注解
+     *
+     * @return 是否为注解
+     */
+    public boolean isAnnotation() {
+        return (access & ACC_ANNOTATION) != 0;
+    }
+
+    /**
+     * 是否为抽象类或接口
+     *
+     * @return 是否为抽象类或接口
+     */
+    public boolean isAbstract() {
+        return Modifier.isAbstract(access);
+    }
+
+    @Override
+    public String toString() {
+        return className + " extends " + superClassName + " implements " + Arrays.toString(interfaceNames)
+                + " annotated " + Arrays.toString(annotationNames);
+    }
+
+}
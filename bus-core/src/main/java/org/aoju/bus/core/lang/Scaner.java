@@ -27,18 +27,23 @@ package org.aoju.bus.core.lang;
 import org.aoju.bus.core.lang.exception.InstrumentException;
 import org.aoju.bus.core.toolkit.*;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
 import java.lang.annotation.Annotation;
+import java.lang.annotation.Inherited;
 import java.net.URL;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 类扫描器
+ * 扫描时先从class文件字节中读取{@link ClassMetadata}并按元数据过滤,只加载可能满足条件的类,
+ * 目录和jar中的class文件在{@link java.util.concurrent.ForkJoinPool}中并行读取,
+ * 设置索引文件后,首次扫描的结果写入索引,之后直接使用索引中的元数据,跳过扫描
  *
  * @author Kimi Liu
  * @version 5.9.8
@@ -46,6 +51,15 @@ import java.util.jar.JarFile;
  */
 public class Scaner {
 
+    /**
+     * 索引文件首行标识
+     */
+    private static final String INDEX_HEADER = "# scaner index: ";
+    /**
+     * 读取失败的类元数据占位
+     */
+    private static final ClassMetadata UNKNOWN = new ClassMetadata(Normal.EMPTY, null, null, null, 0);
+
     /**
      * 包名
      */
@@ -66,6 +80,10 @@ public class Scaner {
      * 过滤器
      */
     private Filter<Class<?>> classFilter;
+    /**
+     * 元数据过滤器,在加载类之前过滤,返回false的类不会被加载
+     */
+    private Filter<ClassMetadata> metadataFilter;
     /**
      * 编码
      */
@@ -74,8 +92,24 @@ public class Scaner {
      * 是否初始化类
      */
     private boolean initialize;
+    /**
+     * 是否并行扫描
+     */
+    private boolean parallel = true;
+    /**
+     * 索引文件
+     */
+    private File indexFile;
+    /**
+     * 调用线程的类加载器,并行加载类时工作线程的上下文类加载器可能不同
+     */
+    private ClassLoader classLoader;
 
-    private Set<Class<?>> classes = new HashSet<>();
+    private Set<Class<?>> classes = ConcurrentHashMap.newKeySet();
+    /**
+     * 父类及接口的元数据缓存,用于判断继承关系
+     */
+    private final Map<String, ClassMetadata> hierarchy = new ConcurrentHashMap<>();
 
     /**
      * 构造,默认UTF-8编码
@@ -128,7 +162,11 @@ public class Scaner {
      * @return 类集合
      */
     public static Set<Class<?>> scanPackageByAnnotation(String packageName, final Class<? extends Annotation> annotationClass) {
-        return scanPackage(packageName, clazz -> clazz.isAnnotationPresent(annotationClass));
+        final Scaner scaner = new Scaner(packageName, clazz -> clazz.isAnnotationPresent(annotationClass));
+        final String annotationName = annotationClass.getName();
+        final boolean inherited = annotationClass.isAnnotationPresent(Inherited.class);
+        scaner.setMetadataFilter(metadata -> scaner.mayHaveAnnotation(metadata, annotationName, inherited));
+        return scaner.scan();
     }
 
     /**
@@ -139,7 +177,12 @@ public class Scaner {
      * @return 类集合
      */
     public static Set<Class<?>> scanPackageBySuper(String packageName, final Class<?> superClass) {
-        return scanPackage(packageName, clazz -> superClass.isAssignableFrom(clazz) && !superClass.equals(clazz));
+        final Scaner scaner = new Scaner(packageName, clazz -> superClass.isAssignableFrom(clazz) && !superClass.equals(clazz));
+        final String superName = superClass.getName();
+        if (Object.class != superClass) {
+            scaner.setMetadataFilter(metadata -> scaner.maySubtype(metadata, superName));
+        }
+        return scaner.scan();
     }
 
     /**
@@ -180,21 +223,33 @@ public class Scaner {
      * @return 类集合
      */
     public Set<Class<?>> scan() {
+        this.classLoader = ClassKit.getClassLoader();
+        Collection<ClassMetadata> candidates = readIndex();
+        if (null != candidates) {
+            addIfAccept(candidates);
+            return Collections.unmodifiableSet(this.classes);
+        }
+
+        final List<Source> sources = new ArrayList<>();
         for (URL url : FileKit.getResourceIter(this.packagePath)) {
             switch (url.getProtocol()) {
                 case "file":
-                    scanFile(new File(UriKit.decode(url.getFile(), this.charset.name())), null);
+                    scanFile(new File(UriKit.decode(url.getFile(), this.charset.name())), null, sources);
                     break;
                 case "jar":
-                    scanJar(UriKit.getJarFile(url));
+                    scanJar(UriKit.getJarFile(url), sources, false);
                     break;
             }
         }
+        candidates = read(sources);
+        addIfAccept(candidates);
 
         if (CollKit.isEmpty(this.classes)) {
-            scanJavaClassPaths();
+            candidates = read(scanJavaClassPaths());
+            addIfAccept(candidates);
         }
 
+        writeIndex(candidates);
         return Collections.unmodifiableSet(this.classes);
     }
 
@@ -207,19 +262,128 @@ public class Scaner {
         this.initialize = initialize;
     }
 
+    /**
+     * 设置元数据过滤器,在加载类之前按class文件中的类名、父类、接口和注解过滤
+     *
+     * @param metadataFilter 元数据过滤器,无需传入null
+     */
+    public void setMetadataFilter(Filter<ClassMetadata> metadataFilter) {
+        this.metadataFilter = metadataFilter;
+    }
+
+    /**
+     * 设置是否并行读取class文件,默认true
+     * 不初始化类时,类的加载也并行进行
+     *
+     * @param parallel 是否并行
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * 设置索引文件,文件存在且对应当前包名时直接使用其中的类元数据,否则扫描后写入
+     * 可在构建时扫描生成,类发生变化后需删除索引文件重新生成
+     *
+     * @param indexFile 索引文件,无需传入null
+     */
+    public void setIndexFile(File indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * 判断类可能直接或通过父类声明了指定注解,父类无法读取时视为可能
+     *
+     * @param metadata       类元数据
+     * @param annotationName 注解类名
+     * @param inherited      注解是否可继承
+     * @return 是否可能声明
+     */
+    private boolean mayHaveAnnotation(ClassMetadata metadata, String annotationName, boolean inherited) {
+        ClassMetadata current = metadata;
+        while (true) {
+            if (current.hasAnnotation(annotationName)) {
+                return true;
+            }
+            if (false == inherited || null == current.getSuperClassName() || current.isInterface()) {
+                return false;
+            }
+            current = getHierarchy(current.getSuperClassName());
+            if (UNKNOWN == current) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 判断类可能是指定类的子类或实现类,父类或接口无法读取时视为可能
+     *
+     * @param metadata  类元数据
+     * @param superName 父类或接口名
+     * @return 是否可能
+     */
+    private boolean maySubtype(ClassMetadata metadata, String superName) {
+        final Deque<ClassMetadata> queue = new ArrayDeque<>();
+        final Set<String> visited = new HashSet<>();
+        queue.add(metadata);
+        while (false == queue.isEmpty()) {
+            final ClassMetadata current = queue.poll();
+            if (current.hasDirectSuper(superName)) {
+                return true;
+            }
+            final List<String> supers = new ArrayList<>(Arrays.asList(current.getInterfaceNames()));
+            if (null != current.getSuperClassName()) {
+                supers.add(current.getSuperClassName());
+            }
+            for (String name : supers) {
+                if (Object.class.getName().equals(name) || false == visited.add(name)) {
+                    continue;
+                }
+                final ClassMetadata parent = getHierarchy(name);
+                if (UNKNOWN == parent) {
+                    return true;
+                }
+                queue.add(parent);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 通过ClassLoader读取父类或接口的元数据
+     *
+     * @param className 类名
+     * @return 类元数据, 无法读取返回{@link #UNKNOWN}
+     */
+    private ClassMetadata getHierarchy(String className) {
+        ClassMetadata metadata = hierarchy.get(className);
+        if (null == metadata) {
+            final String resource = className.replace(Symbol.C_DOT, Symbol.C_SLASH) + FileType.CLASS;
+            try (InputStream in = this.classLoader.getResourceAsStream(resource)) {
+                metadata = null == in ? UNKNOWN : ClassMetadata.read(IoKit.readBytes(in));
+            } catch (IOException | RuntimeException e) {
+                metadata = UNKNOWN;
+            }
+            hierarchy.put(className, metadata);
+        }
+        return metadata;
+    }
+
     /**
      * 扫描Java指定的ClassPath路径
      *
-     * @return 扫描到的类
+     * @return 扫描到的class文件
      */
-    private void scanJavaClassPaths() {
+    private List<Source> scanJavaClassPaths() {
+        final List<Source> sources = new ArrayList<>();
         final String[] javaClassPaths = ClassKit.getJavaClassPaths();
         for (String classPath : javaClassPaths) {
             // bug修复,由于路径中空格和中文导致的Jar找不到
             classPath = UriKit.decode(classPath, Charset.systemCharsetName());
 
-            scanFile(new File(classPath), null);
+            scanFile(new File(classPath), null, sources);
         }
+        return sources;
     }
 
     /**
@@ -227,8 +391,9 @@ public class Scaner {
      *
      * @param file    文件或目录
      * @param rootDir 包名对应classpath绝对路径
+     * @param sources 扫描到的class文件
      */
-    private void scanFile(File file, String rootDir) {
+    private void scanFile(File file, String rootDir, List<Source> sources) {
         if (file.isFile()) {
             final String fileName = file.getAbsolutePath();
             if (fileName.endsWith(FileType.CLASS)) {
@@ -237,10 +402,12 @@ public class Scaner {
                         .substring(rootDir.length(), fileName.length() - 6)
                         .replace(File.separatorChar, Symbol.C_DOT);
                 //加入满足条件的类
-                addIfAccept(className);
+                if (isInPackage(className)) {
+                    sources.add(new Source(className, file, null, null));
+                }
             } else if (fileName.endsWith(FileType.JAR)) {
                 try {
-                    scanJar(new JarFile(file));
+                    scanJar(new JarFile(file), sources, true);
                 } catch (IOException e) {
                     throw new InstrumentException(e);
                 }
@@ -249,20 +416,22 @@ public class Scaner {
             final File[] files = file.listFiles();
             if (null != files) {
                 for (File subFile : files) {
-                    scanFile(subFile, (null == rootDir) ? subPathBeforePackage(file) : rootDir);
+                    scanFile(subFile, (null == rootDir) ? subPathBeforePackage(file) : rootDir, sources);
                 }
             }
         }
     }
 
-
     /**
      * 扫描jar包
      *
-     * @param jar jar包
+     * @param jar     jar包
+     * @param sources 扫描到的class文件
+     * @param close   读取后是否关闭jar包
      */
-    private void scanJar(JarFile jar) {
+    private void scanJar(JarFile jar, List<Source> sources, boolean close) {
         String name;
+        boolean found = false;
         for (JarEntry entry : new IterKit.EnumerationIter<>(jar.entries())) {
             name = StringKit.removePrefix(entry.getName(), Symbol.SLASH);
             if (name.startsWith(this.packagePath)) {
@@ -270,10 +439,113 @@ public class Scaner {
                     final String className = name
                             .substring(0, name.length() - 6)
                             .replace(Symbol.C_SLASH, Symbol.C_DOT);
-                    addIfAccept(loadClass(className));
+                    sources.add(new Source(className, null, jar, entry));
+                    found = true;
                 }
             }
         }
+        if (close) {
+            if (found) {
+                // 读取结束后关闭
+                sources.add(new Source(null, null, jar, null));
+            } else {
+                IoKit.close(jar);
+            }
+        }
+    }
+
+    /**
+     * 读取class文件的元数据
+     *
+     * @param sources class文件
+     * @return 类元数据
+     */
+    private List<ClassMetadata> read(List<Source> sources) {
+        try {
+            Stream<Source> stream = sources.stream().filter(source -> null != source.className);
+            if (parallel) {
+                stream = stream.parallel();
+            }
+            return stream.map(this::read).collect(Collectors.toList());
+        } finally {
+            for (Source source : sources) {
+                if (null == source.className) {
+                    IoKit.close(source.jar);
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取class文件的元数据,读取失败时只保留类名,交由类过滤器判断
+     *
+     * @param source class文件
+     * @return 类元数据
+     */
+    private ClassMetadata read(Source source) {
+        try (InputStream in = null != source.file
+                ? Files.newInputStream(source.file.toPath()) : source.jar.getInputStream(source.entry)) {
+            final ClassMetadata metadata = ClassMetadata.read(IoKit.readBytes(in));
+            if (source.className.equals(metadata.getClassName())) {
+                return metadata;
+            }
+        } catch (IOException | RuntimeException e) {
+            // 无法解析的class文件(如更高版本的格式),由加载后的类过滤器判断
+        }
+        return new ClassMetadata(source.className, null, null, null, 0);
+    }
+
+    /**
+     * 读取索引文件
+     *
+     * @return 类元数据, 无索引或索引不对应当前包名返回null
+     */
+    private List<ClassMetadata> readIndex() {
+        if (null == indexFile || false == indexFile.isFile()) {
+            return null;
+        }
+        try (BufferedReader reader = FileKit.getReader(indexFile, Charset.UTF_8)) {
+            if (false == (INDEX_HEADER + packageName).equals(reader.readLine())) {
+                return null;
+            }
+            final List<ClassMetadata> candidates = new ArrayList<>();
+            String line;
+            while (null != (line = reader.readLine())) {
+                final String[] parts = line.split(Symbol.HT, -1);
+                if (parts.length != 5) {
+                    return null;
+                }
+                candidates.add(new ClassMetadata(parts[0], StringKit.emptyToNull(parts[2]),
+                        split(parts[3]), split(parts[4]), Integer.parseInt(parts[1])));
+            }
+            return candidates;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 写入索引文件
+     *
+     * @param candidates 类元数据
+     */
+    private void writeIndex(Collection<ClassMetadata> candidates) {
+        if (null == indexFile) {
+            return;
+        }
+        try (PrintWriter writer = FileKit.getPrintWriter(indexFile, Charset.DEFAULT_UTF_8, false)) {
+            writer.println(INDEX_HEADER + packageName);
+            for (ClassMetadata metadata : candidates) {
+                writer.println(metadata.getClassName() + Symbol.HT + metadata.getAccess() + Symbol.HT
+                        + StringKit.nullToEmpty(metadata.getSuperClassName()) + Symbol.HT
+                        + String.join(Symbol.COMMA, metadata.getInterfaceNames()) + Symbol.HT
+                        + String.join(Symbol.COMMA, metadata.getAnnotationNames()));
+            }
+        }
+    }
+
+    private static String[] split(String value) {
+        return value.isEmpty() ? null : value.split(Symbol.COMMA);
     }
 
     /**
@@ -285,7 +557,7 @@ public class Scaner {
     private Class<?> loadClass(String className) {
         Class<?> clazz = null;
         try {
-            clazz = Class.forName(className, this.initialize, ClassKit.getClassLoader());
+            clazz = Class.forName(className, this.initialize, this.classLoader);
         } catch (NoClassDefFoundError e) {
             // 由于依赖库导致的类无法加载,直接跳过此类
         } catch (UnsupportedClassVersionError e) {
@@ -298,28 +570,57 @@ public class Scaner {
     }
 
     /**
-     * 通过过滤器,是否满足接受此类的条件
+     * 类名是否在扫描的包中
      *
-     * @param className 类
-     * @return 是否接受
+     * @param className 类名
+     * @return 是否在包中
      */
-    private void addIfAccept(String className) {
+    private boolean isInPackage(String className) {
         if (StringKit.isBlank(className)) {
-            return;
+            return false;
         }
         int classLen = className.length();
         int packageLen = this.packageName.length();
         if (classLen == packageLen) {
             //类名和包名长度一致,用户可能传入的包名是类名
-            if (className.equals(this.packageName)) {
-                addIfAccept(loadClass(className));
-            }
-        } else if (classLen > packageLen) {
-            //检查类名是否以指定包名为前缀,包名后加.
-            if (className.startsWith(this.packageNameWithDot)) {
-                addIfAccept(loadClass(className));
+            return className.equals(this.packageName);
+        }
+        //检查类名是否以指定包名为前缀,包名后加.
+        return classLen > packageLen && className.startsWith(this.packageNameWithDot);
+    }
+
+    /**
+     * 按元数据过滤后加载类,再通过类过滤器
+     * 初始化类时按顺序加载,避免改变静态初始化的顺序
+     *
+     * @param candidates 类元数据
+     */
+    private void addIfAccept(Collection<ClassMetadata> candidates) {
+        Stream<ClassMetadata> stream = candidates.stream();
+        if (parallel && false == initialize) {
+            stream = stream.parallel();
+        }
+        final Filter<ClassMetadata> localMetadataFilter = this.metadataFilter;
+        if (null != localMetadataFilter) {
+            // 扫描到的类优先作为父类及接口的元数据来源
+            for (ClassMetadata metadata : candidates) {
+                if (false == isUnknown(metadata)) {
+                    hierarchy.putIfAbsent(metadata.getClassName(), metadata);
+                }
             }
         }
+        stream.filter(metadata -> null == localMetadataFilter || isUnknown(metadata) || localMetadataFilter.accept(metadata))
+                .forEach(metadata -> addIfAccept(loadClass(metadata.getClassName())));
+    }
+
+    /**
+     * 元数据是否读取失败,除Object外所有类都有父类
+     *
+     * @param metadata 类元数据
+     * @return 是否读取失败
+     */
+    private static boolean isUnknown(ClassMetadata metadata) {
+        return null == metadata.getSuperClassName() && false == Object.class.getName().equals(metadata.getClassName());
     }
 
     /**
@@ -351,4 +652,23 @@ public class Scaner {
         return StringKit.addSuffixIfNot(filePath, File.separator);
     }
 
+    /**
+     * 待读取的class文件,位于目录或jar包中,类名为null时表示读取结束后需关闭的jar包
+     */
+    private static class Source {
+
+        private final String className;
+        private final File file;
+        private final JarFile jar;
+        private final JarEntry entry;
+
+        Source(String className, File file, JarFile jar, JarEntry entry) {
+            this.className = className;
+            this.file = file;
+            this.jar = jar;
+            this.entry = entry;
+        }
+
+    }
+
 }
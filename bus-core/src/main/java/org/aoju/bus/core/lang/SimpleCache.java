@@ -25,15 +25,20 @@
 package org.aoju.bus.core.lang;
 
 import java.io.Serializable;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.WeakHashMap;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
- * 简单缓存,无超时实现,使用{@link WeakHashMap}实现缓存自动清理
+ * 简单缓存,无超时实现,键使用弱引用(或软引用)包装,键被回收后缓存项自动清理
+ * 基于{@link ConcurrentHashMap}实现,读取无锁,{@link #get(Object, Supplier)}创建值时不持有任何锁
  *
  * @param <K> 键类型
  * @param <V> 值类型
@@ -43,14 +48,43 @@ import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
  */
 public class SimpleCache<K, V> implements Iterable<Map.Entry<K, V>>, Serializable {
 
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * null键的占位
+     */
+    private static final Object NULL_KEY = new Object();
+
+    /**
+     * 是否使用软引用包装键
+     */
+    private final boolean soft;
+
     /**
      * 池
      */
-    private final Map<K, V> cache = new WeakHashMap<>();
+    private final transient Map<Object, V> cache = new ConcurrentHashMap<>();
 
-    private final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock();
-    private final ReadLock readLock = cacheLock.readLock();
-    private final WriteLock writeLock = cacheLock.writeLock();
+    /**
+     * 已回收的键
+     */
+    private final transient ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+    /**
+     * 构造,键使用弱引用
+     */
+    public SimpleCache() {
+        this(false);
+    }
+
+    /**
+     * 构造
+     *
+     * @param soft 是否使用软引用包装键,{@code false}时使用弱引用
+     */
+    public SimpleCache(boolean soft) {
+        this.soft = soft;
+    }
 
     /**
      * 从缓存池中查找值
@@ -59,15 +93,29 @@ public class SimpleCache<K, V> implements Iterable<Map.Entry<K, V>>, Serializabl
      * @return 值
      */
     public V get(K key) {
-        // 尝试读取缓存
-        readLock.lock();
-        V value;
-        try {
-            value = cache.get(key);
-        } finally {
-            readLock.unlock();
+        purge();
+        return cache.get(lookup(key));
+    }
+
+    /**
+     * 从缓存池中查找值,不存在时通过supplier创建并放入缓存
+     * 创建过程不持有锁,supplier内可再访问本缓存;并发创建同一个键时以先放入的值为准
+     *
+     * @param key      键
+     * @param supplier 值不存在时的创建方法,返回{@code null}时不缓存
+     * @return 值
+     */
+    public V get(K key, Supplier<V> supplier) {
+        V value = get(key);
+        if (null != value) {
+            return value;
         }
-        return value;
+        value = supplier.get();
+        if (null == value) {
+            return null;
+        }
+        V existing = cache.putIfAbsent(reference(key), value);
+        return null == existing ? value : existing;
     }
 
     /**
@@ -78,11 +126,11 @@ public class SimpleCache<K, V> implements Iterable<Map.Entry<K, V>>, Serializabl
      * @return 值
      */
     public V put(K key, V value) {
-        writeLock.lock();
-        try {
-            cache.put(key, value);
-        } finally {
-            writeLock.unlock();
+        purge();
+        if (null == value) {
+            cache.remove(lookup(key));
+        } else {
+            cache.put(reference(key), value);
         }
         return value;
     }
@@ -94,29 +142,170 @@ public class SimpleCache<K, V> implements Iterable<Map.Entry<K, V>>, Serializabl
      * @return 移除的值
      */
     public V remove(K key) {
-        writeLock.lock();
-        try {
-            return cache.remove(key);
-        } finally {
-            writeLock.unlock();
-        }
+        purge();
+        return cache.remove(lookup(key));
     }
 
     /**
      * 清空缓存池
      */
     public void clear() {
-        writeLock.lock();
-        try {
-            this.cache.clear();
-        } finally {
-            writeLock.unlock();
-        }
+        this.cache.clear();
+        purge();
     }
 
     @Override
     public Iterator<Map.Entry<K, V>> iterator() {
-        return this.cache.entrySet().iterator();
+        purge();
+        final Iterator<Map.Entry<Object, V>> iterator = this.cache.entrySet().iterator();
+        return new Iterator<Map.Entry<K, V>>() {
+
+            private Map.Entry<K, V> next;
+
+            @Override
+            public boolean hasNext() {
+                while (null == next && iterator.hasNext()) {
+                    Map.Entry<Object, V> entry = iterator.next();
+                    Object key = entry.getKey();
+                    if (key == NULL_KEY) {
+                        next = new AbstractMap.SimpleImmutableEntry<>(null, entry.getValue());
+                    } else {
+                        K referent = (K) ((Reference<?>) key).get();
+                        if (null != referent) {
+                            next = new AbstractMap.SimpleImmutableEntry<>(referent, entry.getValue());
+                        }
+                    }
+                }
+                return null != next;
+            }
+
+            @Override
+            public Map.Entry<K, V> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<K, V> entry = next;
+                next = null;
+                return entry;
+            }
+        };
+    }
+
+    /**
+     * 清理键已被回收的缓存项
+     */
+    private void purge() {
+        Reference<?> reference;
+        while (null != (reference = queue.poll())) {
+            cache.remove(reference);
+        }
+    }
+
+    private Object lookup(K key) {
+        return null == key ? NULL_KEY : new Lookup(key);
+    }
+
+    private Object reference(K key) {
+        if (null == key) {
+            return NULL_KEY;
+        }
+        return soft ? new SoftKey(key, queue) : new WeakKey(key, queue);
+    }
+
+    /**
+     * 反序列化后返回空缓存
+     *
+     * @return 空缓存
+     */
+    private Object readResolve() {
+        return new SimpleCache<>(soft);
+    }
+
+    /**
+     * 引用键的相等判断: 同一引用或引用的对象相等
+     */
+    private static boolean equals(Reference<?> reference, Object other) {
+        if (reference == other) {
+            return true;
+        }
+        Object referent = reference.get();
+        if (null == referent) {
+            return false;
+        }
+        if (other instanceof Reference) {
+            return referent.equals(((Reference<?>) other).get());
+        }
+        if (other instanceof Lookup) {
+            return referent.equals(((Lookup) other).key);
+        }
+        return false;
+    }
+
+    /**
+     * 查找时使用的临时键,不创建引用对象
+     */
+    private static final class Lookup {
+
+        private final Object key;
+        private final int hash;
+
+        Lookup(Object key) {
+            this.key = key;
+            this.hash = key.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof Reference) {
+                return SimpleCache.equals((Reference<?>) obj, this);
+            }
+            return obj instanceof Lookup && key.equals(((Lookup) obj).key);
+        }
+    }
+
+    private static final class WeakKey extends WeakReference<Object> {
+
+        private final int hash;
+
+        WeakKey(Object key, ReferenceQueue<Object> queue) {
+            super(key, queue);
+            this.hash = key.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return SimpleCache.equals(this, obj);
+        }
+    }
+
+    private static final class SoftKey extends SoftReference<Object> {
+
+        private final int hash;
+
+        SoftKey(Object key, ReferenceQueue<Object> queue) {
+            super(key, queue);
+            this.hash = key.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return SimpleCache.equals(this, obj);
+        }
     }
 
 }
@@ -39,6 +39,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * CSV文件读取器,参考：FastCSV
@@ -241,6 +242,42 @@ public final class CsvReader {
         return result;
     }
 
+    /**
+     * 从Reader中流式扫描CSV数据,读取后关闭Reader
+     * 处理器的参数为{@link CsvScanner},字段以视图形式读取,不为每行创建{@link CsvRow}
+     *
+     * @param reader  Reader
+     * @param handler 行处理器
+     * @param columns 投影的列号,为空表示读取全部列
+     * @throws InstrumentException IO异常
+     */
+    public void scan(Reader reader, Consumer<CsvScanner> handler, int... columns) throws InstrumentException {
+        try (CsvScanner scanner = new CsvScanner(reader, config)) {
+            scanner.select(columns);
+            while (scanner.next()) {
+                handler.accept(scanner);
+            }
+        } catch (IOException e) {
+            throw new InstrumentException(e);
+        }
+    }
+
+    /**
+     * 流式扫描CSV文件,并行度大于1时按记录边界切分文件并行扫描,处理器需线程安全
+     *
+     * @param path        CSV文件
+     * @param charset     文件编码
+     * @param parallelism 并行度
+     * @param handler     行处理器
+     * @param columns     投影的列号,为空表示读取全部列
+     * @throws InstrumentException IO异常
+     * @see CsvScanner#scan(Path, java.nio.charset.Charset, CsvReadConfig, int, int[], Consumer)
+     */
+    public void scan(Path path, java.nio.charset.Charset charset, int parallelism, Consumer<CsvScanner> handler, int... columns) throws InstrumentException {
+        Assert.notNull(path, "path must not be null");
+        CsvScanner.scan(path, charset, config, parallelism, columns, handler);
+    }
+
     /**
      * 构建 {@link CsvParser}
      *
@@ -0,0 +1,1030 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.core.text.csv;
+
+import org.aoju.bus.core.lang.Symbol;
+import org.aoju.bus.core.lang.exception.InstrumentException;
+import org.aoju.bus.core.toolkit.FileKit;
+import org.aoju.bus.core.toolkit.IoKit;
+import org.aoju.bus.core.toolkit.ObjectKit;
+import org.aoju.bus.core.toolkit.StringKit;
+import org.aoju.bus.core.toolkit.ThreadKit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * CSV流式扫描器
+ * 与{@link CsvParser}不同,扫描器不为每行创建{@link CsvRow},而是在字符窗口中记录字段位置,
+ * 字段以{@link Field}视图({@link CharSequence})或int/long/double/date的形式按需读取,
+ * 未选择(投影)的列只记录边界,不会被复制
+ * 视图只在下一次调用{@link #next()}之前有效,如需保留请调用{@link #getString(int)}
+ *
+ * <pre>
+ * try (CsvScanner scanner = new CsvScanner(reader, config)) {
+ *     scanner.select(0, 3);
+ *     while (scanner.next()) {
+ *         long id = scanner.getLong(0);
+ *         double amount = scanner.getDouble(3);
+ *     }
+ * }
+ * </pre>
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+public final class CsvScanner implements Closeable {
+
+    /**
+     * 并行扫描时单个分段的最大字节数(映射区域不能超过2G)
+     */
+    private static final long MAX_SEGMENT_SIZE = 1L << 30;
+    /**
+     * 计算分段边界时每次映射的窗口大小
+     */
+    private static final int SPLIT_WINDOW_SIZE = 64 << 20;
+    /**
+     * 可精确表示的10的幂, 有效数字不超过2^53且指数在此范围内时一次乘除即得到正确舍入的结果
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final Reader reader;
+    private final CsvReadConfig config;
+    /**
+     * 是否包含标题行
+     */
+    private final boolean containsHeader;
+
+    private char[] buf = new char[IoKit.DEFAULT_LARGE_BUFFER_SIZE];
+    /**
+     * 读取一段后数据长度
+     */
+    private int bufLen;
+    /**
+     * 当前位置
+     */
+    private int bufPos;
+    /**
+     * 当前行在窗口中的开始位置,窗口滑动时此位置之前的数据被丢弃
+     */
+    private int recordStart;
+    /**
+     * 当前字段开始位置
+     */
+    private int fieldStart;
+    /**
+     * 上一行以CR结束,下一个LF需跳过
+     */
+    private boolean skipLf;
+    /**
+     * 是否读取结束
+     */
+    private boolean finished;
+
+    /**
+     * 投影列: 列号到槽位的映射,-1表示不读取,null表示读取全部列
+     */
+    private int[] slots;
+    /**
+     * 各槽位字段相对行开始的起始位置
+     */
+    private int[] starts = new int[16];
+    /**
+     * 各槽位字段相对行开始的结束位置,-1表示本行无此字段
+     */
+    private int[] ends = new int[16];
+    /**
+     * 各槽位字段是否包含文本包装符
+     */
+    private boolean[] quoted = new boolean[16];
+    /**
+     * 各槽位的字段视图
+     */
+    private Field[] views = new Field[16];
+
+    /**
+     * 当前行号
+     */
+    private long lineNo;
+    /**
+     * 当前行字段数
+     */
+    private int fieldCount;
+    /**
+     * 当前行第一个字段是否为空
+     */
+    private boolean firstEmpty;
+    /**
+     * 第一行字段数,用于检查每行字段数是否一致
+     */
+    private int firstLineFieldCount = -1;
+    /**
+     * 标题行
+     */
+    private List<String> header;
+    /**
+     * 标题与列号的映射
+     */
+    private Map<String, Integer> headerMap;
+
+    /**
+     * CSV扫描器
+     *
+     * @param reader Reader
+     * @param config 配置,null则为默认配置
+     */
+    public CsvScanner(final Reader reader, CsvReadConfig config) {
+        this(reader, ObjectKit.defaultIfNull(config, CsvReadConfig.defaultConfig()), null);
+    }
+
+    /**
+     * CSV扫描器
+     *
+     * @param reader         Reader
+     * @param config         配置
+     * @param containsHeader 是否包含标题行,null则使用配置项
+     */
+    private CsvScanner(final Reader reader, CsvReadConfig config, Boolean containsHeader) {
+        this.reader = Objects.requireNonNull(reader, "reader must not be null");
+        this.config = config;
+        this.containsHeader = null == containsHeader ? config.containsHeader : containsHeader;
+    }
+
+    /**
+     * 扫描CSV文件,每读取一行调用一次处理器
+     * 并行度大于1时,文件以内存映射方式打开,并在引号外的换行处切分为多个分段并行扫描,
+     * 此时处理器会被多个线程同时调用,行号为分段内的行号,且要求编码为ASCII兼容编码(如UTF-8、GBK),
+     * 否则退化为单线程扫描
+     *
+     * @param path        CSV文件
+     * @param charset     文件编码
+     * @param config      配置,null则为默认配置
+     * @param parallelism 并行度
+     * @param columns     投影的列号,为空表示读取全部列
+     * @param handler     行处理器,参数为当前分段的扫描器
+     * @throws InstrumentException IO异常
+     */
+    public static void scan(Path path, Charset charset, CsvReadConfig config, int parallelism,
+                            int[] columns, Consumer<CsvScanner> handler) throws InstrumentException {
+        final CsvReadConfig readConfig = ObjectKit.defaultIfNull(config, CsvReadConfig.defaultConfig());
+        final String specials = new String(new char[]{Symbol.C_LF, readConfig.fieldSeparator, readConfig.textDelimiter});
+        if (parallelism <= 1 || specials.getBytes(charset).length != specials.length()) {
+            try (CsvScanner scanner = new CsvScanner(FileKit.getReader(path, charset), readConfig)) {
+                scanner.scan(columns, handler);
+            } catch (IOException e) {
+                throw new InstrumentException(e);
+            }
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final int count = (int) Math.max(parallelism, size / MAX_SEGMENT_SIZE + 1);
+            final long[] bounds = split(channel, size, count, (byte) readConfig.textDelimiter);
+
+            final ExecutorService executor = ThreadKit.newExecutor(parallelism);
+            try {
+                final List<Future<?>> futures = new ArrayList<>(bounds.length - 1);
+                for (int i = 0; i < bounds.length - 1; i++) {
+                    final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i]);
+                    final boolean containsHeader = i == 0 && readConfig.containsHeader;
+                    futures.add(executor.submit(() -> {
+                        try (CsvScanner scanner = new CsvScanner(new BufferReader(buffer, charset), readConfig, containsHeader)) {
+                            scanner.scan(columns, handler);
+                        } catch (IOException e) {
+                            throw new InstrumentException(e);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InstrumentException(e);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : new InstrumentException(cause);
+            } finally {
+                executor.shutdownNow();
+            }
+        } catch (IOException e) {
+            throw new InstrumentException(e);
+        }
+    }
+
+    /**
+     * 在引号外的换行处计算分段边界
+     *
+     * @param channel 文件通道
+     * @param size    文件大小
+     * @param count   期望的分段数
+     * @param quote   文本包装符
+     * @return 分段边界, 首尾分别为0和文件大小
+     * @throws IOException IO异常
+     */
+    private static long[] split(FileChannel channel, long size, int count, byte quote) throws IOException {
+        final long target = size / count;
+        final List<Long> bounds = new ArrayList<>(count + 1);
+        bounds.add(0L);
+        if (target > 0) {
+            boolean inQuotes = false;
+            long next = target;
+            long position = 0;
+            while (position < size && bounds.size() < count) {
+                final int window = (int) Math.min(SPLIT_WINDOW_SIZE, size - position);
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, window);
+                for (int i = 0; i < window; i++) {
+                    final byte b = buffer.get(i);
+                    if (b == quote) {
+                        inQuotes = !inQuotes;
+                    } else if (b == Symbol.C_LF && false == inQuotes && position + i >= next) {
+                        bounds.add(position + i + 1);
+                        next = position + i + 1 + target;
+                        if (bounds.size() == count) {
+                            break;
+                        }
+                    }
+                }
+                position += window;
+            }
+        }
+        if (bounds.get(bounds.size() - 1) < size) {
+            bounds.add(size);
+        }
+
+        final long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * 选择需要读取的列,其它列只识别边界,不做任何复制
+     *
+     * @param columns 列号,从0开始,为空表示读取全部列
+     * @return this
+     */
+    public CsvScanner select(int... columns) {
+        if (null == columns || columns.length == 0) {
+            this.slots = null;
+            return this;
+        }
+
+        int max = 0;
+        for (int column : columns) {
+            if (column < 0) {
+                throw new IllegalArgumentException("column must not be negative: " + column);
+            }
+            max = Math.max(max, column);
+        }
+        final int[] localSlots = new int[max + 1];
+        Arrays.fill(localSlots, -1);
+        for (int i = 0; i < columns.length; i++) {
+            localSlots[columns[i]] = i;
+        }
+        ensureCapacity(columns.length);
+        this.slots = localSlots;
+        return this;
+    }
+
+    /**
+     * 按标题选择需要读取的列,需开启containsHeader
+     *
+     * @param names 标题名
+     * @return this
+     * @throws IllegalArgumentException 标题不存在
+     */
+    public CsvScanner select(String... names) {
+        final Map<String, Integer> localHeaderMap = getHeaderMap();
+        final int[] columns = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            final Integer column = localHeaderMap.get(names[i]);
+            if (null == column) {
+                throw new IllegalArgumentException("No such header: " + names[i]);
+            }
+            columns[i] = column;
+        }
+        return select(columns);
+    }
+
+    /**
+     * 获取头部字段列表,如果containsHeader设置为false则抛出异常
+     *
+     * @return 头部列表
+     * @throws IllegalStateException 如果不解析头部
+     */
+    public List<String> getHeader() {
+        getHeaderMap();
+        return header;
+    }
+
+    /**
+     * 读取下一行
+     *
+     * @return 是否还有数据
+     * @throws InstrumentException IO读取异常
+     */
+    public boolean next() throws InstrumentException {
+        if (containsHeader && null == header) {
+            readHeader();
+        }
+
+        while (readRecord()) {
+            // 跳过空行
+            if (config.skipEmptyRows && fieldCount == 1 && firstEmpty) {
+                continue;
+            }
+
+            // 检查每行的字段数是否一致
+            if (config.errorOnDifferentFieldCount) {
+                if (firstLineFieldCount == -1) {
+                    firstLineFieldCount = fieldCount;
+                } else if (fieldCount != firstLineFieldCount) {
+                    throw new InstrumentException(String.format("Line %d has %d fields, but first line has %d fields", lineNo, fieldCount, firstLineFieldCount));
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 当前行号,多行文本的字段按实际行数计算
+     *
+     * @return 行号
+     */
+    public long getLineNo() {
+        return lineNo;
+    }
+
+    /**
+     * 当前行字段数(包括未选择的列)
+     *
+     * @return 字段数
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * 获取字段视图,视图在下一次调用{@link #next()}或再次获取同一列前有效
+     *
+     * @param column 列号,从0开始
+     * @return 字段视图, 本行无此列返回null
+     * @throws IllegalArgumentException 未选择此列
+     */
+    public Field field(int column) {
+        final int slot = slot(column);
+        if (column >= fieldCount || ends[slot] < 0) {
+            return null;
+        }
+
+        Field view = views[slot];
+        if (null == view) {
+            view = views[slot] = new Field();
+        }
+
+        int offset = recordStart + starts[slot];
+        int length = ends[slot] - starts[slot];
+        if (false == quoted[slot]) {
+            return view.reset(buf, offset, length);
+        }
+
+        final char delimiter = config.textDelimiter;
+        if (length >= 2 && buf[offset] == delimiter && buf[offset + length - 1] == delimiter) {
+            offset++;
+            length -= 2;
+        }
+        // 双写的文本包装符还原为一个
+        char[] scratch = null;
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = buf[offset + i];
+            if (c == delimiter && i + 1 < length && buf[offset + i + 1] == delimiter) {
+                if (null == scratch) {
+                    scratch = view.scratch(length);
+                    System.arraycopy(buf, offset, scratch, 0, i);
+                    count = i;
+                }
+                i++;
+            }
+            if (null != scratch) {
+                scratch[count++] = c;
+            }
+        }
+        return null == scratch ? view.reset(buf, offset, length) : view.reset(scratch, 0, count);
+    }
+
+    /**
+     * 判断字段是否为空或不存在
+     *
+     * @param column 列号,从0开始
+     * @return 是否为空
+     */
+    public boolean isEmpty(int column) {
+        final Field field = field(column);
+        return null == field || field.length() == 0;
+    }
+
+    /**
+     * 获取字段字符串
+     *
+     * @param column 列号,从0开始
+     * @return 字段值, 本行无此列返回null
+     */
+    public String getString(int column) {
+        final Field field = field(column);
+        return null == field ? null : field.toString();
+    }
+
+    /**
+     * 将字段直接解析为int,不创建字符串
+     *
+     * @param column 列号,从0开始
+     * @return int值
+     * @throws NumberFormatException 字段为空或不是数字
+     */
+    public int getInt(int column) {
+        final long value = getLong(column);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Value out of int range: " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * 将字段直接解析为long,不创建字符串
+     *
+     * @param column 列号,从0开始
+     * @return long值
+     * @throws NumberFormatException 字段为空或不是数字
+     */
+    public long getLong(int column) {
+        final Field field = requireField(column);
+        final char[] chars = field.chars;
+        int start = field.offset;
+        int end = start + field.length;
+        while (start < end && chars[start] <= Symbol.C_SPACE) {
+            start++;
+        }
+        while (end > start && chars[end - 1] <= Symbol.C_SPACE) {
+            end--;
+        }
+        if (start == end) {
+            throw new NumberFormatException("Empty value at column " + column);
+        }
+
+        boolean negative = false;
+        final char first = chars[start];
+        if (first == Symbol.C_HYPHEN || first == Symbol.C_PLUS) {
+            negative = first == Symbol.C_HYPHEN;
+            if (++start == end) {
+                throw new NumberFormatException("For input string: \"" + field + "\"");
+            }
+        }
+
+        // 与Long.parseLong一致,以负数累加避免溢出
+        final long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        final long multmin = limit / 10;
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            final int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9 || result < multmin) {
+                throw new NumberFormatException("For input string: \"" + field + "\"");
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw new NumberFormatException("For input string: \"" + field + "\"");
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * 将字段解析为double
+     * 有效数字不超过2^53且十进制指数在±22以内的普通小数直接在字符窗口中解析,不创建字符串;
+     * 其它形式(更多有效数字、更大指数、NaN、Infinity、十六进制等)创建字符串后交由{@link Double#parseDouble(String)}
+     *
+     * @param column 列号,从0开始
+     * @return double值
+     * @throws NumberFormatException 字段为空或不是数字
+     */
+    public double getDouble(int column) {
+        final Field field = requireField(column);
+        final char[] chars = field.chars;
+        int start = field.offset;
+        int end = start + field.length;
+        while (start < end && chars[start] <= Symbol.C_SPACE) {
+            start++;
+        }
+        while (end > start && chars[end - 1] <= Symbol.C_SPACE) {
+            end--;
+        }
+        if (start == end) {
+            throw new NumberFormatException("Empty value at column " + column);
+        }
+
+        final double value = parseDecimal(chars, start, end);
+        // 快速路径不会得到NaN, NaN表示需要完整解析
+        return Double.isNaN(value) ? Double.parseDouble(field.toString()) : value;
+    }
+
+    /**
+     * 解析形如{@code [+-]digits[.digits][(e|E)[+-]digits]}的十进制数
+     *
+     * @param chars 字符窗口
+     * @param start 起始位置(含)
+     * @param end   结束位置(不含)
+     * @return double值, 无法精确快速解析时返回{@link Double#NaN}
+     */
+    private static double parseDecimal(char[] chars, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (chars[i] == Symbol.C_HYPHEN || chars[i] == Symbol.C_PLUS) {
+            negative = chars[i] == Symbol.C_HYPHEN;
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean hasDigit = false;
+        boolean hasDot = false;
+        for (; i < end; i++) {
+            final char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                hasDigit = true;
+                if (hasDot) {
+                    scale++;
+                }
+                if (mantissa == 0 && c == '0') {
+                    // 前导零不计入有效数字
+                    continue;
+                }
+                if (++digits > 18) {
+                    return Double.NaN;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+            } else if (c == Symbol.C_DOT && false == hasDot) {
+                hasDot = true;
+            } else {
+                break;
+            }
+        }
+        if (false == hasDigit) {
+            return Double.NaN;
+        }
+
+        int exponent = 0;
+        if (i < end && (chars[i] == 'e' || chars[i] == 'E')) {
+            boolean negativeExponent = false;
+            if (++i < end && (chars[i] == Symbol.C_HYPHEN || chars[i] == Symbol.C_PLUS)) {
+                negativeExponent = chars[i] == Symbol.C_HYPHEN;
+                i++;
+            }
+            if (i == end) {
+                return Double.NaN;
+            }
+            for (; i < end; i++) {
+                final int digit = chars[i] - '0';
+                if (digit < 0 || digit > 9 || exponent > 9999) {
+                    return Double.NaN;
+                }
+                exponent = exponent * 10 + digit;
+            }
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+        if (i != end) {
+            return Double.NaN;
+        }
+
+        if (mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        final int power = exponent - scale;
+        if (mantissa > (1L << 53) || power < -22 || power > 22) {
+            return Double.NaN;
+        }
+        final double value = power < 0 ? mantissa / POWERS_OF_TEN[-power] : mantissa * POWERS_OF_TEN[power];
+        return negative ? -value : value;
+    }
+
+    /**
+     * 将字段按格式直接解析为日期,不创建字符串
+     * 格式中不含时间的按当天零点计算,不含时区的按系统默认时区计算
+     *
+     * @param column    列号,从0开始
+     * @param formatter 日期格式
+     * @return 日期
+     * @throws java.time.format.DateTimeParseException 格式不匹配
+     */
+    public Date getDate(int column, DateTimeFormatter formatter) {
+        final TemporalAccessor accessor = formatter.parse(requireField(column));
+        if (accessor.isSupported(ChronoField.INSTANT_SECONDS)) {
+            return Date.from(Instant.from(accessor));
+        }
+        final LocalDateTime dateTime = accessor.isSupported(ChronoField.HOUR_OF_DAY)
+                ? LocalDateTime.from(accessor) : LocalDate.from(accessor).atStartOfDay();
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * 扫描剩余所有行
+     *
+     * @param columns 投影的列号
+     * @param handler 行处理器
+     */
+    private void scan(int[] columns, Consumer<CsvScanner> handler) {
+        select(columns);
+        while (next()) {
+            handler.accept(this);
+        }
+    }
+
+    /**
+     * 获取已选择列的槽位
+     *
+     * @param column 列号
+     * @return 槽位
+     */
+    private int slot(int column) {
+        if (column < 0) {
+            throw new IllegalArgumentException("column must not be negative: " + column);
+        }
+        if (null == slots) {
+            return column;
+        }
+        if (column >= slots.length || slots[column] < 0) {
+            throw new IllegalArgumentException("Column " + column + " is not selected");
+        }
+        return slots[column];
+    }
+
+    /**
+     * 获取必须存在的字段
+     *
+     * @param column 列号
+     * @return 字段视图
+     */
+    private Field requireField(int column) {
+        final Field field = field(column);
+        if (null == field) {
+            throw new NumberFormatException("Line " + lineNo + " has no column " + column);
+        }
+        return field;
+    }
+
+    /**
+     * 读取并缓存标题行
+     *
+     * @return 标题与列号的映射
+     */
+    private Map<String, Integer> getHeaderMap() {
+        if (false == containsHeader) {
+            throw new IllegalStateException("No header available - header parsing is disabled");
+        }
+        if (null == header) {
+            readHeader();
+        }
+        return headerMap;
+    }
+
+    /**
+     * 读取标题行,标题行读取全部列
+     */
+    private void readHeader() {
+        final int[] localSlots = this.slots;
+        this.slots = null;
+        try {
+            final List<String> fields = new ArrayList<>();
+            while (readRecord()) {
+                if (config.skipEmptyRows && fieldCount == 1 && firstEmpty) {
+                    continue;
+                }
+                for (int i = 0; i < fieldCount; i++) {
+                    fields.add(getString(i));
+                }
+                break;
+            }
+
+            final Map<String, Integer> localHeaderMap = new LinkedHashMap<>(fields.size());
+            for (int i = 0; i < fields.size(); i++) {
+                final String field = fields.get(i);
+                if (StringKit.isNotEmpty(field) && false == localHeaderMap.containsKey(field)) {
+                    localHeaderMap.put(field, i);
+                }
+            }
+            this.header = Collections.unmodifiableList(fields);
+            this.headerMap = Collections.unmodifiableMap(localHeaderMap);
+        } finally {
+            this.slots = localSlots;
+        }
+    }
+
+    /**
+     * 读取一行,只记录字段边界
+     *
+     * @return 是否读取到数据
+     * @throws InstrumentException IO异常
+     */
+    private boolean readRecord() throws InstrumentException {
+        final char separator = config.fieldSeparator;
+        final char delimiter = config.textDelimiter;
+        if (null != slots) {
+            Arrays.fill(ends, -1);
+        }
+        recordStart = fieldStart = bufPos;
+        fieldCount = 0;
+        lineNo++;
+
+        boolean inQuotes = false;
+        boolean fieldQuoted = false;
+        while (true) {
+            if (bufPos == bufLen && false == fill()) {
+                if (bufPos == recordStart && fieldCount == 0) {
+                    return false;
+                }
+                endField(bufPos, fieldQuoted);
+                return true;
+            }
+
+            final char c = buf[bufPos++];
+            if (skipLf) {
+                skipLf = false;
+                if (c == Symbol.C_LF) {
+                    recordStart = fieldStart = bufPos;
+                    continue;
+                }
+            }
+
+            if (inQuotes) {
+                //引号内,做为内容,直到引号结束
+                if (c == delimiter) {
+                    inQuotes = false;
+                } else if (c == Symbol.C_LF) {
+                    lineNo++;
+                }
+            } else if (c == separator) {
+                //一个字段结束
+                endField(bufPos - 1, fieldQuoted);
+                fieldStart = bufPos;
+                fieldQuoted = false;
+            } else if (c == delimiter) {
+                // 引号开始
+                inQuotes = true;
+                fieldQuoted = true;
+            } else if (c == Symbol.C_CR || c == Symbol.C_LF) {
+                endField(bufPos - 1, fieldQuoted);
+                skipLf = c == Symbol.C_CR;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 记录一个字段的边界,未选择的列直接忽略
+     *
+     * @param end    字段结束位置
+     * @param quoted 是否包含文本包装符
+     */
+    private void endField(int end, boolean quoted) {
+        final int column = fieldCount++;
+        if (column == 0) {
+            firstEmpty = end == fieldStart;
+        }
+
+        final int slot;
+        if (null == slots) {
+            slot = column;
+            ensureCapacity(slot + 1);
+        } else if (column >= slots.length || (slot = slots[column]) < 0) {
+            return;
+        }
+        this.starts[slot] = fieldStart - recordStart;
+        this.ends[slot] = end - recordStart;
+        this.quoted[slot] = quoted;
+    }
+
+    /**
+     * 读取下一段数据,当前行之前的数据被丢弃,当前行超过窗口大小时扩容
+     *
+     * @return 是否读取到数据
+     * @throws InstrumentException IO异常
+     */
+    private boolean fill() throws InstrumentException {
+        if (finished) {
+            return false;
+        }
+
+        if (recordStart > 0) {
+            final int shift = recordStart;
+            System.arraycopy(buf, shift, buf, 0, bufLen - shift);
+            bufLen -= shift;
+            bufPos -= shift;
+            fieldStart -= shift;
+            recordStart = 0;
+        } else if (bufLen == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length << 1);
+        }
+
+        final int read;
+        try {
+            read = reader.read(buf, bufLen, buf.length - bufLen);
+        } catch (IOException e) {
+            throw new InstrumentException(e);
+        }
+        if (read < 0) {
+            finished = true;
+            return false;
+        }
+        bufLen += read;
+        return true;
+    }
+
+    /**
+     * 确保槽位数组容量
+     *
+     * @param capacity 容量
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > starts.length) {
+            final int newCapacity = Math.max(capacity, starts.length << 1);
+            starts = Arrays.copyOf(starts, newCapacity);
+            ends = Arrays.copyOf(ends, newCapacity);
+            quoted = Arrays.copyOf(quoted, newCapacity);
+            views = Arrays.copyOf(views, newCapacity);
+        }
+    }
+
+    /**
+     * 字段视图,直接引用扫描器的字符窗口
+     */
+    public static final class Field implements CharSequence {
+
+        private char[] chars;
+        private int offset;
+        private int length;
+        /**
+         * 还原双写文本包装符时使用的缓冲
+         */
+        private char[] scratch;
+
+        private Field reset(char[] chars, int offset, int length) {
+            this.chars = chars;
+            this.offset = offset;
+            this.length = length;
+            return this;
+        }
+
+        private char[] scratch(int capacity) {
+            if (null == scratch || scratch.length < capacity) {
+                scratch = new char[capacity];
+            }
+            return scratch;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new StringIndexOutOfBoundsException(index);
+            }
+            return chars[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end) {
+                throw new StringIndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+            }
+            return new String(chars, offset + start, end - start);
+        }
+
+        /**
+         * 与字符串比较内容,不创建字符串
+         *
+         * @param value 字符串
+         * @return 内容是否相同
+         */
+        public boolean contentEquals(CharSequence value) {
+            if (null == value || value.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (chars[offset + i] != value.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, offset, length);
+        }
+
+    }
+
+    /**
+     * 从(内存映射的)字节缓冲中解码字符的Reader
+     */
+    private static final class BufferReader extends Reader {
+
+        private final ByteBuffer buffer;
+        private final CharsetDecoder decoder;
+        private boolean flushed;
+
+        BufferReader(ByteBuffer buffer, Charset charset) {
+            this.buffer = buffer;
+            this.decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (flushed) {
+                return -1;
+            }
+            final CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+            decoder.decode(buffer, out, true);
+            if (false == buffer.hasRemaining()) {
+                decoder.flush(out);
+                flushed = true;
+                if (out.position() == off) {
+                    return -1;
+                }
+            }
+            return out.position() - off;
+        }
+
+        @Override
+        public void close() {
+            // 映射内存由GC回收
+        }
+
+    }
+
+}
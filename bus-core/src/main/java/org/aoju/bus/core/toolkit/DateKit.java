@@ -31,6 +31,7 @@ import org.aoju.bus.core.date.TimeInterval;
 import org.aoju.bus.core.date.format.DateParser;
 import org.aoju.bus.core.date.format.DatePeriod;
 import org.aoju.bus.core.date.format.DatePrinter;
+import org.aoju.bus.core.date.format.DateScanner;
 import org.aoju.bus.core.date.format.FormatBuilder;
 import org.aoju.bus.core.lang.Fields;
 import org.aoju.bus.core.lang.Normal;
@@ -46,7 +47,9 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.TemporalAccessor;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -67,6 +70,14 @@ public class DateKit {
      * 支持的最大年份
      */
     public final static int MAX_YEAR = 2150;
+    /**
+     * 已识别的日期字符串形态与解析方式,最多缓存的形态数
+     */
+    private static final int LEARNED_FORMAT_SIZE = 256;
+    /**
+     * 已识别的日期字符串形态(数字统一为'9')与解析方式,同一形态直接使用对应方式解析
+     */
+    private static final Map<String, Function<String, DateTime>> LEARNED_FORMATS = new ConcurrentHashMap<>();
 
     /**
      * 农历年，和公历是一样的
@@ -849,11 +860,29 @@ public class DateKit {
         if (StringKit.isBlank(dateCharSequence)) {
             return null;
         }
+        // 常见格式直接扫描字符解析
+        final DateTime dateTime = DateScanner.parse(dateCharSequence);
+        if (null != dateTime) {
+            return dateTime;
+        }
+
         String dateStr = dateCharSequence.toString();
         // 去掉两边空格并去掉中文日期中的“日”和“秒”，以规范长度
         dateStr = StringKit.removeAll(dateStr.trim(), '日', '秒');
         int length = dateStr.length();
 
+        // 同一形态的字符串跳过格式识别
+        final String shape = DateScanner.shape(dateStr);
+        final Function<String, DateTime> learned = LEARNED_FORMATS.get(shape);
+        if (null != learned) {
+            try {
+                return learned.apply(dateStr);
+            } catch (InstrumentException e) {
+                // 按原有规则重新识别
+                LEARNED_FORMATS.remove(shape);
+            }
+        }
+
         if (MathKit.isNumber(dateStr)) {
             // 纯数字形式
             if (length == Fields.PURE_DATETIME_PATTERN.length()) {
@@ -873,39 +902,56 @@ public class DateKit {
             // Tue Jan 07 15:22:15 +0800 2020
             // Wed Jan 08 00:00:00 CST 2020
             // Thu Jan 09 17:51:10 GMT+08:00 2020
-            return parseCST(dateStr);
+            return learn(shape, dateStr, DateKit::parseCST);
         } else if (StringKit.contains(dateStr, 'T')) {
             // UTC时间
-            return parseUTC(dateStr);
+            return learn(shape, dateStr, DateKit::parseUTC);
         }
 
         // 含有单个位数数字的日期时间格式
-        dateStr = normalize(dateStr);
-        if (PatternKit.isMatch(Fields.REGEX_NORM, dateStr)) {
-            final int colonCount = StringKit.count(dateStr, Symbol.COLON);
+        final String normalized = normalize(dateStr);
+        if (PatternKit.isMatch(Fields.REGEX_NORM, normalized)) {
+            final int colonCount = StringKit.count(normalized, Symbol.COLON);
             switch (colonCount) {
                 case 0:
                     // yyyy-MM-dd
-                    return parse(dateStr, Fields.NORM_DATE_FORMAT);
+                    return learn(shape, dateStr, str -> parse(normalize(str), Fields.NORM_DATE_FORMAT));
                 case 1:
                     // yyyy-MM-dd HH:mm
-                    return parse(dateStr, Fields.NORM_DATETIME_MINUTE_FORMAT);
+                    return learn(shape, dateStr, str -> parse(normalize(str), Fields.NORM_DATETIME_MINUTE_FORMAT));
                 case 2:
                     // yyyy-MM-dd HH:mm:ss
-                    return parse(dateStr, Fields.NORM_DATETIME_FORMAT);
+                    return learn(shape, dateStr, str -> parse(normalize(str), Fields.NORM_DATETIME_FORMAT));
             }
         }
 
         // 长度判断
         if (length >= Fields.NORM_DATETIME_MS_PATTERN.length() - 2) {
             // yyyy-MM-dd HH:mm:ss.SSS
-            return parse(dateStr, Fields.NORM_DATETIME_MS_FORMAT);
+            return learn(shape, dateStr, str -> parse(normalize(str), Fields.NORM_DATETIME_MS_FORMAT));
         }
 
         // 没有更多匹配的时间格式
         throw new InstrumentException("No format fit for date String [{}] !", dateStr);
     }
 
+    /**
+     * 使用识别出的方式解析,成功后记录该形态的解析方式
+     * 识别结果只取决于字符串形态,故同一形态可直接复用
+     *
+     * @param shape   字符串形态
+     * @param dateStr 日期字符串
+     * @param format  解析方式
+     * @return 日期
+     */
+    private static DateTime learn(String shape, String dateStr, Function<String, DateTime> format) {
+        final DateTime dateTime = format.apply(dateStr);
+        if (LEARNED_FORMATS.size() < LEARNED_FORMAT_SIZE) {
+            LEARNED_FORMATS.putIfAbsent(shape, format);
+        }
+        return dateTime;
+    }
+
     /**
      * 构建LocalDateTime对象
      *
@@ -31,12 +31,20 @@ import org.aoju.bus.core.lang.RegEx;
 import org.aoju.bus.core.lang.Symbol;
 
 import java.util.*;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * 常用正则表达式集合
+ * 编译后的{@link Pattern}按正则标识位分组缓存,缓存为强引用且有容量上限(默认512,
+ * 可通过系统属性bus.regex.cache.size或{@link #setMaxSize(int)}调整),读取无锁,
+ * 超出容量时按二次机会(CLOCK)淘汰近期未使用的正则
+ * 频繁调用的地方建议通过{@link #get(String, int)}获取一次{@link Pattern}后复用
  *
  * @author Kimi Liu
  * @version 5.9.8
@@ -44,10 +52,25 @@ import java.util.regex.Pattern;
  */
 public class PatternKit {
 
-    private static final Map<RegexWithFlag, Pattern> CACHE = new WeakHashMap<>();
-    private static final ReentrantReadWriteLock CACHE_LOCK = new ReentrantReadWriteLock();
-    private static final ReentrantReadWriteLock.ReadLock READ_LOCK = CACHE_LOCK.readLock();
-    private static final ReentrantReadWriteLock.WriteLock WRITE_LOCK = CACHE_LOCK.writeLock();
+    /**
+     * 正则标识位 -> (正则 -> 缓存项),查找时无需创建组合键
+     */
+    private static final ConcurrentMap<Integer, ConcurrentMap<String, Cached>> CACHE = new ConcurrentHashMap<>();
+    /**
+     * 缓存项数量
+     */
+    private static final AtomicInteger SIZE = new AtomicInteger();
+    /**
+     * 是否正在淘汰,同一时间只有一个线程执行淘汰
+     */
+    private static final AtomicBoolean EVICTING = new AtomicBoolean();
+    private static final LongAdder HIT_COUNT = new LongAdder();
+    private static final LongAdder COMPILE_COUNT = new LongAdder();
+    private static final LongAdder EVICTION_COUNT = new LongAdder();
+    /**
+     * 缓存容量上限
+     */
+    private static volatile int maxSize = Integer.getInteger("bus.regex.cache.size", 512);
 
     /**
      * 先从Pattern池中查找正则对应的{@link Pattern},找不到则编译正则表达式并入池
@@ -67,13 +90,88 @@ public class PatternKit {
      * @return {@link Pattern}
      */
     public static Pattern get(String regex, int flags) {
-        final RegexWithFlag regexWithFlag = new RegexWithFlag(regex, flags);
-        Pattern pattern = isGet(regexWithFlag);
-        if (null == pattern) {
-            pattern = Pattern.compile(regex, flags);
-            isPut(regexWithFlag, pattern);
+        ConcurrentMap<String, Cached> patterns = CACHE.get(flags);
+        if (null == patterns) {
+            patterns = CACHE.computeIfAbsent(flags, key -> new ConcurrentHashMap<>());
+        }
+
+        Cached cached = patterns.get(regex);
+        if (null != cached) {
+            HIT_COUNT.increment();
+            if (false == cached.referenced) {
+                cached.referenced = true;
+            }
+            return cached.pattern;
+        }
+
+        // 编译在锁外进行,并发编译同一正则时保留先放入的结果
+        COMPILE_COUNT.increment();
+        final Cached created = new Cached(Pattern.compile(regex, flags));
+        cached = patterns.putIfAbsent(regex, created);
+        if (null != cached) {
+            return cached.pattern;
+        }
+        if (SIZE.incrementAndGet() > maxSize) {
+            evict();
+        }
+        return created.pattern;
+    }
+
+    /**
+     * 设置缓存容量上限
+     *
+     * @param size 容量上限
+     */
+    public static void setMaxSize(int size) {
+        maxSize = Math.max(0, size);
+        if (SIZE.get() > maxSize) {
+            evict();
         }
-        return pattern;
+    }
+
+    /**
+     * 缓存容量上限
+     *
+     * @return 容量上限
+     */
+    public static int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 缓存的正则数量
+     *
+     * @return 数量
+     */
+    public static int getSize() {
+        return SIZE.get();
+    }
+
+    /**
+     * 从缓存中取得{@link Pattern}的次数
+     *
+     * @return 命中次数
+     */
+    public static long getHitCount() {
+        return HIT_COUNT.sum();
+    }
+
+    /**
+     * 编译正则表达式的次数
+     *
+     * @return 编译次数
+     */
+    public static long getCompileCount() {
+        return COMPILE_COUNT.sum();
+    }
+
+    /**
+     * 因超出容量被淘汰的正则数量
+     *
+     * @return 淘汰数量
+     */
+    public static long getEvictionCount() {
+        return EVICTION_COUNT.sum();
     }
 
     /**
@@ -701,52 +799,31 @@ public class PatternKit {
     }
 
     /**
-     * 从缓存池中查找值
-     *
-     * @param key 键
-     * @return 值
+     * 淘汰近期未使用的正则,直到数量不超过容量上限
+     * 每一轮先清除仍被使用的正则的访问标记,两轮内必然可以完成
      */
-    private static Pattern isGet(RegexWithFlag key) {
-        // 尝试读取缓存
-        READ_LOCK.lock();
-        Pattern value;
-        try {
-            value = CACHE.get(key);
-        } finally {
-            READ_LOCK.unlock();
+    private static void evict() {
+        if (false == EVICTING.compareAndSet(false, true)) {
+            return;
         }
-        return value;
-    }
-
-    /**
-     * 放入缓存
-     *
-     * @param key   键
-     * @param value 值
-     * @return 值
-     */
-    private static Object isPut(RegexWithFlag key, Pattern value) {
-        WRITE_LOCK.lock();
         try {
-            CACHE.put(key, value);
-        } finally {
-            WRITE_LOCK.unlock();
-        }
-        return value;
-    }
-
-    /**
-     * 移除缓存
-     *
-     * @param key 键
-     * @return 移除的值
-     */
-    private static Object isRemove(Object key) {
-        WRITE_LOCK.lock();
-        try {
-            return CACHE.remove(key);
+            for (int round = 0; round < 2 && SIZE.get() > maxSize; round++) {
+                for (ConcurrentMap<String, Cached> patterns : CACHE.values()) {
+                    final Iterator<Map.Entry<String, Cached>> iterator = patterns.entrySet().iterator();
+                    while (iterator.hasNext() && SIZE.get() > maxSize) {
+                        final Cached cached = iterator.next().getValue();
+                        if (cached.referenced) {
+                            cached.referenced = false;
+                        } else {
+                            iterator.remove();
+                            SIZE.decrementAndGet();
+                            EVICTION_COUNT.increment();
+                        }
+                    }
+                }
+            }
         } finally {
-            WRITE_LOCK.unlock();
+            EVICTING.set(false);
         }
     }
 
@@ -764,61 +841,30 @@ public class PatternKit {
      * 清空缓存池
      */
     public void clear() {
-        WRITE_LOCK.lock();
-        try {
-            CACHE.clear();
-        } finally {
-            WRITE_LOCK.unlock();
+        for (ConcurrentMap<String, Cached> patterns : CACHE.values()) {
+            for (String regex : patterns.keySet()) {
+                if (null != patterns.remove(regex)) {
+                    SIZE.decrementAndGet();
+                }
+            }
         }
     }
 
     /**
-     * 正则表达式和正则标识位的包装
-     *
-     * @author Kimi Liu
+     * 缓存项
      */
-    private static class RegexWithFlag {
-        private String regex;
-        private int flag;
+    private static class Cached {
 
+        private final Pattern pattern;
         /**
-         * 构造
-         *
-         * @param regex 正则
-         * @param flag  标识
+         * 自上次淘汰检查后是否被访问过
          */
-        public RegexWithFlag(String regex, int flag) {
-            this.regex = regex;
-            this.flag = flag;
-        }
-
-        @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + flag;
-            result = prime * result + ((regex == null) ? 0 : regex.hashCode());
-            return result;
-        }
+        private volatile boolean referenced;
 
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj) {
-                return true;
-            }
-            if (obj == null) {
-                return false;
-            }
-            if (getClass() != obj.getClass()) {
-                return false;
-            }
-            RegexWithFlag other = (RegexWithFlag) obj;
-            if (flag != other.flag) {
-                return false;
-            }
-            if (regex == null) {
-                return other.regex == null;
-            } else return regex.equals(other.regex);
+        Cached(Pattern pattern) {
+            this.pattern = pattern;
+            // 新放入的正则至少保留一轮,避免刚编译即被淘汰
+            this.referenced = true;
         }
 
     }
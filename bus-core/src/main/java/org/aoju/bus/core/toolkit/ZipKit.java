@@ -24,16 +24,26 @@
  ********************************************************************************/
 package org.aoju.bus.core.toolkit;
 
+import org.aoju.bus.core.io.StreamProgress;
+import org.aoju.bus.core.io.file.ZipWriter;
 import org.aoju.bus.core.io.streams.ByteArrayOutputStream;
 import org.aoju.bus.core.lang.Charset;
 import org.aoju.bus.core.lang.Symbol;
 import org.aoju.bus.core.lang.exception.InstrumentException;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.*;
 
 /**
@@ -51,6 +61,10 @@ public class ZipKit {
      * 默认编码,使用平台相关编码
      */
     private static final java.nio.charset.Charset DEFAULT_CHARSET = Charset.defaultCharset();
+    /**
+     * 并行解压时单次通道传输的最大字节数
+     */
+    private static final int TRANSFER_SIZE = 1 << 20;
 
     /**
      * 打包到当前目录,使用默认编码UTF-8
@@ -192,6 +206,50 @@ public class ZipKit {
         return zipFile;
     }
 
+    /**
+     * 对文件或文件目录进行并行压缩
+     * 文件按块在线程池中独立压缩后按顺序拼接,生成标准Zip文件(超过4GB时使用ZIP64扩展),
+     * 条目顺序与{@link #zip(File, java.nio.charset.Charset, boolean, File...)}一致
+     *
+     * @param zipFile     生成的Zip文件,包括文件名 注意：zipPath不能是srcPath路径下的子文件夹
+     * @param charset     编码
+     * @param withSrcDir  是否包含被打包目录,只针对压缩目录有效 若为false,则只压缩目录下的文件或目录,为true则将本目录也压缩
+     * @param parallelism 并行度,小于1表示CPU核心数
+     * @param progress    进度条,进度为已压缩的原始字节数,null表示不回调
+     * @param srcFiles    要压缩的源文件或目录 如果压缩一个文件,则为该文件的全路径；如果压缩一个目录,则为该目录的顶层目录路径
+     * @return 压缩文件
+     * @throws InstrumentException IO异常
+     */
+    public static File zip(File zipFile, java.nio.charset.Charset charset, boolean withSrcDir, int parallelism,
+                           StreamProgress progress, File... srcFiles) throws InstrumentException {
+        validateFiles(zipFile, srcFiles);
+
+        if (null != progress) {
+            progress.start();
+        }
+        try (ZipWriter writer = new ZipWriter(zipFile, ObjectKit.defaultIfNull(charset, Charset.DEFAULT),
+                parallelism, Deflater.DEFAULT_COMPRESSION, progress)) {
+            String srcRootDir;
+            for (File srcFile : srcFiles) {
+                if (null == srcFile) {
+                    continue;
+                }
+                srcRootDir = srcFile.getCanonicalPath();
+                if (srcFile.isFile() || withSrcDir) {
+                    srcRootDir = srcFile.getCanonicalFile().getParentFile().getCanonicalPath();
+                }
+                zip(srcFile, srcRootDir, writer);
+            }
+            writer.finish();
+        } catch (IOException e) {
+            throw new InstrumentException(e);
+        }
+        if (null != progress) {
+            progress.finish();
+        }
+        return zipFile;
+    }
+
     /**
      * 对文件或文件目录进行压缩
      *
@@ -484,6 +542,73 @@ public class ZipKit {
         return outFile;
     }
 
+    /**
+     * 并行解压
+     * 目录按顺序创建,文件条目按大小降序提交到线程池,各自通过{@link FileChannel#transferFrom}写出
+     *
+     * @param zipFile     zip文件
+     * @param outFile     解压到的目录
+     * @param charset     编码
+     * @param parallelism 并行度,小于1表示CPU核心数
+     * @param progress    进度条,进度为已解压的字节数,null表示不回调,回调已同步
+     * @return 解压的目录
+     * @throws InstrumentException IO异常
+     */
+    public static File unzip(File zipFile, File outFile, java.nio.charset.Charset charset, int parallelism,
+                             StreamProgress progress) throws InstrumentException {
+        charset = (null == charset) ? DEFAULT_CHARSET : charset;
+        if (parallelism < 1) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+
+        if (null != progress) {
+            progress.start();
+        }
+        final AtomicLong processed = new AtomicLong();
+        final ExecutorService executor = ThreadKit.newExecutor(parallelism);
+        try (ZipFile zipFileObj = new ZipFile(zipFile, charset)) {
+            final List<ZipEntry> items = new ArrayList<>();
+            final Enumeration<? extends ZipEntry> em = zipFileObj.entries();
+            while (em.hasMoreElements()) {
+                final ZipEntry zipEntry = em.nextElement();
+                if (zipEntry.isDirectory()) {
+                    buildFile(outFile, zipEntry.getName()).mkdirs();
+                } else {
+                    items.add(zipEntry);
+                }
+            }
+            // 大文件优先,避免尾部出现单个大文件拖慢整体
+            items.sort((a, b) -> Long.compare(b.getSize(), a.getSize()));
+
+            final List<Future<?>> futures = new ArrayList<>(items.size());
+            for (ZipEntry zipEntry : items) {
+                final File outItemFile = buildFile(outFile, zipEntry.getName());
+                FileKit.mkParentDirs(outItemFile);
+                futures.add(executor.submit(() -> {
+                    transfer(zipFileObj, zipEntry, outItemFile, processed, progress);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (IOException e) {
+            throw new InstrumentException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InstrumentException(e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new InstrumentException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+        if (null != progress) {
+            progress.finish();
+        }
+        return outFile;
+    }
+
     /**
      * 解压
      *
@@ -947,6 +1072,33 @@ public class ZipKit {
         }
     }
 
+    /**
+     * 递归添加文件夹到并行写出器,规则同{@link #zip(File, String, ZipOutputStream)}
+     *
+     * @param file       当前递归压缩的文件或目录对象
+     * @param srcRootDir 被压缩的文件夹根目录
+     * @param writer     并行写出器
+     * @throws InstrumentException IO异常
+     */
+    private static void zip(File file, String srcRootDir, ZipWriter writer) throws InstrumentException {
+        if (file == null) {
+            return;
+        }
+
+        final String subPath = FileKit.subPath(srcRootDir, file);
+        if (file.isDirectory()) {
+            final File[] files = file.listFiles();
+            if (ArrayKit.isEmpty(files) && StringKit.isNotEmpty(subPath)) {
+                writer.addDir(StringKit.addSuffixIfNot(subPath, Symbol.SLASH));
+            }
+            for (File childFile : files) {
+                zip(childFile, srcRootDir, writer);
+            }
+        } else {
+            writer.addFile(file, subPath);
+        }
+    }
+
     /**
      * 添加文件到压缩包
      *
@@ -1071,6 +1223,35 @@ public class ZipKit {
         }
     }
 
+    /**
+     * 从Zip文件中读取条目,通过{@link FileChannel#transferFrom}写出到文件
+     *
+     * @param zipFile     Zip文件
+     * @param zipEntry    zip文件中的子文件
+     * @param outItemFile 输出到的文件
+     * @param processed   已解压的总字节数
+     * @param progress    进度条,可为null
+     * @throws IOException IO异常
+     */
+    private static void transfer(ZipFile zipFile, ZipEntry zipEntry, File outItemFile,
+                                 AtomicLong processed, StreamProgress progress) throws IOException {
+        try (ReadableByteChannel in = Channels.newChannel(zipFile.getInputStream(zipEntry));
+             FileChannel out = FileChannel.open(outItemFile.toPath(), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            long count;
+            while ((count = out.transferFrom(in, position, TRANSFER_SIZE)) > 0) {
+                position += count;
+                final long total = processed.addAndGet(count);
+                if (null != progress) {
+                    synchronized (progress) {
+                        progress.progress(total);
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * 将Zlib流解压到out中
      *
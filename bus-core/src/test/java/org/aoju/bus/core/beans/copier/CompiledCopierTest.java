@@ -0,0 +1,195 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.core.beans.copier;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 预编译拷贝与反射拷贝的一致性
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+public class CompiledCopierTest {
+
+    private static Target copy(Source source, CopyOptions copyOptions) {
+        Target target = new Target();
+        target.setAge(99);
+        target.setCount(99);
+        return BeanCopier.create(source, target, copyOptions).copy();
+    }
+
+    private static void assertSame(Source source, boolean ignoreError) {
+        Target reflective = copy(source, CopyOptions.create().setIgnoreError(ignoreError));
+        Target compiled = copy(source, CopyOptions.create().setIgnoreError(ignoreError).setCompiled(true));
+        Assert.assertEquals(reflective.getAge(), compiled.getAge());
+        Assert.assertEquals(reflective.getCount(), compiled.getCount());
+        Assert.assertEquals(reflective.getTotal(), compiled.getTotal());
+        Assert.assertEquals(reflective.isEnabled(), compiled.isEnabled());
+        Assert.assertEquals(reflective.getName(), compiled.getName());
+    }
+
+    @Test
+    public void nullToPrimitive() {
+        Source source = new Source();
+        Target target = copy(source, CopyOptions.create().setCompiled(true));
+        Assert.assertEquals(0, target.getAge());
+        Assert.assertEquals(0, target.getCount());
+
+        target = copy(source, CopyOptions.create().setIgnoreError(true).setCompiled(true));
+        Assert.assertEquals(0, target.getAge());
+
+        assertSame(source, false);
+        assertSame(source, true);
+    }
+
+    @Test
+    public void ignoreNullValue() {
+        Target target = copy(new Source(), CopyOptions.create().setIgnoreNullValue(true).setCompiled(true));
+        Assert.assertEquals(99, target.getAge());
+        Assert.assertEquals(99, target.getCount());
+    }
+
+    @Test
+    public void convertedValue() {
+        Source source = new Source();
+        source.setAge(18);
+        source.setCount("12");
+        source.setTotal(1234567L);
+        source.setEnabled("true");
+        source.setName(42);
+
+        Target target = copy(source, CopyOptions.create().setCompiled(true));
+        Assert.assertEquals(18, target.getAge());
+        Assert.assertEquals(12, target.getCount());
+        Assert.assertEquals(Integer.valueOf(1234567), target.getTotal());
+        Assert.assertTrue(target.isEnabled());
+        Assert.assertEquals("42", target.getName());
+
+        assertSame(source, false);
+        assertSame(source, true);
+    }
+
+    public static class Source {
+
+        private Integer age;
+        private String count;
+        private long total;
+        private String enabled;
+        private Integer name;
+
+        public Integer getAge() {
+            return age;
+        }
+
+        public void setAge(Integer age) {
+            this.age = age;
+        }
+
+        public String getCount() {
+            return count;
+        }
+
+        public void setCount(String count) {
+            this.count = count;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public void setTotal(long total) {
+            this.total = total;
+        }
+
+        public String getEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(String enabled) {
+            this.enabled = enabled;
+        }
+
+        public Integer getName() {
+            return name;
+        }
+
+        public void setName(Integer name) {
+            this.name = name;
+        }
+    }
+
+    public static class Target {
+
+        private int age;
+        private int count;
+        private Integer total;
+        private boolean enabled;
+        private String name;
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public Integer getTotal() {
+            return total;
+        }
+
+        public void setTotal(Integer total) {
+            this.total = total;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.core.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 内存页分配与回收
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+public class PageBufferTest {
+
+    private static final int PAGE_SIZE = 64 * 1024;
+    private static final int CHUNK_SIZE = 4096;
+    private static final int CHUNKS = PAGE_SIZE / CHUNK_SIZE;
+
+    private static List<VirtualBuffer> allocate(PageBuffer pageBuffer, int count, int size) {
+        List<VirtualBuffer> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(pageBuffer.allocate(size));
+        }
+        return list;
+    }
+
+    private static void clean(List<VirtualBuffer> list) {
+        list.forEach(VirtualBuffer::clean);
+    }
+
+    @Test
+    public void crossThreadClean() throws Exception {
+        PageBuffer pageBuffer = new PageBuffer(PAGE_SIZE, false);
+        ExecutorService producer = Executors.newSingleThreadExecutor();
+        ExecutorService consumer = Executors.newSingleThreadExecutor();
+        try {
+            for (int round = 0; round < 100; round++) {
+                List<VirtualBuffer> list = producer.submit(() -> allocate(pageBuffer, CHUNKS, CHUNK_SIZE)).get();
+                consumer.submit(() -> clean(list)).get();
+            }
+        } finally {
+            producer.shutdown();
+            consumer.shutdown();
+        }
+        Assert.assertEquals(100L * CHUNKS, pageBuffer.getAllocateCount());
+        Assert.assertEquals(0L, pageBuffer.getFallbackCount());
+        Assert.assertEquals(PAGE_SIZE, pageBuffer.getUsedBytes());
+    }
+
+    @Test
+    public void threadCacheOverflow() throws Exception {
+        PageBuffer pageBuffer = new PageBuffer(PAGE_SIZE, false);
+        // 当前线程的缓存最多保留部分块, 其余归还共享空闲栈供其他线程使用
+        clean(allocate(pageBuffer, CHUNKS, CHUNK_SIZE));
+
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            List<VirtualBuffer> list = other.submit(() -> allocate(pageBuffer, CHUNKS / 2, CHUNK_SIZE)).get();
+            Assert.assertEquals(0L, pageBuffer.getFallbackCount());
+            // 由当前线程释放, 不进入other的线程缓存
+            clean(list);
+        } finally {
+            other.shutdown();
+        }
+        clean(allocate(pageBuffer, CHUNKS, CHUNK_SIZE));
+        Assert.assertEquals(0L, pageBuffer.getFallbackCount());
+    }
+
+    @Test
+    public void deadThreadCache() throws Exception {
+        PageBuffer pageBuffer = new PageBuffer(PAGE_SIZE, false);
+        // 块由申请线程自己释放, 留在其线程缓存中, 线程随后结束
+        Thread thread = new Thread(() -> clean(allocate(pageBuffer, 4, CHUNK_SIZE)));
+        thread.start();
+        thread.join();
+
+        List<VirtualBuffer> list = allocate(pageBuffer, CHUNKS, CHUNK_SIZE);
+        Assert.assertEquals(0L, pageBuffer.getFallbackCount());
+        clean(list);
+    }
+
+    @Test
+    public void splitLargerChunks() {
+        PageBuffer pageBuffer = new PageBuffer(PAGE_SIZE, false);
+        clean(allocate(pageBuffer, CHUNKS, CHUNK_SIZE));
+
+        // 页空间已全部划分为4096字节的块, 小规格的申请从中拆分
+        List<VirtualBuffer> list = allocate(pageBuffer, PAGE_SIZE / 64, 64);
+        Assert.assertEquals(0L, pageBuffer.getFallbackCount());
+        Assert.assertEquals(PAGE_SIZE, pageBuffer.getUsedBytes());
+        for (VirtualBuffer buffer : list) {
+            Assert.assertEquals(64, buffer.buffer().capacity());
+        }
+        clean(list);
+    }
+
+    @Test
+    public void noMergeOfSmallerChunks() {
+        PageBuffer pageBuffer = new PageBuffer(PAGE_SIZE, false);
+        clean(allocate(pageBuffer, PAGE_SIZE / 64, 64));
+
+        // 空闲的小规格块不会合并, 较大规格的申请只能退回堆内存分配
+        VirtualBuffer buffer = pageBuffer.allocate(CHUNK_SIZE);
+        Assert.assertEquals(1L, pageBuffer.getFallbackCount());
+        Assert.assertEquals(CHUNK_SIZE, buffer.buffer().capacity());
+    }
+
+}
@@ -0,0 +1,100 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.core.text.csv;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 流式扫描字段解析
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+public class CsvScannerTest {
+
+    private static void assertDoubles(List<String> values) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        values.forEach(value -> builder.append(value).append('\n'));
+        try (CsvScanner scanner = new CsvScanner(new StringReader(builder.toString()), CsvReadConfig.defaultConfig())) {
+            for (String value : values) {
+                Assert.assertTrue(scanner.next());
+                Double expected;
+                try {
+                    expected = Double.parseDouble(value);
+                } catch (NumberFormatException e) {
+                    expected = null;
+                }
+                try {
+                    double actual = scanner.getDouble(0);
+                    Assert.assertNotNull(value, expected);
+                    Assert.assertEquals(value, Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual));
+                } catch (NumberFormatException e) {
+                    Assert.assertNull(value, expected);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void getDouble() throws IOException {
+        assertDoubles(Arrays.asList("0", "-0", "0.0", "1", "-1", "+2.5", ".5", "1.", "0.05", "100",
+                "3.141592653589793", "0.1", "0.3", "1e10", "1E-5", "-2.5e+3", "123456789012345678",
+                "1234567890123456789", "9007199254740993", "1e23", "1e-23", "4.9e-324", "1.7976931348623157e308",
+                "1e400", "NaN", "-Infinity", "0x1p3", "1.5d", "2f", " 7 ", "abc", "1e", "-", ".", "1.2.3", "--1"));
+    }
+
+    @Test
+    public void getDoubleRandom() throws IOException {
+        Random random = new Random(17);
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            switch (i % 4) {
+                case 0:
+                    values.add(Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20)));
+                    break;
+                case 1:
+                    values.add(String.format("%." + random.nextInt(10) + "f", (random.nextDouble() - 0.5) * 1e6));
+                    break;
+                case 2:
+                    values.add(random.nextInt(100000) + "e" + (random.nextInt(60) - 30));
+                    break;
+                default:
+                    values.add(Long.toString(random.nextLong() >> random.nextInt(64)));
+                    break;
+            }
+        }
+        assertDoubles(values);
+    }
+
+}
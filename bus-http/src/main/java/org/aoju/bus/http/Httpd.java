@@ -366,6 +366,27 @@ public class Httpd implements Cloneable, NewCall.Factory, WebSocket.Factory {
         return connectionPool;
     }
 
+    /**
+     * 根据客户端的DNS、代理及TLS设置创建{@code url}对应的地址，地址相同的请求可以共享连接
+     *
+     * @param url 请求地址
+     * @return 地址信息
+     */
+    public Address address(UnoUrl url) {
+        SSLSocketFactory sslSocketFactory = null;
+        HostnameVerifier hostnameVerifier = null;
+        CertificatePinner certificatePinner = null;
+        if (url.isHttps()) {
+            sslSocketFactory = sslSocketFactory();
+            hostnameVerifier = hostnameVerifier();
+            certificatePinner = certificatePinner();
+        }
+
+        return new Address(url.host(), url.port(), dns(), socketFactory(),
+                sslSocketFactory, hostnameVerifier, certificatePinner, proxyAuthenticator(),
+                proxy(), protocols(), connectionSpecs(), proxySelector());
+    }
+
     public boolean followSslRedirects() {
         return followSslRedirects;
     }
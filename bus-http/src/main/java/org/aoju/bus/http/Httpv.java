@@ -79,7 +79,7 @@ public class Httpv {
         this.httpd = builder.httpd();
         this.baseUrl = builder.baseUrl();
         this.mediaTypes = builder.getMediaTypes();
-        this.executor = new TaskExecutor(httpd.dispatcher().executorService(),
+        this.executor = new TaskExecutor(httpd.dispatcher().executor(),
                 builder.mainExecutor(), builder.downloadListener(),
                 builder.responseListener(), builder.exceptionListener(),
                 builder.completeListener(), builder.msgConvertors());
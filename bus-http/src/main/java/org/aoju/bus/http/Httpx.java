@@ -194,7 +194,7 @@ public class Httpx {
                     try {
                         return dns.lookup(hostname);
                     } catch (Exception e) {
-                        e.printStackTrace();
+                        Logger.error(e.getMessage(), e);
                     }
                     return DnsX.SYSTEM.lookup(hostname);
                 });
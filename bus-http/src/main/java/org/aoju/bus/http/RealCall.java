@@ -45,7 +45,7 @@ import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
@@ -230,11 +230,11 @@ public final class RealCall implements NewCall {
             return RealCall.this;
         }
 
-        public void executeOn(ExecutorService executorService) {
+        public void executeOn(Executor executor) {
             assert (!Thread.holdsLock(client.dispatcher()));
             boolean success = false;
             try {
-                executorService.execute(this);
+                executor.execute(this);
                 success = true;
             } catch (RejectedExecutionException e) {
                 InterruptedIOException ioException = new InterruptedIOException("executor rejected");
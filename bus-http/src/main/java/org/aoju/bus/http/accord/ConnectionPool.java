@@ -25,11 +25,12 @@
 package org.aoju.bus.http.accord;
 
 import org.aoju.bus.core.toolkit.IoKit;
-import org.aoju.bus.http.Address;
-import org.aoju.bus.http.Builder;
-import org.aoju.bus.http.Route;
+import org.aoju.bus.http.*;
 import org.aoju.bus.http.accord.platform.Platform;
+import org.aoju.bus.http.metric.EventListener;
+import org.aoju.bus.logger.Logger;
 
+import java.io.IOException;
 import java.lang.ref.Reference;
 import java.net.Socket;
 import java.util.*;
@@ -42,6 +43,9 @@ import java.util.concurrent.TimeUnit;
  * 管理HTTP和HTTP/2连接的重用，以减少网络延迟。 共享相同的
  * {@link Address}的HTTP请求可能共享一个{@link Connection}
  * 该类实现了哪些连接保持开放以供将来使用的策略
+ * <p>
+ * 连接按{@link Address}索引，每个地址维护自己的空闲连接列表，获取连接时只需查看目标地址的连接；
+ * 仅HTTP/2连接合并时才需要查看其他地址的多路复用连接
  *
  * @author Kimi Liu
  * @version 5.9.8
@@ -56,14 +60,34 @@ public final class ConnectionPool {
     private static final Executor executor = new ThreadPoolExecutor(0,
             Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
             new SynchronousQueue<>(), Builder.threadFactory("Httpd ConnectionPool", true));
-    public final Deque<RealConnection> connections = new ArrayDeque<>();
     public final RouteDatabase routeDatabase = new RouteDatabase();
+    /**
+     * 按地址索引的连接
+     */
+    private final Map<Address, Routes> routes = new HashMap<>();
+    /**
+     * 所有空闲连接，按进入空闲的先后排列
+     */
+    private final Set<RealConnection> idleConnections = new LinkedHashSet<>();
+    /**
+     * 所有多路复用连接，用于HTTP/2连接合并
+     */
+    private final Set<RealConnection> multiplexedConnections = new LinkedHashSet<>();
     /**
      * 每个地址的最大空闲连接数.
      */
     private final int maxIdleConnections;
     private final long keepAliveDurationNs;
     boolean cleanupRunning;
+    private int connectionCount;
+    /**
+     * 连接获取统计
+     */
+    private long acquireCount;
+    private long hitCount;
+    private long totalAcquireNanos;
+    private long maxAcquireNanos;
+    private long evictionCount;
     private final Runnable cleanupRunnable = () -> {
         while (true) {
             long waitNanos = cleanup(System.nanoTime());
@@ -105,11 +129,7 @@ public final class ConnectionPool {
      * @return 连接的数量
      */
     public synchronized int idleConnectionCount() {
-        int total = 0;
-        for (RealConnection connection : connections) {
-            if (connection.allocations.isEmpty()) total++;
-        }
-        return total;
+        return idleConnections.size();
     }
 
     /**
@@ -120,7 +140,111 @@ public final class ConnectionPool {
      * @return 连接总数
      */
     public synchronized int connectionCount() {
-        return connections.size();
+        return connectionCount;
+    }
+
+    /**
+     * @param address 地址
+     * @return 到{@code address}的空闲连接数量
+     */
+    public synchronized int idleConnectionCount(Address address) {
+        Routes routes = this.routes.get(address);
+        return null == routes ? 0 : routes.idle.size();
+    }
+
+    /**
+     * @param address 地址
+     * @return 到{@code address}的连接总数
+     */
+    public synchronized int connectionCount(Address address) {
+        Routes routes = this.routes.get(address);
+        return null == routes ? 0 : routes.connections.size();
+    }
+
+    /**
+     * @return 池中有连接或最小空闲目标的地址数量
+     */
+    public synchronized int routeCount() {
+        return routes.size();
+    }
+
+    /**
+     * @return 获取连接的次数，包括复用池中连接及新建连接
+     */
+    public synchronized long acquireCount() {
+        return acquireCount;
+    }
+
+    /**
+     * @return 复用池中连接的次数
+     */
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return 复用池中连接的比例
+     */
+    public synchronized double hitRate() {
+        return acquireCount == 0 ? 0 : (double) hitCount / acquireCount;
+    }
+
+    /**
+     * @param unit 时间单位
+     * @return 获取连接的平均耗时，新建连接包含TCP及TLS握手时间
+     */
+    public synchronized long averageAcquire(TimeUnit unit) {
+        return acquireCount == 0 ? 0 : unit.convert(totalAcquireNanos / acquireCount, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit 时间单位
+     * @return 获取连接的最长耗时
+     */
+    public synchronized long maxAcquire(TimeUnit unit) {
+        return unit.convert(maxAcquireNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return 因空闲超时、超出空闲数量或{@link #evictAll()}而关闭的连接数量
+     */
+    public synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return HTTP/2连接上正在使用的流数量
+     */
+    public synchronized int multiplexedStreamCount() {
+        int total = 0;
+        for (RealConnection connection : multiplexedConnections) {
+            total += connection.allocations.size();
+        }
+        return total;
+    }
+
+    /**
+     * @return HTTP/2连接允许的并发流总数
+     */
+    public synchronized int multiplexedStreamCapacity() {
+        int total = 0;
+        for (RealConnection connection : multiplexedConnections) {
+            if (!connection.noNewStreams) total += connection.allocationLimit;
+        }
+        return total;
+    }
+
+    /**
+     * 记录一次连接获取
+     *
+     * @param nanos  获取耗时
+     * @param pooled 是否复用了池中的连接
+     */
+    synchronized void acquired(long nanos, boolean pooled) {
+        acquireCount++;
+        if (pooled) hitCount++;
+        totalAcquireNanos += nanos;
+        maxAcquireNanos = Math.max(maxAcquireNanos, nanos);
     }
 
     /**
@@ -134,10 +258,25 @@ public final class ConnectionPool {
      */
     public RealConnection get(Address address, StreamAllocation streamAllocation, Route route) {
         assert (Thread.holdsLock(this));
-        for (RealConnection connection : connections) {
-            if (connection.isEligible(address, route)) {
-                streamAllocation.acquire(connection, true);
-                return connection;
+        Routes routes = this.routes.get(address);
+        if (null != routes) {
+            for (RealConnection connection : routes.idle) {
+                if (connection.isEligible(address, route)) {
+                    return acquire(connection, streamAllocation);
+                }
+            }
+            for (RealConnection connection : routes.multiplexed) {
+                if (connection.isEligible(address, route)) {
+                    return acquire(connection, streamAllocation);
+                }
+            }
+        }
+        // 其他地址的HTTP/2连接可能在共享IP地址和证书时合并
+        if (null != route) {
+            for (RealConnection connection : multiplexedConnections) {
+                if (connection.isEligible(address, route)) {
+                    return acquire(connection, streamAllocation);
+                }
             }
         }
         return null;
@@ -153,11 +292,16 @@ public final class ConnectionPool {
      */
     public Socket deduplicate(Address address, StreamAllocation streamAllocation) {
         assert (Thread.holdsLock(this));
-        for (RealConnection connection : connections) {
+        Routes routes = this.routes.get(address);
+        if (null == routes) {
+            return null;
+        }
+        for (RealConnection connection : routes.multiplexed) {
             if (connection.isEligible(address, null)
-                    && connection.isMultiplexed()
                     && connection != streamAllocation.connection()) {
-                return streamAllocation.releaseAndAcquire(connection);
+                Socket socket = streamAllocation.releaseAndAcquire(connection);
+                removeIdle(connection);
+                return socket;
             }
         }
         return null;
@@ -169,7 +313,16 @@ public final class ConnectionPool {
             cleanupRunning = true;
             executor.execute(cleanupRunnable);
         }
-        connections.add(connection);
+        Routes routes = this.routes.computeIfAbsent(connection.route().address(), Routes::new);
+        routes.connections.add(connection);
+        if (connection.isMultiplexed()) {
+            routes.multiplexed.add(connection);
+            multiplexedConnections.add(connection);
+        }
+        connectionCount++;
+        if (connection.allocations.isEmpty()) {
+            addIdle(routes, connection);
+        }
     }
 
     /**
@@ -181,9 +334,14 @@ public final class ConnectionPool {
     public boolean connectionBecameIdle(RealConnection connection) {
         assert (Thread.holdsLock(this));
         if (connection.noNewStreams || maxIdleConnections == 0) {
-            connections.remove(connection);
+            remove(connection);
+            replenish(connection.route().address());
             return true;
         } else {
+            Routes routes = this.routes.get(connection.route().address());
+            if (null != routes && routes.connections.contains(connection)) {
+                addIdle(routes, connection);
+            }
             // 唤醒清理线程:可能已经超过了空闲连接限制
             notifyAll();
             return false;
@@ -194,16 +352,14 @@ public final class ConnectionPool {
      * 关闭并删除池中的所有空闲连接.
      */
     public void evictAll() {
-        List<RealConnection> evictedConnections = new ArrayList<>();
+        List<RealConnection> evictedConnections;
         synchronized (this) {
-            for (Iterator<RealConnection> i = connections.iterator(); i.hasNext(); ) {
-                RealConnection connection = i.next();
-                if (connection.allocations.isEmpty()) {
-                    connection.noNewStreams = true;
-                    evictedConnections.add(connection);
-                    i.remove();
-                }
+            evictedConnections = new ArrayList<>(idleConnections);
+            for (RealConnection connection : evictedConnections) {
+                connection.noNewStreams = true;
+                remove(connection);
             }
+            evictionCount += evictedConnections.size();
         }
 
         for (RealConnection connection : evictedConnections) {
@@ -211,6 +367,67 @@ public final class ConnectionPool {
         }
     }
 
+    /**
+     * 预先建立到{@code url}的连接，直到该地址至少有{@code connections}个空闲连接。
+     * HTTP/2连接可以承载多个流，因此建立一个多路复用连接后即停止。该方法会阻塞直到连接建立完成
+     *
+     * @param client      使用该连接池的客户端，提供超时、代理及TLS等设置
+     * @param url         目标地址
+     * @param connections 空闲连接数量
+     * @return 新建立的连接数量
+     * @throws IOException 建立连接失败
+     */
+    public int warmUp(Httpd client, UnoUrl url, int connections) throws IOException {
+        if (client.connectionPool() != this) {
+            throw new IllegalArgumentException("client does not use this pool");
+        }
+        Address address = client.address(url);
+        int opened = 0;
+        while (true) {
+            synchronized (this) {
+                Routes routes = this.routes.get(address);
+                int idle = null == routes ? 0 : routes.idle.size();
+                if (idle >= connections || (null != routes && !routes.multiplexed.isEmpty())) {
+                    return opened;
+                }
+            }
+            RealConnection connection = connect(client, address);
+            synchronized (this) {
+                connection.idleAtNanos = System.nanoTime();
+                put(connection);
+            }
+            opened++;
+        }
+    }
+
+    /**
+     * 设置到{@code url}的最小空闲连接数。空闲连接被使用、过期或关闭导致数量低于目标时，
+     * 在后台线程中补充新的连接；设置为0取消目标
+     *
+     * @param client  使用该连接池的客户端，提供超时、代理及TLS等设置
+     * @param url     目标地址
+     * @param minIdle 最小空闲连接数
+     */
+    public void minIdle(Httpd client, UnoUrl url, int minIdle) {
+        if (client.connectionPool() != this) {
+            throw new IllegalArgumentException("client does not use this pool");
+        }
+        if (minIdle < 0) {
+            throw new IllegalArgumentException("minIdle < 0: " + minIdle);
+        }
+        Address address = client.address(url);
+        synchronized (this) {
+            Routes routes = this.routes.computeIfAbsent(address, Routes::new);
+            routes.client = client;
+            routes.minIdle = minIdle;
+            if (minIdle == 0) {
+                release(routes);
+            } else {
+                replenish(routes);
+            }
+        }
+    }
+
     /**
      * 对这个池执行维护，如果连接超出了keep alive限制或idle connections限制，就会清除空闲时间最长的连接
      * 返回到该方法的下一次预定调用之前在nanos中的睡眠时间。如果不需要进一步清理，则返回-1
@@ -219,40 +436,49 @@ public final class ConnectionPool {
      * @return 睡眠时间
      */
     long cleanup(long now) {
-        int inUseConnectionCount = 0;
-        int idleConnectionCount = 0;
-        RealConnection longestIdleConnection = null;
-        long longestIdleDurationNs = Long.MIN_VALUE;
+        RealConnection evictedConnection = null;
 
         // 找到与清除的联系，或者下一次清除的时间
         synchronized (this) {
-            for (Iterator<RealConnection> i = connections.iterator(); i.hasNext(); ) {
-                RealConnection connection = i.next();
-
-                // 如果正在使用连接，请继续搜索.
-                if (pruneAndGetAllocationCount(connection, now) > 0) {
-                    inUseConnectionCount++;
-                    continue;
+            // 泄漏检测只需检查正在使用的连接
+            for (Routes routes : this.routes.values()) {
+                for (RealConnection connection : routes.connections) {
+                    if (!routes.idle.contains(connection)
+                            && pruneAndGetAllocationCount(connection, now) == 0) {
+                        evictedConnection = connection;
+                        break;
+                    }
                 }
+                if (null != evictedConnection) break;
+            }
 
-                idleConnectionCount++;
-
-                // 如果连接准备好被驱逐，我们就完成了
-                long idleDurationNs = now - connection.idleAtNanos;
-                if (idleDurationNs > longestIdleDurationNs) {
-                    longestIdleDurationNs = idleDurationNs;
-                    longestIdleConnection = connection;
+            if (null == evictedConnection && !idleConnections.isEmpty()) {
+                RealConnection longestIdleConnection = idleConnections.iterator().next();
+                long longestIdleDurationNs = now - longestIdleConnection.idleAtNanos;
+                if (longestIdleDurationNs >= this.keepAliveDurationNs) {
+                    evictedConnection = longestIdleConnection;
+                } else if (idleConnections.size() > this.maxIdleConnections) {
+                    // 超出空闲连接限制时，保留达到最小空闲目标的地址的连接
+                    for (RealConnection connection : idleConnections) {
+                        Routes routes = this.routes.get(connection.route().address());
+                        if (routes.idle.size() > routes.minIdle) {
+                            evictedConnection = connection;
+                            break;
+                        }
+                    }
+                }
+                if (null == evictedConnection) {
+                    // 一个连接将准备驱逐很快.
+                    return keepAliveDurationNs - longestIdleDurationNs;
                 }
             }
 
-            if (longestIdleDurationNs >= this.keepAliveDurationNs
-                    || idleConnectionCount > this.maxIdleConnections) {
+            if (null != evictedConnection) {
                 // 我们发现了与驱逐有关的证据。将它从列表中移除，然后在下面(同步块外部)关闭它
-                connections.remove(longestIdleConnection);
-            } else if (idleConnectionCount > 0) {
-                // 一个连接将准备驱逐很快.
-                return keepAliveDurationNs - longestIdleDurationNs;
-            } else if (inUseConnectionCount > 0) {
+                remove(evictedConnection);
+                replenish(evictedConnection.route().address());
+                evictionCount++;
+            } else if (connectionCount > 0) {
                 // 所有连接都在使用中。至少能维持生命直到我们再次运行.
                 return keepAliveDurationNs;
             } else {
@@ -262,7 +488,7 @@ public final class ConnectionPool {
             }
         }
 
-        IoKit.close(longestIdleConnection.socket());
+        IoKit.close(evictedConnection.socket());
         // 立即清理.
         return 0;
     }
@@ -304,4 +530,149 @@ public final class ConnectionPool {
         return references.size();
     }
 
+    private RealConnection acquire(RealConnection connection, StreamAllocation streamAllocation) {
+        streamAllocation.acquire(connection, true);
+        removeIdle(connection);
+        return connection;
+    }
+
+    private void addIdle(Routes routes, RealConnection connection) {
+        // 重新插入，使空闲列表保持按空闲时间排序
+        routes.idle.remove(connection);
+        routes.idle.add(connection);
+        idleConnections.remove(connection);
+        idleConnections.add(connection);
+    }
+
+    private void removeIdle(RealConnection connection) {
+        if (idleConnections.remove(connection)) {
+            Routes routes = this.routes.get(connection.route().address());
+            routes.idle.remove(connection);
+            replenish(routes);
+        }
+    }
+
+    private void replenish(Address address) {
+        Routes routes = this.routes.get(address);
+        if (null != routes) {
+            replenish(routes);
+        }
+    }
+
+    private void remove(RealConnection connection) {
+        Routes routes = this.routes.get(connection.route().address());
+        if (null == routes || !routes.connections.remove(connection)) {
+            return;
+        }
+        routes.idle.remove(connection);
+        routes.multiplexed.remove(connection);
+        idleConnections.remove(connection);
+        multiplexedConnections.remove(connection);
+        connectionCount--;
+        release(routes);
+    }
+
+    /**
+     * 地址没有连接且不需要保持空闲连接时，移除其索引
+     *
+     * @param routes 地址索引
+     */
+    private void release(Routes routes) {
+        if (routes.connections.isEmpty() && routes.minIdle == 0 && routes.warming == 0) {
+            this.routes.remove(routes.address);
+        }
+    }
+
+    /**
+     * 空闲连接低于最小空闲目标时，在后台补充。已有可用HTTP/2连接的地址无需补充
+     *
+     * @param routes 地址索引
+     */
+    private void replenish(Routes routes) {
+        assert (Thread.holdsLock(this));
+        if (routes.minIdle == 0) {
+            return;
+        }
+        for (RealConnection connection : routes.multiplexed) {
+            if (!connection.noNewStreams) return;
+        }
+        int deficit = routes.minIdle - routes.idle.size() - routes.warming;
+        for (int i = 0; i < deficit; i++) {
+            routes.warming++;
+            executor.execute(() -> {
+                RealConnection connection = null;
+                try {
+                    connection = connect(routes.client, routes.address);
+                } catch (IOException e) {
+                    Logger.warn(e, "Failed to warm up connection to {}", routes.address.url());
+                }
+                synchronized (ConnectionPool.this) {
+                    routes.warming--;
+                    if (null != connection) {
+                        if (this.routes.get(routes.address) == routes) {
+                            connection.idleAtNanos = System.nanoTime();
+                            put(connection);
+                            return;
+                        }
+                    } else {
+                        release(routes);
+                        return;
+                    }
+                }
+                IoKit.close(connection.socket());
+            });
+        }
+    }
+
+    /**
+     * 选择路由并建立一个新连接，不经过调用链
+     *
+     * @param client  客户端
+     * @param address 地址
+     * @return 已连接但未放入池中的连接
+     * @throws IOException 所有路由均连接失败
+     */
+    private RealConnection connect(Httpd client, Address address) throws IOException {
+        RouteSelector routeSelector = new RouteSelector(address, routeDatabase, null, EventListener.NONE);
+        IOException failure = null;
+        while (routeSelector.hasNext()) {
+            for (Route route : routeSelector.next().getAll()) {
+                RealConnection connection = new RealConnection(this, route);
+                try {
+                    connection.connect(client.connectTimeoutMillis(), client.readTimeoutMillis(),
+                            client.writeTimeoutMillis(), client.pingIntervalMillis(), false,
+                            null, EventListener.NONE);
+                    routeDatabase.connected(route);
+                    return connection;
+                } catch (RouteException e) {
+                    routeSelector.connectFailed(route, e.getLastConnectException());
+                    if (null == failure) {
+                        failure = e.getFirstConnectException();
+                    } else {
+                        failure.addSuppressed(e.getLastConnectException());
+                    }
+                }
+            }
+        }
+        throw null != failure ? failure : new IOException("No route to " + address.url());
+    }
+
+    /**
+     * 单个地址的连接索引及最小空闲目标
+     */
+    private static final class Routes {
+
+        final Address address;
+        final Set<RealConnection> connections = new LinkedHashSet<>();
+        final Set<RealConnection> idle = new LinkedHashSet<>();
+        final Set<RealConnection> multiplexed = new LinkedHashSet<>();
+        Httpd client;
+        int minIdle;
+        int warming;
+
+        Routes(Address address) {
+            this.address = address;
+        }
+    }
+
 }
@@ -147,6 +147,7 @@ public final class StreamAllocation {
      */
     private RealConnection findConnection(int connectTimeout, int readTimeout, int writeTimeout,
                                           int pingIntervalMillis, boolean connectionRetryEnabled) throws IOException {
+        long startNanos = System.nanoTime();
         boolean foundPooledConnection = false;
         RealConnection result = null;
         Route selectedRoute = null;
@@ -176,6 +177,7 @@ public final class StreamAllocation {
                 if (connection != null) {
                     foundPooledConnection = true;
                     result = connection;
+                    connectionPool.acquired(System.nanoTime() - startNanos, true);
                 } else {
                     selectedRoute = route;
                 }
@@ -214,6 +216,7 @@ public final class StreamAllocation {
                         foundPooledConnection = true;
                         result = connection;
                         this.route = route;
+                        connectionPool.acquired(System.nanoTime() - startNanos, true);
                         break;
                     }
                 }
@@ -249,6 +252,7 @@ public final class StreamAllocation {
 
             // 连接池信息
             Builder.instance.put(connectionPool, result);
+            connectionPool.acquired(System.nanoTime() - startNanos, false);
 
             // 如果并发地创建了到同一地址的另一个多路复用连接，则释放该连接并获取该连接
             if (result.isMultiplexed()) {
@@ -0,0 +1,389 @@
+/*********************************************************************************
+ *                                                                               *
+ * The MIT License (MIT)                                                         *
+ *                                                                               *
+ * Copyright (c) 2015-2020 aoju.org and other contributors.                      *
+ *                                                                               *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy  *
+ * of this software and associated documentation files (the "Software"), to deal *
+ * in the Software without restriction, including without limitation the rights  *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell     *
+ * copies of the Software, and to permit persons to whom the Software is         *
+ * furnished to do so, subject to the following conditions:                      *
+ *                                                                               *
+ * The above copyright notice and this permission notice shall be included in    *
+ * all copies or substantial portions of the Software.                           *
+ *                                                                               *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR    *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,      *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE   *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER        *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN     *
+ * THE SOFTWARE.                                                                 *
+ ********************************************************************************/
+package org.aoju.bus.http.metric;
+
+import org.aoju.bus.core.map.FixedLinkedHashMap;
+import org.aoju.bus.http.DnsX;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.security.Security;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 带缓存的DNS实现，装饰另一个{@link DnsX}
+ * <ul>
+ * <li>成功结果缓存{@code ttl}，剩余有效期不足{@code refreshRatio}时在后台提前刷新</li>
+ * <li>失败结果缓存{@code negativeTtl}，期间直接抛出{@link UnknownHostException}</li>
+ * <li>过期后同步解析，上游失败时在{@code staleTtl}内继续返回旧结果</li>
+ * <li>同一主机的并发解析合并为一次上游查询</li>
+ * <li>缓存条目数受{@code maxSize}限制，超出时淘汰最久未使用的主机</li>
+ * </ul>
+ * 默认有效期取自JVM安全属性{@code networkaddress.cache.ttl}及{@code networkaddress.cache.negative.ttl}，
+ * 设置{@link #eventListener}后，每次上游查询前后分别回调{@link EventListener#dnsStart}和{@link EventListener#dnsEnd}，
+ * 此时call参数为{@code null}，可用于统计各主机的真实解析耗时
+ *
+ * @author Kimi Liu
+ * @version 5.9.8
+ * @since JDK 1.8+
+ */
+public class CachingDns implements DnsX {
+
+    /**
+     * 后台刷新线程，空闲时自动回收
+     */
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(0,
+            Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), org.aoju.bus.http.Builder.threadFactory("Httpd CachingDns", true));
+
+    private final DnsX delegate;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final long staleTtlNanos;
+    private final double refreshRatio;
+    private final EventListener eventListener;
+    /**
+     * 主机名 -> 解析结果，按访问顺序淘汰
+     */
+    private final Map<String, Entry> entries;
+    /**
+     * 主机名 -> 进行中的上游查询
+     */
+    private final ConcurrentMap<String, CompletableFuture<List<InetAddress>>> inflight = new ConcurrentHashMap<>();
+
+    CachingDns(Builder builder) {
+        if (builder.delegate == null) {
+            throw new NullPointerException("delegate == null");
+        }
+        this.delegate = builder.delegate;
+        this.ttlNanos = builder.ttlNanos;
+        this.negativeTtlNanos = builder.negativeTtlNanos;
+        this.staleTtlNanos = builder.staleTtlNanos;
+        this.refreshRatio = builder.refreshRatio;
+        this.eventListener = builder.eventListener;
+        this.entries = new FixedLinkedHashMap<>(builder.maxSize);
+    }
+
+    /**
+     * 读取JVM安全属性中的缓存时长
+     *
+     * @param name         属性名
+     * @param defaultValue 默认秒数
+     * @return 纳秒
+     */
+    private static long securityTtl(String name, long defaultValue) {
+        long seconds = defaultValue;
+        try {
+            final String value = Security.getProperty(name);
+            if (null != value && Long.parseLong(value.trim()) >= 0) {
+                seconds = Long.parseLong(value.trim());
+            }
+        } catch (RuntimeException e) {
+            // 属性不可读或非法时使用默认值
+        }
+        return TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        if (hostname == null) throw new UnknownHostException("hostname == null");
+
+        final long now = System.nanoTime();
+        final Entry entry;
+        synchronized (entries) {
+            entry = entries.get(hostname);
+        }
+        if (null != entry) {
+            if (now - entry.expiresAt < 0) {
+                if (null == entry.addresses) {
+                    throw entry.failure();
+                }
+                if (now - entry.refreshAt >= 0 && entry.refreshing.compareAndSet(false, true)) {
+                    refresh(hostname, entry);
+                }
+                return entry.addresses;
+            }
+        }
+        return resolve(hostname, entry);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void evictAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * 缓存的主机数
+     *
+     * @return 主机数
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * 同步解析，合并同一主机的并发查询，上游失败时在允许范围内返回旧结果
+     *
+     * @param hostname 主机名
+     * @param previous 旧的缓存条目，可为{@code null}
+     * @return IP地址列表
+     * @throws UnknownHostException 解析失败且无可用的旧结果
+     */
+    private List<InetAddress> resolve(String hostname, Entry previous) throws UnknownHostException {
+        final CompletableFuture<List<InetAddress>> future = new CompletableFuture<>();
+        final CompletableFuture<List<InetAddress>> existing = inflight.putIfAbsent(hostname, future);
+        if (null != existing) {
+            return await(hostname, existing);
+        }
+        try {
+            final List<InetAddress> addresses = query(hostname, previous);
+            future.complete(addresses);
+            return addresses;
+        } catch (UnknownHostException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(hostname, future);
+        }
+    }
+
+    /**
+     * 后台刷新，失败时保留原结果直到过期
+     *
+     * @param hostname 主机名
+     * @param previous 当前缓存条目
+     */
+    private void refresh(String hostname, Entry previous) {
+        try {
+            executor.execute(() -> {
+                try {
+                    resolve(hostname, previous);
+                } catch (UnknownHostException | RuntimeException e) {
+                    // 刷新失败，继续使用当前结果
+                } finally {
+                    previous.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            previous.refreshing.set(false);
+        }
+    }
+
+    /**
+     * 查询上游并更新缓存
+     *
+     * @param hostname 主机名
+     * @param previous 旧的缓存条目，可为{@code null}
+     * @return IP地址列表
+     * @throws UnknownHostException 解析失败且无可用的旧结果
+     */
+    private List<InetAddress> query(String hostname, Entry previous) throws UnknownHostException {
+        final List<InetAddress> addresses;
+        try {
+            if (null != eventListener) {
+                eventListener.dnsStart(null, hostname);
+            }
+            addresses = Collections.unmodifiableList(delegate.lookup(hostname));
+            if (null != eventListener) {
+                eventListener.dnsEnd(null, hostname, addresses);
+            }
+        } catch (UnknownHostException e) {
+            final long now = System.nanoTime();
+            if (null != previous && null != previous.addresses && now - previous.staleUntil < 0) {
+                // 上游失败，继续使用旧结果，并在负缓存时长后再重试
+                put(hostname, new Entry(previous.addresses, null, now + negativeTtlNanos,
+                        now + negativeTtlNanos, previous.staleUntil));
+                return previous.addresses;
+            }
+            put(hostname, new Entry(null, e.getMessage(), now + negativeTtlNanos, 0, 0));
+            throw e;
+        }
+
+        if (addresses.isEmpty()) {
+            // 空结果不缓存
+            return addresses;
+        }
+        final long now = System.nanoTime();
+        final long expiresAt = now + ttlNanos;
+        put(hostname, new Entry(addresses, null, expiresAt,
+                now + (long) (ttlNanos * (1 - refreshRatio)), expiresAt + staleTtlNanos));
+        return addresses;
+    }
+
+    /**
+     * 等待其它线程的查询结果
+     *
+     * @param hostname 主机名
+     * @param future   查询结果
+     * @return IP地址列表
+     * @throws UnknownHostException 解析失败
+     */
+    private List<InetAddress> await(String hostname, CompletableFuture<List<InetAddress>> future) throws UnknownHostException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (UnknownHostException) new UnknownHostException("Interrupted lookup of " + hostname).initCause(e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof UnknownHostException) {
+                throw (UnknownHostException) new UnknownHostException(cause.getMessage()).initCause(cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (UnknownHostException) new UnknownHostException(hostname).initCause(cause);
+        }
+    }
+
+    private void put(String hostname, Entry entry) {
+        synchronized (entries) {
+            entries.put(hostname, entry);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CachingDns(" + delegate + ")";
+    }
+
+    /**
+     * 缓存条目，时间均为{@link System#nanoTime()}
+     */
+    private static final class Entry {
+
+        /**
+         * 解析结果，负缓存时为{@code null}
+         */
+        final List<InetAddress> addresses;
+        /**
+         * 负缓存的失败信息
+         */
+        final String message;
+        final long expiresAt;
+        final long refreshAt;
+        final long staleUntil;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(List<InetAddress> addresses, String message,
+              long expiresAt, long refreshAt, long staleUntil) {
+            this.addresses = addresses;
+            this.message = message;
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+            this.staleUntil = staleUntil;
+        }
+
+        UnknownHostException failure() {
+            return new UnknownHostException(message);
+        }
+    }
+
+    public static final class Builder {
+
+        DnsX delegate = DnsX.SYSTEM;
+        long ttlNanos = securityTtl("networkaddress.cache.ttl", 30);
+        long negativeTtlNanos = securityTtl("networkaddress.cache.negative.ttl", 10);
+        long staleTtlNanos = TimeUnit.MINUTES.toNanos(10);
+        double refreshRatio = 0.25;
+        int maxSize = 1024;
+        EventListener eventListener;
+
+        public Builder() {
+        }
+
+        public CachingDns build() {
+            return new CachingDns(this);
+        }
+
+        public Builder delegate(DnsX delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        public Builder ttl(long ttl, TimeUnit unit) {
+            this.ttlNanos = checkDuration("ttl", ttl, unit);
+            return this;
+        }
+
+        public Builder negativeTtl(long negativeTtl, TimeUnit unit) {
+            this.negativeTtlNanos = checkDuration("negativeTtl", negativeTtl, unit);
+            return this;
+        }
+
+        public Builder staleTtl(long staleTtl, TimeUnit unit) {
+            this.staleTtlNanos = checkDuration("staleTtl", staleTtl, unit);
+            return this;
+        }
+
+        /**
+         * 剩余有效期占比低于此值时提前在后台刷新，0表示不提前刷新
+         *
+         * @param refreshRatio 0~1之间
+         * @return this
+         */
+        public Builder refreshRatio(double refreshRatio) {
+            if (refreshRatio < 0 || refreshRatio >= 1) {
+                throw new IllegalArgumentException("refreshRatio < 0 || refreshRatio >= 1: " + refreshRatio);
+            }
+            this.refreshRatio = refreshRatio;
+            return this;
+        }
+
+        public Builder maxSize(int maxSize) {
+            if (maxSize <= 0) {
+                throw new IllegalArgumentException("maxSize <= 0: " + maxSize);
+            }
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Builder eventListener(EventListener eventListener) {
+            this.eventListener = eventListener;
+            return this;
+        }
+
+        private static long checkDuration(String name, long duration, TimeUnit unit) {
+            if (duration < 0) {
+                throw new IllegalArgumentException(name + " < 0");
+            }
+            if (unit == null) {
+                throw new NullPointerException("unit == null");
+            }
+            return unit.toNanos(duration);
+        }
+    }
+
+}
@@ -29,16 +29,17 @@ import org.aoju.bus.http.NewCall;
 import org.aoju.bus.http.RealCall;
 import org.aoju.bus.http.RealCall.AsyncCall;
 
+import java.lang.reflect.Method;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 
 /**
  * 关于何时执行异步请求的策略
- * 每个dispatcher使用一个{@link ExecutorService}在内部运行调用。
+ * 每个dispatcher使用一个{@link Executor}在内部运行调用。
  * 如果您提供自己的执行程序，它应该能够并发地运行{@linkplain #getMaxRequests 配置的最大调用数}
+ * <p>
+ * 等待中的调用按主机分组排队，每个主机维护自己的运行计数；可以继续执行的主机按轮转顺序提升,
+ * 因此提升一个调用的代价与排队调用和主机的数量无关，且单个繁忙主机不会饿死其他主机的调用
  *
  * @author Kimi Liu
  * @version 5.9.8
@@ -47,38 +48,76 @@ import java.util.concurrent.TimeUnit;
 public final class Dispatcher {
 
     /**
-     * 准备异步调用的顺序，他们将被运行
+     * 按主机分组的等待及运行状态
      */
-    private final Deque<AsyncCall> readyAsyncCalls = new ArrayDeque<>();
+    private final Map<String, Host> hosts = new HashMap<>();
+    /**
+     * 有等待调用且未达到主机上限的主机，按轮转顺序排列
+     */
+    private final Deque<Host> readyHosts = new ArrayDeque<>();
     /**
      * 运行异步调用。包括尚未结束的已取消调用
      */
-    private final Deque<AsyncCall> runningAsyncCalls = new ArrayDeque<>();
+    private final Set<AsyncCall> runningAsyncCalls = new LinkedHashSet<>();
     /**
      * 运行同步调用。包括尚未结束的已取消调用
      */
-    private final Deque<RealCall> runningSyncCalls = new ArrayDeque<>();
+    private final Set<RealCall> runningSyncCalls = new LinkedHashSet<>();
     private int maxRequests = 64;
     private int maxRequestsPerHost = 5;
+    private int queuedCallsCount;
     private Runnable idleCallback;
+    /**
+     * 排队等待统计
+     */
+    private long promotedCallsCount;
+    private long totalQueueWaitNanos;
+    private long maxQueueWaitNanos;
     /**
      * 执行调用
      */
-    private ExecutorService executorService;
+    private Executor executor;
 
     public Dispatcher(ExecutorService executorService) {
-        this.executorService = executorService;
+        this.executor = executorService;
+    }
+
+    public Dispatcher(Executor executor) {
+        this.executor = executor;
     }
 
     public Dispatcher() {
     }
 
-    public synchronized ExecutorService executorService() {
-        if (executorService == null) {
-            executorService = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+    /**
+     * 创建在虚拟线程上执行调用的dispatcher
+     * 运行时不支持虚拟线程(JDK 21 之前)时退回到默认线程池
+     *
+     * @return dispatcher
+     */
+    public static Dispatcher ofVirtualThreads() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return new Dispatcher((ExecutorService) method.invoke(null));
+        } catch (ReflectiveOperationException e) {
+            return new Dispatcher();
+        }
+    }
+
+    public synchronized Executor executor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
                     new SynchronousQueue<>(), Builder.threadFactory("Httpd Dispatcher", false));
         }
-        return executorService;
+        return executor;
+    }
+
+    public synchronized ExecutorService executorService() {
+        Executor executor = executor();
+        if (!(executor instanceof ExecutorService)) {
+            throw new IllegalStateException("executor is not an ExecutorService: " + executor);
+        }
+        return (ExecutorService) executor;
     }
 
     public synchronized int getMaxRequests() {
@@ -118,6 +157,9 @@ public final class Dispatcher {
         }
         synchronized (this) {
             this.maxRequestsPerHost = maxRequestsPerHost;
+            for (Host host : hosts.values()) {
+                markReady(host);
+            }
         }
         promoteAndExecute();
     }
@@ -134,7 +176,10 @@ public final class Dispatcher {
 
     public void enqueue(AsyncCall call) {
         synchronized (this) {
-            readyAsyncCalls.add(call);
+            Host host = hosts.computeIfAbsent(call.host(), Host::new);
+            host.ready.add(new Queued(call, System.nanoTime()));
+            queuedCallsCount++;
+            markReady(host);
         }
         promoteAndExecute();
     }
@@ -145,8 +190,10 @@ public final class Dispatcher {
      * 执行的{@linkplain NewCall#enqueue}。
      */
     public synchronized void cancelAll() {
-        for (AsyncCall call : readyAsyncCalls) {
-            call.get().cancel();
+        for (Host host : hosts.values()) {
+            for (Queued queued : host.ready) {
+                queued.call.get().cancel();
+            }
         }
 
         for (AsyncCall call : runningAsyncCalls) {
@@ -159,8 +206,8 @@ public final class Dispatcher {
     }
 
     /**
-     * 将符合条件的调用从{@link #readyAsyncCalls}提升到{@link #runningAsyncCalls}，
-     * 并在executor服务上运行它们。必须不与同步调用，因为执行调用可以调用到用户代码
+     * 将符合条件的调用从主机等待队列提升到{@link #runningAsyncCalls}，
+     * 并在executor上运行它们。必须不与同步调用，因为执行调用可以调用到用户代码
      *
      * @return 如果调度程序当前正在运行调用，则为true
      */
@@ -169,39 +216,49 @@ public final class Dispatcher {
 
         List<AsyncCall> executableCalls = new ArrayList<>();
         boolean isRunning;
+        long now = System.nanoTime();
         synchronized (this) {
-            for (Iterator<AsyncCall> i = readyAsyncCalls.iterator(); i.hasNext(); ) {
-                AsyncCall asyncCall = i.next();
-
-                if (runningAsyncCalls.size() >= maxRequests) break; // Max capacity.
-                if (runningCallsForHost(asyncCall) >= maxRequestsPerHost) continue; // Host max capacity.
-
-                i.remove();
-                executableCalls.add(asyncCall);
-                runningAsyncCalls.add(asyncCall);
+            while (runningAsyncCalls.size() < maxRequests) {
+                Host host = readyHosts.poll();
+                if (host == null) break;
+                host.inReady = false;
+                if (host.ready.isEmpty() || host.running >= maxRequestsPerHost) continue;
+
+                Queued queued = host.ready.poll();
+                queuedCallsCount--;
+                host.active++;
+                if (!queued.call.get().forWebSocket) host.running++;
+                markReady(host);
+
+                long waited = now - queued.enqueuedAt;
+                promotedCallsCount++;
+                totalQueueWaitNanos += waited;
+                maxQueueWaitNanos = Math.max(maxQueueWaitNanos, waited);
+
+                executableCalls.add(queued.call);
+                runningAsyncCalls.add(queued.call);
             }
             isRunning = runningCallsCount() > 0;
         }
 
         for (int i = 0, size = executableCalls.size(); i < size; i++) {
             AsyncCall asyncCall = executableCalls.get(i);
-            asyncCall.executeOn(executorService());
+            asyncCall.executeOn(executor());
         }
 
         return isRunning;
     }
 
     /**
-     * @param call 回调信息
-     * @return 与{@code call}共享主机的运行调用的数量
+     * 主机有等待调用且未达到上限时，将其放入轮转队列末尾
+     *
+     * @param host 主机
      */
-    private int runningCallsForHost(AsyncCall call) {
-        int result = 0;
-        for (AsyncCall c : runningAsyncCalls) {
-            if (c.get().forWebSocket) continue;
-            if (c.host().equals(call.host())) result++;
+    private void markReady(Host host) {
+        if (!host.inReady && !host.ready.isEmpty() && host.running < maxRequestsPerHost) {
+            host.inReady = true;
+            readyHosts.add(host);
         }
-        return result;
     }
 
     public synchronized void executed(RealCall call) {
@@ -209,20 +266,32 @@ public final class Dispatcher {
     }
 
     public void finished(AsyncCall call) {
-        finished(runningAsyncCalls, call);
+        Runnable idleCallback;
+        synchronized (this) {
+            if (!runningAsyncCalls.remove(call)) throw new AssertionError("Call wasn't in-flight!");
+            Host host = hosts.get(call.host());
+            host.active--;
+            if (!call.get().forWebSocket) host.running--;
+            if (host.active == 0 && host.ready.isEmpty()) {
+                hosts.remove(host.name);
+            } else {
+                markReady(host);
+            }
+            idleCallback = this.idleCallback;
+        }
+        finished(idleCallback);
     }
 
     public void finished(RealCall call) {
-        finished(runningSyncCalls, call);
-    }
-
-    private <T> void finished(Deque<T> calls, T call) {
         Runnable idleCallback;
         synchronized (this) {
-            if (!calls.remove(call)) throw new AssertionError("Call wasn't in-flight!");
+            if (!runningSyncCalls.remove(call)) throw new AssertionError("Call wasn't in-flight!");
             idleCallback = this.idleCallback;
         }
+        finished(idleCallback);
+    }
 
+    private void finished(Runnable idleCallback) {
         boolean isRunning = promoteAndExecute();
 
         if (!isRunning && idleCallback != null) {
@@ -231,9 +300,11 @@ public final class Dispatcher {
     }
 
     public synchronized List<NewCall> queuedCalls() {
-        List<NewCall> result = new ArrayList<>();
-        for (AsyncCall asyncCall : readyAsyncCalls) {
-            result.add(asyncCall.get());
+        List<NewCall> result = new ArrayList<>(queuedCallsCount);
+        for (Host host : hosts.values()) {
+            for (Queued queued : host.ready) {
+                result.add(queued.call.get());
+            }
         }
         return Collections.unmodifiableList(result);
     }
@@ -248,11 +319,76 @@ public final class Dispatcher {
     }
 
     public synchronized int queuedCallsCount() {
-        return readyAsyncCalls.size();
+        return queuedCallsCount;
     }
 
     public synchronized int runningCallsCount() {
         return runningAsyncCalls.size() + runningSyncCalls.size();
     }
 
+    /**
+     * @param host 主机名
+     * @return 该主机正在运行的异步调用数量(不含WebSocket调用)
+     */
+    public synchronized int runningCallsCount(String host) {
+        Host state = hosts.get(host);
+        return null == state ? 0 : state.running;
+    }
+
+    /**
+     * @return 已从等待队列提升执行的异步调用数量
+     */
+    public synchronized long promotedCallsCount() {
+        return promotedCallsCount;
+    }
+
+    /**
+     * @param unit 时间单位
+     * @return 异步调用在等待队列中的平均等待时间
+     */
+    public synchronized long averageQueueWait(TimeUnit unit) {
+        return promotedCallsCount == 0 ? 0 : unit.convert(totalQueueWaitNanos / promotedCallsCount, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit 时间单位
+     * @return 异步调用在等待队列中的最长等待时间
+     */
+    public synchronized long maxQueueWait(TimeUnit unit) {
+        return unit.convert(maxQueueWaitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 单个主机的等待队列及运行计数
+     */
+    private static final class Host {
+
+        final String name;
+        final Deque<Queued> ready = new ArrayDeque<>();
+        /**
+         * 运行中的调用数量，WebSocket调用不计入主机上限
+         */
+        int running;
+        int active;
+        boolean inReady;
+
+        Host(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * 等待中的调用及其入队时间
+     */
+    private static final class Queued {
+
+        final AsyncCall call;
+        final long enqueuedAt;
+
+        Queued(AsyncCall call, long enqueuedAt) {
+            this.call = call;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
 }
@@ -440,7 +440,7 @@ public final class HttpURLConnection extends java.net.HttpURLConnection implemen
         clientBuilder.networkInterceptors().add(networkInterceptor);
 
         // 使用单独的分配器，这样就不会影响限制。但是使用相同的执行服务!
-        clientBuilder.dispatcher(new Dispatcher(client.dispatcher().executorService()));
+        clientBuilder.dispatcher(new Dispatcher(client.dispatcher().executor()));
 
         // 如果我们目前没有使用缓存，请确保引擎的客户端没有缓存
         if (!getUseCaches()) {
@@ -34,12 +34,9 @@ import org.aoju.bus.http.bodys.RequestBody;
 import org.aoju.bus.http.bodys.UnrepeatableBody;
 import org.aoju.bus.http.metric.EventListener;
 import org.aoju.bus.http.metric.Interceptor;
-import org.aoju.bus.http.secure.CertificatePinner;
 
-import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLHandshakeException;
 import javax.net.ssl.SSLPeerUnverifiedException;
-import javax.net.ssl.SSLSocketFactory;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InterruptedIOException;
@@ -108,7 +105,7 @@ public final class RetryAndFollowUp implements Interceptor {
         EventListener eventListener = realChain.eventListener();
 
         StreamAllocation streamAllocation = new StreamAllocation(client.connectionPool(),
-                createAddress(request.url()), call, eventListener, callStackTrace);
+                client.address(request.url()), call, eventListener, callStackTrace);
         this.streamAllocation = streamAllocation;
 
         int followUpCount = 0;
@@ -182,7 +179,7 @@ public final class RetryAndFollowUp implements Interceptor {
             if (!sameConnection(response, followUp.url())) {
                 streamAllocation.release();
                 streamAllocation = new StreamAllocation(client.connectionPool(),
-                        createAddress(followUp.url()), call, eventListener, callStackTrace);
+                        client.address(followUp.url()), call, eventListener, callStackTrace);
                 this.streamAllocation = streamAllocation;
             } else if (streamAllocation.codec() != null) {
                 throw new IllegalStateException("Closing the body of " + response
@@ -194,21 +191,6 @@ public final class RetryAndFollowUp implements Interceptor {
         }
     }
 
-    private Address createAddress(UnoUrl url) {
-        SSLSocketFactory sslSocketFactory = null;
-        HostnameVerifier hostnameVerifier = null;
-        CertificatePinner certificatePinner = null;
-        if (url.isHttps()) {
-            sslSocketFactory = client.sslSocketFactory();
-            hostnameVerifier = client.hostnameVerifier();
-            certificatePinner = client.certificatePinner();
-        }
-
-        return new Address(url.host(), url.port(), client.dns(), client.socketFactory(),
-                sslSocketFactory, hostnameVerifier, certificatePinner, client.proxyAuthenticator(),
-                client.proxy(), client.protocols(), client.connectionSpecs(), client.proxySelector());
-    }
-
     private boolean recover(IOException e, StreamAllocation streamAllocation,
                             boolean requestSendStarted, Request userRequest) {
         streamAllocation.streamFailed(e);
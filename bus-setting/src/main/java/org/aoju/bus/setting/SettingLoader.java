@@ -41,6 +41,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 /**
  * Setting文件加载器
@@ -62,7 +63,7 @@ public class SettingLoader {
     /**
      * 变量名称的正则
      */
-    private String reg_var = "\\$\\{(.*?)\\}";
+    private Pattern reg_var = PatternKit.get("\\$\\{(.*?)\\}", Pattern.DOTALL);
 
     /**
      * 本设置对象的字符集
@@ -178,7 +179,7 @@ public class SettingLoader {
      * @param regex 正则
      */
     public void setVarRegex(String regex) {
-        this.reg_var = regex;
+        this.reg_var = PatternKit.get(regex, Pattern.DOTALL);
     }
 
     /**
@@ -76,11 +76,8 @@ public class PageBufferPlugin<T> extends AbstractPlugin {
                             Logger.error("server maybe has not started!");
                             return;
                         }
-                        Field field = BufferPool.class.getDeclaredField("bufferPageList");
-                        field.setAccessible(true);
-                        PageBuffer[] pages = (PageBuffer[]) field.get(pagePool);
                         String logger = Normal.EMPTY;
-                        for (PageBuffer page : pages) {
+                        for (PageBuffer page : pagePool.getPageBuffers()) {
                             logger += Symbol.CRLF + page.toString();
                         }
                         Logger.info(logger);